@@ -0,0 +1,40 @@
+package ch.epfl.cs107.bench;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entry point of the benchmarks : runs the selected benchmarks reporting the throughput, the
+ * per-operation latency distribution and the allocation rate (GC profiler).
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class Benchmarks {
+
+    private Benchmarks(){}
+
+    /**
+     * Entry point of the benchmarks
+     * @param args (String[]) - regular expressions selecting the benchmarks to run, all by default
+     * @throws RunnerException if a benchmark fails
+     */
+    public static void main(String[] args) throws RunnerException {
+        final var options = new OptionsBuilder()
+                .mode(Mode.Throughput)
+                .mode(Mode.SampleTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true);
+        if (args.length == 0)
+            options.include("ch\\.epfl\\.cs107\\.bench\\..*");
+        for (String include : args)
+            options.include(include);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,57 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.crypto.Decrypt;
+import ch.epfl.cs107.crypto.Encrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential {@link Decrypt#cbc(byte[], byte[])}, baseline of {@link CbcDecryptBenchmark} on the
+ * same ciphers.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "--add-modules", "jdk.incubator.vector"})
+public class CbcDecryptSequentialBenchmark {
+
+    /** Size of the cipher, from 1 MiB to 1 GiB */
+    @Param({"1048576", "16777216", "268435456", "1073741824"})
+    public int size;
+
+    private byte[] iv;
+    private byte[] cipher;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(107);
+        iv = new byte[16];
+        random.nextBytes(iv);
+        byte[] plainText = new byte[size];
+        random.nextBytes(plainText);
+        cipher = Encrypt.cbc(plainText, iv);
+    }
+
+    @Benchmark
+    public byte[] sequential() {
+        return Decrypt.cbc(cipher, iv);
+    }
+}
@@ -0,0 +1,116 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.crypto.CompiledCipher;
+import ch.epfl.cs107.crypto.Decrypt;
+import ch.epfl.cs107.crypto.Encrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link CompiledCipher} against the static methods of {@link Encrypt} and
+ * {@link Decrypt}, on small messages encrypted with the same key
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class CompiledCipherBenchmark {
+
+    /** Size of the message, from 64 bytes to 64 KiB */
+    @Param({"64", "1024", "65536"})
+    public int size;
+
+    private byte[] keyword;
+    private byte[] iv;
+    private byte[] plainText;
+    private byte[] vigenereCipher;
+    private byte[] cbcCipher;
+    private byte[] output;
+    private CompiledCipher vigenere;
+    private CompiledCipher cbc;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keyword = Inputs.bytes(13);
+        iv = Inputs.bytes(16);
+        plainText = Inputs.text(size);
+        output = new byte[size];
+        vigenere = CompiledCipher.vigenere(keyword);
+        cbc = CompiledCipher.cbc(iv);
+        vigenereCipher = Encrypt.vigenere(plainText, keyword);
+        cbcCipher = Encrypt.cbc(plainText, iv);
+    }
+
+    // ============================================================================================
+    // ======================================== VIGENERE ==========================================
+    // ============================================================================================
+
+    @Benchmark
+    public byte[] encryptVigenereStatic() {
+        Encrypt.vigenere(plainText, 0, output, 0, size, keyword);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] encryptVigenereCompiled() {
+        vigenere.encrypt(plainText, 0, output, 0, size);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decryptVigenereStatic() {
+        Decrypt.vigenere(vigenereCipher, 0, output, 0, size, keyword);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decryptVigenereCompiled() {
+        vigenere.decrypt(vigenereCipher, 0, output, 0, size);
+        return output;
+    }
+
+    // ============================================================================================
+    // ========================================== CBC =============================================
+    // ============================================================================================
+
+    @Benchmark
+    public byte[] encryptCbcStatic() {
+        Encrypt.cbc(plainText, 0, output, 0, size, iv);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] encryptCbcCompiled() {
+        cbc.encrypt(plainText, 0, output, 0, size);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decryptCbcStatic() {
+        Decrypt.cbc(cbcCipher, 0, output, 0, size, iv);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decryptCbcCompiled() {
+        cbc.decrypt(cbcCipher, 0, output, 0, size);
+        return output;
+    }
+}
@@ -0,0 +1,79 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.crypto.Encrypt;
+import ch.epfl.cs107.crypto.KeySearch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the key and keyword recovery of {@link KeySearch}
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class CryptanalysisBenchmark {
+
+    /** Size of the cipher, from 1 KiB to 256 MiB */
+    @Param({"1024", "1048576", "16777216", "268435456"})
+    public int size;
+
+    /** Number of keys returned */
+    public static final int CANDIDATES = 3;
+
+    /** Length of the Vigenere keyword, keywords up to twice as long are tried */
+    public static final int KEYWORD_LENGTH = 13;
+
+    private byte[] caesarCipher;
+    private byte[] xorCipher;
+    private byte[] vigenereCipher;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] plainText = Inputs.text(size);
+        caesarCipher = Encrypt.caesar(plainText, (byte) 42);
+        xorCipher = Encrypt.xor(plainText, (byte) 42);
+        vigenereCipher = Encrypt.vigenere(plainText, Inputs.bytes(KEYWORD_LENGTH));
+    }
+
+    // ============================================================================================
+    // ==================================== SINGLE BYTE KEYS ======================================
+    // ============================================================================================
+
+    @Benchmark
+    public List<KeySearch.Candidate> caesarKeySearch() {
+        return KeySearch.DEFAULT.caesar(caesarCipher, CANDIDATES);
+    }
+
+    @Benchmark
+    public List<KeySearch.Candidate> xorKeySearch() {
+        return KeySearch.DEFAULT.xor(xorCipher, CANDIDATES);
+    }
+
+    // ============================================================================================
+    // ======================================== VIGENERE ==========================================
+    // ============================================================================================
+
+    @Benchmark
+    public byte[] vigenereKeySearch() {
+        return KeySearch.DEFAULT.vigenere(vigenereCipher, 2 * KEYWORD_LENGTH);
+    }
+}
@@ -0,0 +1,195 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.crypto.Decrypt;
+import ch.epfl.cs107.crypto.Encrypt;
+import ch.epfl.cs107.crypto.Keystream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the array methods of {@link Encrypt} and {@link Decrypt}. The methods taking a
+ * kernel are measured by {@link CryptoKernelBenchmark}, the buffer variants by {@link CryptoBufferBenchmark}.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class CryptoBenchmark {
+
+    /** Size of the message, from 1 KiB to 256 MiB */
+    @Param({"1024", "1048576", "16777216", "268435456"})
+    public int size;
+
+    private byte key;
+    private byte[] keyword;
+    private byte[] iv;
+    private byte[] plainText;
+    private byte[] cipherText;
+    private byte[] pad;
+    private byte[] output;
+    private Keystream keystream;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        key = 42;
+        keyword = Inputs.bytes(7);
+        iv = Inputs.bytes(16);
+        plainText = Inputs.text(size);
+        cipherText = Encrypt.cbc(plainText, iv);
+        pad = Inputs.bytes(size);
+        output = new byte[size];
+        keystream = new Keystream(42);
+    }
+
+    // ============================================================================================
+    // ======================================== ENCRYPT ===========================================
+    // ============================================================================================
+
+    @Benchmark
+    public byte[] encryptCaesar() {
+        return Encrypt.caesar(plainText, key);
+    }
+
+    @Benchmark
+    public byte[] encryptCaesarInto() {
+        Encrypt.caesar(plainText, 0, output, 0, size, key);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] encryptVigenere() {
+        return Encrypt.vigenere(plainText, keyword);
+    }
+
+    @Benchmark
+    public byte[] encryptVigenereInto() {
+        Encrypt.vigenere(plainText, 0, output, 0, size, keyword);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] encryptCbc() {
+        return Encrypt.cbc(plainText, iv);
+    }
+
+    @Benchmark
+    public byte[] encryptCbcInto() {
+        Encrypt.cbc(plainText, 0, output, 0, size, iv);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] encryptXor() {
+        return Encrypt.xor(plainText, key);
+    }
+
+    @Benchmark
+    public byte[] encryptXorInto() {
+        Encrypt.xor(plainText, 0, output, 0, size, key);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] encryptOneTimePad() {
+        return Encrypt.oneTimePad(plainText, pad);
+    }
+
+    @Benchmark
+    public byte[] encryptOneTimePadResult() {
+        Encrypt.oneTimePad(plainText, pad, output);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] encryptOneTimePadInto() {
+        Encrypt.oneTimePad(plainText, 0, output, 0, size, pad, 0);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] encryptKeystream() {
+        return Encrypt.oneTimePad(plainText, keystream);
+    }
+
+    @Benchmark
+    public byte[] encryptKeystreamInto() {
+        Encrypt.oneTimePad(plainText, 0, output, 0, size, keystream, 0);
+        return output;
+    }
+
+    // ============================================================================================
+    // ======================================== DECRYPT ===========================================
+    // ============================================================================================
+
+    @Benchmark
+    public byte[] decryptCaesar() {
+        return Decrypt.caesar(cipherText, key);
+    }
+
+    @Benchmark
+    public byte[] decryptCaesarInto() {
+        Decrypt.caesar(cipherText, 0, output, 0, size, key);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decryptVigenere() {
+        return Decrypt.vigenere(cipherText, keyword);
+    }
+
+    @Benchmark
+    public byte[] decryptVigenereInto() {
+        Decrypt.vigenere(cipherText, 0, output, 0, size, keyword);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decryptCbc() {
+        return Decrypt.cbc(cipherText, iv);
+    }
+
+    @Benchmark
+    public byte[] decryptCbcInto() {
+        Decrypt.cbc(cipherText, 0, output, 0, size, iv);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decryptXor() {
+        return Decrypt.xor(cipherText, key);
+    }
+
+    @Benchmark
+    public byte[] decryptXorInto() {
+        Decrypt.xor(cipherText, 0, output, 0, size, key);
+        return output;
+    }
+
+    @Benchmark
+    public byte[] decryptOneTimePad() {
+        return Decrypt.oneTimePad(cipherText, pad);
+    }
+
+    @Benchmark
+    public byte[] decryptOneTimePadInto() {
+        Decrypt.oneTimePad(cipherText, 0, output, 0, size, pad, 0);
+        return output;
+    }
+}
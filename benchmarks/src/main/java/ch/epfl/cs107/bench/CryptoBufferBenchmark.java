@@ -0,0 +1,157 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.crypto.Decrypt;
+import ch.epfl.cs107.crypto.Encrypt;
+import ch.epfl.cs107.crypto.Keystream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the {@link ByteBuffer} variants of {@link Encrypt} and {@link Decrypt}, on heap and
+ * direct buffers
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class CryptoBufferBenchmark {
+
+    /** Size of the message, from 1 KiB to 256 MiB */
+    @Param({"1024", "1048576", "16777216", "268435456"})
+    public int size;
+
+    /** <code>true</code> to use direct buffers */
+    @Param({"false", "true"})
+    public boolean direct;
+
+    private byte key;
+    private byte[] keyword;
+    private byte[] iv;
+    private ByteBuffer source;
+    private ByteBuffer destination;
+    private ByteBuffer padBuffer;
+    private Keystream keystream;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        key = 42;
+        keyword = Inputs.bytes(7);
+        iv = Inputs.bytes(16);
+        source = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        destination = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        padBuffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        source.put(Inputs.text(size));
+        padBuffer.put(Inputs.bytes(size));
+        keystream = new Keystream(42);
+    }
+
+    /** Rewind the buffers, done in the benchmark : a per-invocation setup would skew small sizes */
+    private void rewind() {
+        source.clear();
+        destination.clear();
+        padBuffer.clear();
+    }
+
+    // ============================================================================================
+    // ======================================== ENCRYPT ===========================================
+    // ============================================================================================
+
+    @Benchmark
+    public ByteBuffer encryptCaesarBuffer() {
+        rewind();
+        Encrypt.caesar(source, destination, key);
+        return destination;
+    }
+
+    @Benchmark
+    public ByteBuffer encryptVigenereBuffer() {
+        rewind();
+        Encrypt.vigenere(source, destination, keyword);
+        return destination;
+    }
+
+    @Benchmark
+    public ByteBuffer encryptCbcBuffer() {
+        rewind();
+        Encrypt.cbc(source, destination, iv);
+        return destination;
+    }
+
+    @Benchmark
+    public ByteBuffer encryptXorBuffer() {
+        rewind();
+        Encrypt.xor(source, destination, key);
+        return destination;
+    }
+
+    @Benchmark
+    public ByteBuffer encryptOneTimePadBuffer() {
+        rewind();
+        Encrypt.oneTimePad(source, destination, padBuffer);
+        return destination;
+    }
+
+    @Benchmark
+    public ByteBuffer encryptKeystreamBuffer() {
+        rewind();
+        Encrypt.oneTimePad(source, destination, keystream, 0);
+        return destination;
+    }
+
+    // ============================================================================================
+    // ======================================== DECRYPT ===========================================
+    // ============================================================================================
+
+    @Benchmark
+    public ByteBuffer decryptCaesarBuffer() {
+        rewind();
+        Decrypt.caesar(source, destination, key);
+        return destination;
+    }
+
+    @Benchmark
+    public ByteBuffer decryptVigenereBuffer() {
+        rewind();
+        Decrypt.vigenere(source, destination, keyword);
+        return destination;
+    }
+
+    @Benchmark
+    public ByteBuffer decryptCbcBuffer() {
+        rewind();
+        Decrypt.cbc(source, destination, iv);
+        return destination;
+    }
+
+    @Benchmark
+    public ByteBuffer decryptXorBuffer() {
+        rewind();
+        Decrypt.xor(source, destination, key);
+        return destination;
+    }
+
+    @Benchmark
+    public ByteBuffer decryptOneTimePadBuffer() {
+        rewind();
+        Decrypt.oneTimePad(source, destination, padBuffer);
+        return destination;
+    }
+}
@@ -0,0 +1,96 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.crypto.CipherKernel;
+import ch.epfl.cs107.crypto.Decrypt;
+import ch.epfl.cs107.crypto.Encrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the methods of {@link Encrypt} and {@link Decrypt} taking a {@link CipherKernel},
+ * for each implementation of the kernel
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class CryptoKernelBenchmark {
+
+    /** Size of the message, from 1 KiB to 256 MiB */
+    @Param({"1024", "1048576", "16777216", "268435456"})
+    public int size;
+
+    /** Implementation of the byte-wise loops */
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    private byte key;
+    private byte[] plainText;
+    private byte[] cipherText;
+    private byte[] pad;
+    private CipherKernel cipherKernel;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        key = 42;
+        plainText = Inputs.text(size);
+        cipherText = Encrypt.cbc(plainText, Inputs.bytes(16));
+        pad = Inputs.bytes(size);
+        cipherKernel = CipherKernel.of(kernel);
+    }
+
+    // ============================================================================================
+    // ======================================== ENCRYPT ===========================================
+    // ============================================================================================
+
+    @Benchmark
+    public byte[] encryptCaesarKernel() {
+        return Encrypt.caesar(plainText, key, cipherKernel);
+    }
+
+    @Benchmark
+    public byte[] encryptXorKernel() {
+        return Encrypt.xor(plainText, key, cipherKernel);
+    }
+
+    @Benchmark
+    public byte[] encryptOneTimePadKernel() {
+        return Encrypt.oneTimePad(plainText, pad, cipherKernel);
+    }
+
+    // ============================================================================================
+    // ======================================== DECRYPT ===========================================
+    // ============================================================================================
+
+    @Benchmark
+    public byte[] decryptCaesarKernel() {
+        return Decrypt.caesar(cipherText, key, cipherKernel);
+    }
+
+    @Benchmark
+    public byte[] decryptXorKernel() {
+        return Decrypt.xor(cipherText, key, cipherKernel);
+    }
+
+    @Benchmark
+    public byte[] decryptOneTimePadKernel() {
+        return Decrypt.oneTimePad(cipherText, pad, cipherKernel);
+    }
+}
@@ -0,0 +1,201 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.utils.Image;
+import ch.epfl.cs107.utils.ParallelImage;
+import ch.epfl.cs107.utils.Raster;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of all the public methods of {@link Image}, and of their parallel versions in
+ * {@link ParallelImage}. The pixel methods are measured over a whole row of the image.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class ImageBenchmark {
+
+    /** Width and height of the image */
+    @Param({"256", "1024", "4096", "8192"})
+    public int size;
+
+    /** Threshold of the binary conversions */
+    public static final int THRESHOLD = 128;
+
+    private int[][] image;
+    private int[][] grayImage;
+    private boolean[][] binaryImage;
+    private Raster raster;
+    private Raster grayRaster;
+    private Raster binaryRaster;
+    private int[] row;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        image = Inputs.image(size);
+        grayImage = Inputs.grayImage(size);
+        binaryImage = Inputs.binaryImage(size);
+        raster = Raster.of(image);
+        grayRaster = Raster.of(grayImage);
+        binaryRaster = Raster.of(binaryImage);
+        row = image[0];
+    }
+
+    // ============================================================================================
+    // =================================== PIXEL MANIPULATION =====================================
+    // ============================================================================================
+
+    @Benchmark
+    public void argb(Blackhole blackhole) {
+        for (int pixel : row) {
+            blackhole.consume(Image.argb((byte) (pixel >> 24), (byte) (pixel >> 16), (byte) (pixel >> 8), (byte) pixel));
+        }
+    }
+
+    @Benchmark
+    public void components(Blackhole blackhole) {
+        for (int pixel : row) {
+            blackhole.consume(Image.alpha(pixel));
+            blackhole.consume(Image.red(pixel));
+            blackhole.consume(Image.green(pixel));
+            blackhole.consume(Image.blue(pixel));
+        }
+    }
+
+    @Benchmark
+    public void argbComponent(Blackhole blackhole) {
+        for (int pixel : row) {
+            blackhole.consume(Image.argbComponent(pixel, 'g'));
+        }
+    }
+
+    @Benchmark
+    public void gray(Blackhole blackhole) {
+        for (int pixel : row) {
+            blackhole.consume(Image.gray(pixel));
+        }
+    }
+
+    @Benchmark
+    public void binary(Blackhole blackhole) {
+        for (int gray : grayImage[0]) {
+            blackhole.consume(Image.binary(gray, THRESHOLD));
+        }
+    }
+
+    // ============================================================================================
+    // =================================== IMAGE MANIPULATION =====================================
+    // ============================================================================================
+
+    @Benchmark
+    public int[][] toGray() {
+        return Image.toGray(image);
+    }
+
+    @Benchmark
+    public boolean[][] toBinary() {
+        return Image.toBinary(grayImage, THRESHOLD);
+    }
+
+    @Benchmark
+    public boolean[][] argbToBinary() {
+        return Image.argbToBinary(image, THRESHOLD);
+    }
+
+    @Benchmark
+    public int[][] fromGray() {
+        return Image.fromGray(grayImage);
+    }
+
+    @Benchmark
+    public int[][] fromBinary() {
+        return Image.fromBinary(binaryImage);
+    }
+
+    // ============================================================================================
+    // =================================== RASTER MANIPULATION ====================================
+    // ============================================================================================
+
+    @Benchmark
+    public Raster toGrayRaster() {
+        return Image.toGray(raster);
+    }
+
+    @Benchmark
+    public Raster toBinaryRaster() {
+        return Image.toBinary(grayRaster, THRESHOLD);
+    }
+
+    @Benchmark
+    public Raster argbToBinaryRaster() {
+        return Image.argbToBinary(raster, THRESHOLD);
+    }
+
+    @Benchmark
+    public Raster fromGrayRaster() {
+        return Image.fromGray(grayRaster);
+    }
+
+    @Benchmark
+    public Raster fromBinaryRaster() {
+        return Image.fromBinary(binaryRaster);
+    }
+
+    // ============================================================================================
+    // ================================== PARALLEL MANIPULATION ===================================
+    // ============================================================================================
+
+    @Benchmark
+    public int[][] parallelToGray() {
+        return ParallelImage.DEFAULT.toGray(image);
+    }
+
+    @Benchmark
+    public boolean[][] parallelToBinary() {
+        return ParallelImage.DEFAULT.toBinary(grayImage, THRESHOLD);
+    }
+
+    @Benchmark
+    public boolean[][] parallelArgbToBinary() {
+        return ParallelImage.DEFAULT.argbToBinary(image, THRESHOLD);
+    }
+
+    @Benchmark
+    public int[][] parallelFromGray() {
+        return ParallelImage.DEFAULT.fromGray(grayImage);
+    }
+
+    @Benchmark
+    public int[][] parallelFromBinary() {
+        return ParallelImage.DEFAULT.fromBinary(binaryImage);
+    }
+
+    @Benchmark
+    public Raster parallelToGrayRaster() {
+        return ParallelImage.DEFAULT.toGray(raster);
+    }
+
+    @Benchmark
+    public Raster parallelArgbToBinaryRaster() {
+        return ParallelImage.DEFAULT.argbToBinary(raster, THRESHOLD);
+    }
+}
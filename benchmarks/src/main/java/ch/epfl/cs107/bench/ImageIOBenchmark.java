@@ -0,0 +1,100 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.Helper;
+import ch.epfl.cs107.utils.Raster;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pixel transfer between Java images and the ARGB representation : bulk access used by
+ * {@link Helper#readImage(String)} and {@link Helper#writeImage(String, int[][])} against the former
+ * pixel-per-pixel <code>getRGB</code>/<code>setRGB</code> loops.
+ * <p>
+ * The images are the assets of the resource folder, the benchmarks must be run from the project root.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ImageIOBenchmark {
+
+    /** Image of the resource folder */
+    @Param({"image-formats/argb.png", "image-formats/gray.png", "image-formats/binary100.png",
+            "the-starry-night/cover.png", "the-starry-night/image.png"})
+    public String image;
+
+    private BufferedImage decoded;
+    private int[][] pixels;
+    private Raster raster;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        decoded = ImageIO.read(Path.of("src", "main", "resources", image).toFile());
+        raster = Helper.fromBufferedImage(decoded);
+        pixels = raster.toArray();
+    }
+
+    // ============================================================================================
+    // ======================================== DECODING ==========================================
+    // ============================================================================================
+
+    @Benchmark
+    public int[][] readPerPixel() {
+        final var width  = decoded.getWidth();
+        final var height = decoded.getHeight();
+        final var result = new int[height][width];
+        for (var x = 0; x < height; ++x)
+            for (var y = 0; y < width; ++y)
+                result[x][y] = decoded.getRGB(y, x);
+        return result;
+    }
+
+    @Benchmark
+    public Raster readBulk() {
+        return Helper.fromBufferedImage(decoded);
+    }
+
+    @Benchmark
+    public int[][] readImage() {
+        return Helper.readImage(image);
+    }
+
+    // ============================================================================================
+    // ======================================== ENCODING ==========================================
+    // ============================================================================================
+
+    @Benchmark
+    public BufferedImage writePerPixel() {
+        final var buffer = new BufferedImage(pixels[0].length, pixels.length, BufferedImage.TYPE_4BYTE_ABGR);
+        for (var x = 0; x < buffer.getHeight(); ++x)
+            for (var y = 0; y < buffer.getWidth(); ++y)
+                buffer.setRGB(y, x, pixels[x][y]);
+        return buffer;
+    }
+
+    @Benchmark
+    public BufferedImage writeBulk() {
+        return Helper.toBufferedImage(raster);
+    }
+}
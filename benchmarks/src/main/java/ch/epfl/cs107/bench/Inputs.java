@@ -0,0 +1,85 @@
+package ch.epfl.cs107.bench;
+
+import java.util.Random;
+
+/**
+ * Deterministic random inputs shared by the benchmarks
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class Inputs {
+
+    /** Seed of all the generated inputs, so every run measures the same data */
+    private static final long SEED = 107;
+
+    private Inputs(){}
+
+    /**
+     * @param length number of bytes
+     * @return random bytes
+     */
+    static byte[] bytes(int length) {
+        byte[] result = new byte[length];
+        new Random(SEED + length).nextBytes(result);
+        return result;
+    }
+
+    /**
+     * @param length number of bytes
+     * @return random printable ASCII bytes (valid UTF-8)
+     */
+    static byte[] text(int length) {
+        Random random = new Random(SEED + length);
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) (' ' + random.nextInt('~' - ' ' + 1));
+        }
+        return result;
+    }
+
+    /**
+     * @param size width and height of the image
+     * @return random opaque ARGB image
+     */
+    static int[][] image(int size) {
+        Random random = new Random(SEED + size);
+        int[][] result = new int[size][size];
+        for (int[] row : result) {
+            for (int j = 0; j < size; j++) {
+                row[j] = 0xFF000000 | random.nextInt(1 << 24);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param size width and height of the image
+     * @return random gray scale image
+     */
+    static int[][] grayImage(int size) {
+        Random random = new Random(SEED + size);
+        int[][] result = new int[size][size];
+        for (int[] row : result) {
+            for (int j = 0; j < size; j++) {
+                row[j] = random.nextInt(256);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param size width and height of the image
+     * @return random binary image
+     */
+    static boolean[][] binaryImage(int size) {
+        Random random = new Random(SEED + size);
+        boolean[][] result = new boolean[size][size];
+        for (boolean[] row : result) {
+            for (int j = 0; j < size; j++) {
+                row[j] = random.nextBoolean();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,100 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.crypto.CipherPipeline;
+import ch.epfl.cs107.crypto.Decrypt;
+import ch.epfl.cs107.crypto.Encrypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of a {@link CipherPipeline} (caesar, vigenere, xor then cbc) against the same chain of
+ * calls to {@link Encrypt} and {@link Decrypt}
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class PipelineBenchmark {
+
+    /** Size of the message, from 1 KiB to 256 MiB */
+    @Param({"1024", "1048576", "16777216", "268435456"})
+    public int size;
+
+    private byte key;
+    private byte[] keyword;
+    private byte[] iv;
+    private byte[] plainText;
+    private byte[] cipherText;
+    private byte[] output;
+    private CipherPipeline encryption;
+    private CipherPipeline decryption;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        key = 42;
+        keyword = Inputs.bytes(13);
+        iv = Inputs.bytes(16);
+        plainText = Inputs.text(size);
+        output = new byte[size];
+        encryption = CipherPipeline.builder().caesar(key).vigenere(keyword).xor(key).cbc(iv).build();
+        decryption = encryption.inverse();
+        cipherText = encryption.apply(plainText);
+    }
+
+    // ============================================================================================
+    // ======================================== ENCRYPT ===========================================
+    // ============================================================================================
+
+    @Benchmark
+    public byte[] encryptSequential() {
+        return Encrypt.cbc(Encrypt.xor(Encrypt.vigenere(Encrypt.caesar(plainText, key), keyword), key), iv);
+    }
+
+    @Benchmark
+    public byte[] encryptPipeline() {
+        return encryption.apply(plainText);
+    }
+
+    @Benchmark
+    public byte[] encryptPipelineInto() {
+        encryption.apply(plainText, 0, output, 0, size);
+        return output;
+    }
+
+    // ============================================================================================
+    // ======================================== DECRYPT ===========================================
+    // ============================================================================================
+
+    @Benchmark
+    public byte[] decryptSequential() {
+        return Decrypt.caesar(Decrypt.vigenere(Decrypt.xor(Decrypt.cbc(cipherText, iv), key), keyword), key);
+    }
+
+    @Benchmark
+    public byte[] decryptPipeline() {
+        return decryption.apply(cipherText);
+    }
+
+    @Benchmark
+    public byte[] decryptPipelineInto() {
+        decryption.apply(cipherText, 0, output, 0, size);
+        return output;
+    }
+}
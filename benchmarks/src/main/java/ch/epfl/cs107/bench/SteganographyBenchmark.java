@@ -0,0 +1,172 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.stegano.ImageSteganography;
+import ch.epfl.cs107.stegano.TextSteganography;
+import ch.epfl.cs107.utils.BitVector;
+import ch.epfl.cs107.utils.Raster;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of all the public methods of {@link ImageSteganography} and {@link TextSteganography}
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class SteganographyBenchmark {
+
+    /** Width and height of the cover */
+    @Param({"256", "1024", "4096", "8192"})
+    public int size;
+
+    /** Size of the text message, truncated to the capacity of the cover (one bit per pixel) */
+    @Param({"1024", "65536", "1048576"})
+    public int payload;
+
+    /** Threshold of the binary conversions */
+    public static final int THRESHOLD = 128;
+
+    private int[][] cover;
+    private int[][] hidden;
+    private int[][] grayHidden;
+    private boolean[][] binaryHidden;
+    private Raster coverRaster;
+    private Raster hiddenRaster;
+    private int[][] scratch;
+    private Raster binaryRaster;
+    private byte[] message;
+    private boolean[] messageBits;
+    private BitVector messageVector;
+    private int[][] embedded;
+    private Raster embeddedRaster;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        cover = Inputs.image(size);
+        hidden = Inputs.image(size);
+        grayHidden = Inputs.grayImage(size);
+        binaryHidden = Inputs.binaryImage(size);
+        coverRaster = Raster.of(cover);
+        hiddenRaster = Raster.of(hidden);
+        scratch = Inputs.image(size);
+        binaryRaster = Raster.of(binaryHidden);
+        message = Inputs.text(Math.min(payload, size * size / Byte.SIZE));
+        messageVector = BitVector.fromBytes(message);
+        messageBits = messageVector.toBooleans();
+        embedded = TextSteganography.embedText(cover, message);
+        embeddedRaster = Raster.of(embedded);
+    }
+
+    // ============================================================================================
+    // ================================== IMAGE STEGANOGRAPHY =====================================
+    // ============================================================================================
+
+    @Benchmark
+    public int[][] embedARGB() {
+        return ImageSteganography.embedARGB(cover, hidden, THRESHOLD);
+    }
+
+    @Benchmark
+    public Raster embedARGBRaster() {
+        return ImageSteganography.embedARGB(coverRaster, hiddenRaster, THRESHOLD);
+    }
+
+    @Benchmark
+    public int[][] embedARGBInPlace() {
+        // Only the least significant bits change, so the scratch cover stays representative
+        ImageSteganography.embedARGBInPlace(scratch, hidden, THRESHOLD);
+        return scratch;
+    }
+
+    @Benchmark
+    public int[][] embedGray() {
+        return ImageSteganography.embedGray(cover, grayHidden, THRESHOLD);
+    }
+
+    @Benchmark
+    public int[][] embedBW() {
+        return ImageSteganography.embedBW(cover, binaryHidden);
+    }
+
+    @Benchmark
+    public Raster embedBWRaster() {
+        return ImageSteganography.embedBW(coverRaster, binaryRaster);
+    }
+
+    @Benchmark
+    public boolean[][] revealBW() {
+        return ImageSteganography.revealBW(embedded);
+    }
+
+    @Benchmark
+    public Raster revealBWRaster() {
+        return ImageSteganography.revealBW(embeddedRaster);
+    }
+
+    // ============================================================================================
+    // =================================== TEXT STEGANOGRAPHY =====================================
+    // ============================================================================================
+
+    @Benchmark
+    public int[][] embedBitArray() {
+        return TextSteganography.embedBitArray(cover, messageBits);
+    }
+
+    @Benchmark
+    public Raster embedBitArrayRaster() {
+        return TextSteganography.embedBitArray(coverRaster, messageBits);
+    }
+
+    @Benchmark
+    public boolean[] revealBitArray() {
+        return TextSteganography.revealBitArray(embedded);
+    }
+
+    @Benchmark
+    public Raster embedBitVector() {
+        return TextSteganography.embedBitVector(coverRaster, messageVector);
+    }
+
+    @Benchmark
+    public BitVector revealBitVector() {
+        return TextSteganography.revealBitVector(embeddedRaster);
+    }
+
+    @Benchmark
+    public int[][] embedText() {
+        return TextSteganography.embedText(cover, message);
+    }
+
+    @Benchmark
+    public Raster embedTextRaster() {
+        return TextSteganography.embedText(coverRaster, message);
+    }
+
+    @Benchmark
+    public byte[] revealText() {
+        return TextSteganography.revealText(embedded);
+    }
+
+    @Benchmark
+    public byte[] revealTextRaster() {
+        return TextSteganography.revealText(embeddedRaster);
+    }
+}
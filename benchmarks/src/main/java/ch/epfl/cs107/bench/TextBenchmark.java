@@ -0,0 +1,69 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.utils.BitVector;
+import ch.epfl.cs107.utils.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of all the public methods of {@link Text}, except the <code>boolean[]</code> ones
+ * measured by {@link TextBitArrayBenchmark}
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class TextBenchmark {
+
+    /** Size of the message, from 1 KiB to 256 MiB */
+    @Param({"1024", "1048576", "16777216", "268435456"})
+    public int size;
+
+    private byte[] bytes;
+    private String string;
+    private BitVector bitVector;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bytes = Inputs.text(size);
+        string = Text.toString(bytes);
+        bitVector = Text.toBitVector(string);
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return Text.toBytes(string);
+    }
+
+    @Benchmark
+    public String toStringFromBytes() {
+        return Text.toString(bytes);
+    }
+
+    @Benchmark
+    public BitVector toBitVector() {
+        return Text.toBitVector(string);
+    }
+
+    @Benchmark
+    public String toStringFromBitVector() {
+        return Text.toString(bitVector);
+    }
+}
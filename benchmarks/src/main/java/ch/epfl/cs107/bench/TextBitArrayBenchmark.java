@@ -0,0 +1,58 @@
+package ch.epfl.cs107.bench;
+
+import ch.epfl.cs107.utils.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the <code>boolean[]</code> methods of {@link Text}
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g", "--add-modules", "jdk.incubator.vector"})
+public class TextBitArrayBenchmark {
+
+    /**
+     * Size of the message, from 1 KiB to 16 MiB.
+     * The boolean[] representation of 256 MiB does not fit in an array.
+     */
+    @Param({"1024", "1048576", "16777216"})
+    public int size;
+
+    private String string;
+    private boolean[] bitArray;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        string = Text.toString(Inputs.text(size));
+        bitArray = Text.toBitArray(string);
+    }
+
+    @Benchmark
+    public boolean[] toBitArray() {
+        return Text.toBitArray(string);
+    }
+
+    @Benchmark
+    public String toStringFromBitArray() {
+        return Text.toString(bitArray);
+    }
+}
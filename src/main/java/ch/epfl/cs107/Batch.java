@@ -0,0 +1,221 @@
+package ch.epfl.cs107;
+
+import ch.epfl.cs107.stegano.ImageSteganography;
+import ch.epfl.cs107.stegano.TextSteganography;
+import ch.epfl.cs107.utils.Image;
+import ch.epfl.cs107.utils.Raster;
+import ch.epfl.cs107.utils.Text;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Headless batch driver : embeds the same payload (a text or a binary image) into every image of a
+ * directory, and writes the results as <b>PNG</b> images in another directory.
+ * <p>
+ * Usage :
+ * <pre>
+ * java ch.epfl.cs107.Batch --input DIR --output DIR
+ *      (--text MESSAGE | --text-file FILE | --image FILE [--threshold N])
+ *      [--threads N] [--in-flight N]
+ * </pre>
+ * Each image is decoded, embedded and encoded by a worker of a fixed thread pool. At most
+ * <code>in-flight</code> images are submitted at the same time : the directory listing waits for a
+ * worker to be done before submitting more, so the memory stays bounded whatever the number of images.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class Batch {
+
+    /** Extensions of the images read from the input directory */
+    private static final List<String> EXTENSIONS = List.of(".png", ".jpg", ".jpeg", ".bmp", ".gif");
+
+    private Batch(){}
+
+    /**
+     * Entry point of the batch driver
+     * @param args (String[]) - command line arguments, see the class documentation
+     */
+    public static void main(String[] args) {
+        Path input = null;
+        Path output = null;
+        byte[] text = null;
+        Path image = null;
+        int threshold = Main.IMAGE_THRESHOLD;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int inFlight = -1;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--input" -> input = Path.of(args[++i]);
+                    case "--output" -> output = Path.of(args[++i]);
+                    case "--text" -> text = Text.toBytes(args[++i]);
+                    case "--text-file" -> text = Files.readAllBytes(Path.of(args[++i]));
+                    case "--image" -> image = Path.of(args[++i]);
+                    case "--threshold" -> threshold = Integer.parseInt(args[++i]);
+                    case "--threads" -> threads = Integer.parseInt(args[++i]);
+                    case "--in-flight" -> inFlight = Integer.parseInt(args[++i]);
+                    default -> usage("Unknown option : " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            usage("Invalid arguments");
+        } catch (IOException e) {
+            usage("Cannot read the text file");
+        }
+        if (input == null || output == null || (text == null) == (image == null) || threads <= 0)
+            usage("Expected an input, an output and exactly one payload");
+        if (inFlight <= 0)
+            inFlight = 2 * threads;
+
+        final UnaryOperator<Raster> embedding = text != null ? textEmbedding(text) : imageEmbedding(image, threshold);
+        System.exit(run(input, output, embedding, threads, inFlight) == 0 ? 0 : 1);
+    }
+
+    /**
+     * Embed a payload in all the images of a directory
+     * @param input directory containing the covers (read recursively)
+     * @param output directory receiving the results, following the structure of <code>input</code>.
+     *               It can be inside <code>input</code>, its content is then not processed
+     * @param embedding operation embedding the payload in a cover
+     * @param threads number of workers
+     * @param inFlight maximal number of images being processed or waiting for a worker
+     * @return number of images that could not be processed
+     */
+    public static int run(Path input, Path output, UnaryOperator<Raster> embedding, int threads, int inFlight) {
+        assert input != null && output != null && embedding != null && threads > 0 && inFlight > 0;
+        final var source = input.toAbsolutePath().normalize();
+        final var target = output.toAbsolutePath().normalize();
+        if (source.equals(target)) {
+            System.err.printf("The output directory '%s' must differ from the input directory%n", output);
+            return 1;
+        }
+        final var permits = new Semaphore(inFlight);
+        final var done = new AtomicInteger();
+        final var failed = new AtomicInteger();
+        final ExecutorService workers = Executors.newFixedThreadPool(threads);
+        final var start = System.nanoTime();
+
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                    // An output directory inside the input tree holds results, not covers
+                    return directory.equals(target) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (!attributes.isRegularFile() || !isImage(file))
+                        return FileVisitResult.CONTINUE;
+                    // Back pressure : wait for a slot before decoding one more image
+                    permits.acquireUninterruptibly();
+                    workers.execute(() -> {
+                        try {
+                            final var result = target.resolve(pngName(source.relativize(file)));
+                            Files.createDirectories(result.getParent());
+                            final var cover = Helper.readRaster(file.toString());
+                            Helper.writeImage(result.toString(), embedding.apply(cover));
+                            done.incrementAndGet();
+                        } catch (Throwable e) {
+                            // Including the assertion errors of the embedding (e.g. a payload too large for the cover)
+                            failed.incrementAndGet();
+                            System.err.printf("Cannot process '%s' : %s%n", file, e);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    failed.incrementAndGet();
+                    System.err.printf("Cannot list '%s' : %s%n", file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.printf("Cannot list '%s' : %s%n", input, e);
+            failed.incrementAndGet();
+        } finally {
+            workers.shutdown();
+            try {
+                workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        final var seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "%d images in %.2f s (%.1f images/s), %d failed%n",
+                done.get(), seconds, done.get() / seconds, failed.get());
+        return failed.get();
+    }
+
+    // ============================================================================================
+    // ======================================== PAYLOADS ==========================================
+    // ============================================================================================
+
+    /**
+     * @param message text to embed
+     * @return operation embedding the text in a cover
+     */
+    public static UnaryOperator<Raster> textEmbedding(byte[] message) {
+        assert message != null;
+        return cover -> TextSteganography.embedText(cover, message);
+    }
+
+    /**
+     * The hidden image is decoded and converted once, then cropped to the size of each cover
+     * @param path path of the image to hide
+     * @param threshold threshold to use for binary conversion
+     * @return operation embedding the image in a cover
+     */
+    public static UnaryOperator<Raster> imageEmbedding(Path path, int threshold) {
+        assert path != null;
+        final var load = Image.toBinary(Image.toGray(Helper.readRaster(path.toAbsolutePath().toString())), threshold);
+        return cover -> ImageSteganography.embedBW(cover, load.region(0, 0,
+                Math.min(load.height(), cover.height()), Math.min(load.width(), cover.width())));
+    }
+
+    // ============================================================================================
+    // ========================================= HELPERS ==========================================
+    // ============================================================================================
+
+    private static boolean isImage(Path file) {
+        final var name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return EXTENSIONS.stream().anyMatch(name::endsWith);
+    }
+
+    /**
+     * PNG images keep their name, the other ones keep their extension before <code>.png</code>, so
+     * that <code>a.jpg</code> and <code>a.png</code> do not overwrite each other
+     */
+    private static Path pngName(Path relative) {
+        final var name = relative.getFileName().toString();
+        return name.toLowerCase(Locale.ROOT).endsWith(".png") ? relative : relative.resolveSibling(name + ".png");
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage : java ch.epfl.cs107.Batch --input DIR --output DIR");
+        System.err.println("            (--text MESSAGE | --text-file FILE | --image FILE [--threshold N])");
+        System.err.println("            [--threads N] [--in-flight N]");
+        System.exit(2);
+    }
+}
@@ -6,6 +6,10 @@ import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -14,6 +18,8 @@ import java.util.Random;
 import static java.util.Objects.nonNull;
 import static javax.swing.JOptionPane.INFORMATION_MESSAGE;
 import static javax.swing.JOptionPane.showMessageDialog;
+import ch.epfl.cs107.utils.PngWriter;
+import ch.epfl.cs107.utils.Raster;
 import ch.epfl.cs107.utils.Text;
 
 /**
@@ -115,15 +121,25 @@ public final class Helper {
      * @apiNote The provided path will be considered relative to the resource folder if not absolute
      */
     public static int[][] readImage(String path) {
+        assert nonNull(path);
+        return readRaster(path).toArray();
+    }
+
+    /**
+     * Read an image from the disk, as a {@link Raster}, whose rows are clean (see {@link #updateImage}).
+     * The image can be one of the standard formats (png, jpeg ...)
+     * @param path Path to the desired file
+     * @return ARGB image representation
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static Raster readRaster(String path) {
         assert nonNull(path);
         try {
             final var io = ImageIO.read(res_folder.resolve(path).toFile());
-            final var width  = io.getWidth();
-            final var height = io.getHeight();
-            final var image = new int[height][width];
-            for(var x = 0; x < height;++x)
-                for(var y = 0; y < width; ++y)
-                    image[x][y] = io.getRGB(y, x);
+            if (io == null)
+                return fail("Unsupported image format : '%s'", path);
+            final var image = fromBufferedImage(io);
+            image.clearDirty();
             return image;
         } catch (IOException e) {
             return fail("An error occurred while trying to read from : '%s'", path);
@@ -137,21 +153,128 @@ public final class Helper {
      * @apiNote The provided path will be considered relative to the resource folder if not absolute
      */
     public static void writeImage(String path, int[][] image) {
+        assert nonNull(path);
+        assert nonNull(image);
+        writeImage(path, Raster.of(image));
+    }
+
+    /**
+     * Write a <b>PNG</b> image to the disk.
+     * @param path Path to the desired file
+     * @param image Image in <b>ARGB</b> format to store
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static void writeImage(String path, Raster image) {
         assert nonNull(path);
         assert nonNull(image);
         try {
-            final var buffer = new BufferedImage(image[0].length, image.length, BufferedImage.TYPE_4BYTE_ABGR);
-            for(var x = 0; x < buffer.getHeight(); ++x){
-                for(var y = 0 ; y < buffer.getWidth(); ++y){
-                    buffer.setRGB(y, x, image[x][y]);
-                }
-            }
-            ImageIO.write(buffer, "png", res_folder.resolve(path).toFile());
+            ImageIO.write(toBufferedImage(image), "png", res_folder.resolve(path).toFile());
         } catch (IOException e) {
             fail("An error occurred while trying to write to : '%s'", path);
         }
     }
 
+    /**
+     * Write a <b>PNG</b> image read from the disk back to the same file. Only the rows marked as dirty
+     * (see {@link Raster#isDirty(int, int)}) are encoded again, as long as the file was written by
+     * {@link PngWriter}; any other file is encoded from scratch.
+     * @param path Path to the desired file
+     * @param image Image in <b>ARGB</b> format to store
+     * @apiNote The provided path will be considered relative to the resource folder if not absolute
+     */
+    public static void updateImage(String path, Raster image) {
+        assert nonNull(path);
+        assert nonNull(image);
+        try {
+            PngWriter.update(res_folder.resolve(path), image);
+        } catch (IOException e) {
+            fail("An error occurred while trying to write to : '%s'", path);
+        }
+    }
+
+    /**
+     * Convert a Java image to its ARGB representation.
+     * <p>
+     * The pixels of the common layouts (<code>TYPE_INT_ARGB</code>, <code>TYPE_4BYTE_ABGR</code> and
+     * <code>TYPE_3BYTE_BGR</code>) are read straight from the data buffer. Any other layout goes through
+     * the colour model, one scanline at a time.
+     * @param io Java image
+     * @return ARGB image representation
+     */
+    public static Raster fromBufferedImage(BufferedImage io) {
+        assert nonNull(io);
+        final var width  = io.getWidth();
+        final var height = io.getHeight();
+        final var image = new Raster(width, height);
+        final var pixels = image.array();
+        final var raster = io.getRaster();
+        final var model = raster.getSampleModel();
+        final var dx = -raster.getSampleModelTranslateX();
+        final var dy = -raster.getSampleModelTranslateY();
+        switch (io.getType()) {
+            case BufferedImage.TYPE_INT_ARGB -> {
+                final var buffer = (DataBufferInt) raster.getDataBuffer();
+                final var stride = ((SinglePixelPackedSampleModel) model).getScanlineStride();
+                final var offset = buffer.getOffset() + ((SinglePixelPackedSampleModel) model).getOffset(dx, dy);
+                for (var y = 0; y < height; ++y)
+                    System.arraycopy(buffer.getData(), offset + y * stride, pixels, y * width, width);
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_3BYTE_BGR -> {
+                final var buffer = (DataBufferByte) raster.getDataBuffer();
+                final var data = buffer.getData();
+                final var interleaved = (ComponentSampleModel) model;
+                final var stride = interleaved.getScanlineStride();
+                final var step = interleaved.getPixelStride();
+                final var bands = interleaved.getBandOffsets();
+                final var offset = buffer.getOffset() + dy * stride + dx * step;
+                final var alpha = bands.length == 4;
+                // Bands are ordered as in the colour model : R, G, B (and A)
+                for (var y = 0; y < height; ++y) {
+                    var index = offset + y * stride;
+                    for (var x = 0; x < width; ++x, index += step) {
+                        pixels[y * width + x] = (alpha ? (data[index + bands[3]] & 0xFF) << 24 : 0xFF000000)
+                                | (data[index + bands[0]] & 0xFF) << 16
+                                | (data[index + bands[1]] & 0xFF) << 8
+                                | (data[index + bands[2]] & 0xFF);
+                    }
+                }
+            }
+            default -> {
+                for (var y = 0; y < height; ++y)
+                    io.getRGB(0, y, width, 1, pixels, y * width, width);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Convert an ARGB image to a Java image of type <code>TYPE_4BYTE_ABGR</code>,
+     * the pixels are written straight into the data buffer
+     * @param image ARGB image representation
+     * @return Java image
+     */
+    public static BufferedImage toBufferedImage(Raster image) {
+        assert nonNull(image);
+        final var width  = image.width();
+        final var height = image.height();
+        final var buffer = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+        // A freshly created image is packed : A, B, G, R for each pixel, rows after rows
+        final var data = ((DataBufferByte) buffer.getRaster().getDataBuffer()).getData();
+        final var row = new int[width];
+        var index = 0;
+        for (var y = 0; y < height; ++y) {
+            image.copyRow(y, row, 0);
+            for (var x = 0; x < width; ++x) {
+                final var pixel = row[x];
+                data[index++] = (byte) (pixel >>> 24);
+                data[index++] = (byte) pixel;
+                data[index++] = (byte) (pixel >>> 8);
+                data[index++] = (byte) (pixel >>> 16);
+            }
+        }
+        return buffer;
+    }
+
     // ============================================================================================
     // =================================== GRAPHIC WINDOWS ========================================
     // ============================================================================================
@@ -163,12 +286,7 @@ public final class Helper {
      */
     public static void show(int[][] image, String title) {
         // Build the Java representation of the image
-        final var width = image[0].length;
-        final var height = image.length;
-        final var jimage = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
-        for (var row = 0; row < height; ++row)
-            for (var col = 0; col < width; ++col)
-                jimage.setRGB(col, row, image[row][col]);
+        final var jimage = toBufferedImage(Raster.of(image));
 
         // Instantiate a swing panel
         final var panel = new JPanel() {
@@ -1,15 +1,50 @@
 package ch.epfl.cs107;
 
+import ch.epfl.cs107.crypto.ChunkedContainer;
+import ch.epfl.cs107.crypto.CipherKernel;
+import ch.epfl.cs107.crypto.CipherPipeline;
+import ch.epfl.cs107.crypto.CompiledCipher;
 import ch.epfl.cs107.crypto.Decrypt;
 import ch.epfl.cs107.crypto.Encrypt;
+import ch.epfl.cs107.crypto.KeySearch;
+import ch.epfl.cs107.crypto.Keystream;
+import ch.epfl.cs107.crypto.ParallelCipher;
+import ch.epfl.cs107.stegano.EmbeddingLayout;
 import ch.epfl.cs107.stegano.ImageSteganography;
 import ch.epfl.cs107.stegano.TextSteganography;
 import ch.epfl.cs107.utils.Bit;
+import ch.epfl.cs107.utils.BitVector;
 import ch.epfl.cs107.utils.Image;
+import ch.epfl.cs107.utils.PngReader;
+import ch.epfl.cs107.utils.PngWriter;
+import ch.epfl.cs107.utils.Raster;
+import ch.epfl.cs107.utils.RasterFile;
 import ch.epfl.cs107.utils.Text;
 
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
 
 /**
  * Entry point of the program
@@ -55,6 +90,7 @@ public final class Main {
         //assert testEmbedInXthBit();
         //assert testEmbedInLSB();
         //assert testByteConversion();
+        //assert testBitEquivalence();
         // ========== Test Text ==========
         //assert testToBitArray();
         Helper.dialog("Tests", "Bit and Text manipulation passed");
@@ -70,10 +106,19 @@ public final class Main {
         //assert testWithRealImage("image-formats");
         //assert testBinaryWithRealImage("image-formats");
         Helper.dialog("Tests ", "Image manipulation with images from 'image-formats' passed");
+        // ========== Test PNG ==========
+        //assert testPngReader();
+        //assert testRasterUpdate();
         // ========== Test Cryptography Methods ==========
         String message = "La vie est un long fleuve tranquille :-)";
         String key = "2cF%5";
         //testCrypto(message, key);
+        //assert testCipherKernel();
+        //assert testParallelCipher();
+        //assert testKeySearch();
+        //assert testCipherPipeline();
+        //assert testCompiledCipher();
+        //assert testChunkedContainer();
         //message = Text.toString(Helper.read("text_one.txt"));
         //testCrypto(message, key);
         Helper.dialog("Tests ", "Cryptography passed");
@@ -82,6 +127,8 @@ public final class Main {
         //assert testEmbedText();
         //assert testImageSteganographyWithImages("the-starry-night");
         //assert testRevealBitArray();
+        //assert testFramedText();
+        //assert testEmbeddingLayout();
         Helper.dialog("Tests ", "ImageSteganography passed");
     }
 
@@ -137,6 +184,64 @@ public final class Main {
         return computedByte == value;
     }
 
+    /**
+     * Compare the bit manipulations with their original (arithmetic) implementations, on every
+     * byte and on a sample of the int range (every 65 521st value, plus the extremes)
+     */
+    private static boolean testBitEquivalence() {
+        for (int b = Byte.MIN_VALUE; b <= Byte.MAX_VALUE; ++b) {
+            boolean[] expected = referenceToBitArray((byte) b);
+            if (!Arrays.equals(Bit.toBitArray((byte) b), expected) || Bit.toByte(expected) != referenceToByte(expected))
+                return false;
+        }
+        for (long v = Integer.MIN_VALUE; v <= Integer.MAX_VALUE; v += 65_521) {
+            if (!bitEquivalence((int) v))
+                return false;
+        }
+        return bitEquivalence(Integer.MAX_VALUE) && bitEquivalence(-1) && bitEquivalence(0);
+    }
+
+    private static boolean bitEquivalence(int value) {
+        for (int pos = 0; pos < Integer.SIZE; ++pos) {
+            if (Bit.getXthBit(value, pos) != ((value & (1 << pos)) != 0))
+                return false;
+            for (boolean m : new boolean[]{false, true}) {
+                // The original implementation saturates on the sign bit, which is set or cleared exactly here
+                int expected = pos == Integer.SIZE - 1
+                        ? (m ? value | Integer.MIN_VALUE : value & Integer.MAX_VALUE)
+                        : referenceEmbedInXthBit(value, m, pos);
+                if (Bit.embedInXthBit(value, m, pos) != expected)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static int referenceEmbedInXthBit(int value, boolean m, int pos) {
+        if (((value & (1 << pos)) != 0) != m) {
+            value = m ? (int) (value + Math.pow(2, pos)) : (int) (value - Math.pow(2, pos));
+        }
+        return value;
+    }
+
+    private static boolean[] referenceToBitArray(byte value) {
+        boolean[] result = new boolean[Byte.SIZE];
+        for (int i = 0; i < result.length; i++) {
+            result[Byte.SIZE - 1 - i] = ((value >> i) & 1) == 1;
+        }
+        return result;
+    }
+
+    private static byte referenceToByte(boolean[] bitArray) {
+        byte result = 0;
+        for (int i = 0; i < Byte.SIZE; i++) {
+            if (bitArray[i]) {
+                result |= (byte) (1 << (Byte.SIZE - 1 - i));
+            }
+        }
+        return result;
+    }
+
     // ============================================================================================
     // ======================================== TEXT ==============================================
     // ============================================================================================
@@ -234,6 +339,152 @@ public final class Main {
                 Arrays.deepEquals(Image.fromBinary(Image.toBinary(grayscaled, 220)), Helper.readImage(path + File.separator + "binary220.png"));
     }
 
+    // ============================================================================================
+    // =========================================== PNG ============================================
+    // ============================================================================================
+
+    private static boolean testPngReader() {
+        final int WIDTH = 37, HEIGHT = 23;
+        ColorSpace gray = ColorSpace.getInstance(ColorSpace.CS_GRAY);
+        ColorSpace sRGB = ColorSpace.getInstance(ColorSpace.CS_sRGB);
+        // Every color type, with every bit depth ImageIO can write
+        BufferedImage[] images = {
+                indexedImage(1, true, WIDTH, HEIGHT), indexedImage(2, true, WIDTH, HEIGHT),
+                indexedImage(4, true, WIDTH, HEIGHT), new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY),
+                new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_USHORT_GRAY),
+                new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR),
+                componentImage(sRGB, false, DataBuffer.TYPE_USHORT, WIDTH, HEIGHT),
+                indexedImage(1, false, WIDTH, HEIGHT), indexedImage(2, false, WIDTH, HEIGHT),
+                indexedImage(4, false, WIDTH, HEIGHT), indexedImage(8, false, WIDTH, HEIGHT),
+                componentImage(gray, true, DataBuffer.TYPE_BYTE, WIDTH, HEIGHT),
+                componentImage(gray, true, DataBuffer.TYPE_USHORT, WIDTH, HEIGHT),
+                new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_4BYTE_ABGR),
+                componentImage(sRGB, true, DataBuffer.TYPE_USHORT, WIDTH, HEIGHT)
+        };
+        Random random = new Random(107);
+        try {
+            for (BufferedImage image : images) {
+                WritableRaster samples = image.getRaster();
+                for (int i = 0; i < HEIGHT; i++)
+                    for (int j = 0; j < WIDTH; j++)
+                        for (int band = 0; band < samples.getNumBands(); band++)
+                            samples.setSample(j, i, band, random.nextInt(1 << samples.getSampleModel().getSampleSize(band)));
+                for (boolean interlaced : new boolean[]{false, true}) {
+                    byte[] png = writePng(image, interlaced);
+                    if (!Arrays.deepEquals(readPng(png).toArray(), Helper.fromBufferedImage(ImageIO.read(new ByteArrayInputStream(png))).toArray()))
+                        return false;
+                }
+            }
+            // The images of PngWriter are read back the same way by both decoders
+            Raster raster = new Raster(WIDTH, HEIGHT);
+            for (int i = 0; i < HEIGHT; i++)
+                for (int j = 0; j < WIDTH; j++)
+                    raster.set(i, j, random.nextInt());
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            try (PngWriter writer = new PngWriter(output, WIDTH, HEIGHT)) {
+                writer.write(raster, HEIGHT);
+            }
+            byte[] png = output.toByteArray();
+            return Arrays.deepEquals(readPng(png).toArray(), raster.toArray())
+                    && Arrays.deepEquals(Helper.fromBufferedImage(ImageIO.read(new ByteArrayInputStream(png))).toArray(), raster.toArray());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean testRasterUpdate() {
+        final int WIDTH = 50, HEIGHT = 40;
+        Path png = null;
+        Path raw = null;
+        try {
+            png = Files.createTempFile("update", ".png");
+            raw = Files.createTempFile("update", ".raster");
+            try (PngWriter writer = PngWriter.create(png, WIDTH, HEIGHT)) {
+                writer.write(new Raster(WIDTH, HEIGHT), HEIGHT);
+            }
+            // A new raster filled through its array is entirely written
+            Raster gray = new Raster(WIDTH, HEIGHT);
+            Arrays.fill(gray.array(), 200);
+            Raster argb = Image.fromGray(gray);
+            PngWriter.update(png, argb);
+            boolean updated = Arrays.deepEquals(readPng(Files.readAllBytes(png)).toArray(), argb.toArray());
+            // A clean raster modified without marking its rows is still written
+            Raster read;
+            try (PngReader reader = PngReader.open(png)) {
+                read = new Raster(WIDTH, HEIGHT);
+                reader.read(read, HEIGHT);
+            }
+            read.array()[read.index(HEIGHT - 1, WIDTH - 1)] = 0xFF123456;
+            PngWriter.update(png, read);
+            boolean unmarked = !read.isDirty() && readPng(Files.readAllBytes(png)).get(HEIGHT - 1, WIDTH - 1) == 0xFF123456;
+
+            boolean patched;
+            try (RasterFile file = RasterFile.create(raw, WIDTH, HEIGHT)) {
+                file.patch(argb.copy());
+                patched = Arrays.deepEquals(file.read().toArray(), argb.toArray());
+            }
+            return updated && unmarked && patched;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            try {
+                if (png != null)
+                    Files.deleteIfExists(png);
+                if (raw != null)
+                    Files.deleteIfExists(raw);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static BufferedImage indexedImage(int bits, boolean grayRamp, int width, int height) {
+        int size = 1 << bits;
+        byte[] red = new byte[size], green = new byte[size], blue = new byte[size], alpha = new byte[size];
+        Random random = new Random(bits);
+        for (int i = 0; i < size; i++) {
+            if (grayRamp) {
+                red[i] = green[i] = blue[i] = (byte) (i * 0xFF / (size - 1));
+                alpha[i] = (byte) 0xFF;
+            } else {
+                red[i] = (byte) random.nextInt();
+                green[i] = (byte) random.nextInt();
+                blue[i] = (byte) random.nextInt();
+                alpha[i] = (byte) random.nextInt();
+            }
+        }
+        IndexColorModel model = new IndexColorModel(bits, size, red, green, blue, alpha);
+        int type = bits == Byte.SIZE ? BufferedImage.TYPE_BYTE_INDEXED : BufferedImage.TYPE_BYTE_BINARY;
+        return new BufferedImage(width, height, type, model);
+    }
+
+    private static BufferedImage componentImage(ColorSpace space, boolean alpha, int type, int width, int height) {
+        ComponentColorModel model = new ComponentColorModel(space, alpha, false,
+                alpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE, type);
+        return new BufferedImage(model, model.createCompatibleWritableRaster(width, height), false, null);
+    }
+
+    private static byte[] writePng(BufferedImage image, boolean interlaced) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setProgressiveMode(interlaced ? ImageWriteParam.MODE_DEFAULT : ImageWriteParam.MODE_DISABLED);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private static Raster readPng(byte[] png) throws IOException {
+        try (PngReader reader = new PngReader(new ByteArrayInputStream(png))) {
+            Raster image = new Raster(reader.width(), reader.height());
+            reader.read(image, reader.height());
+            return image;
+        }
+    }
+
     // ============================================================================================
     // ===================================== CRYPTOGRAPHY =========================================
     // ============================================================================================
@@ -301,6 +552,393 @@ public final class Main {
         assert testCBC(byteMessage, byteKey);
     }
 
+    private static boolean testCipherKernel() {
+        Random random = new Random(3);
+        final int[] LENGTHS = {0, 1, 7, 8, 15, 16, 31, 32, 33, 63, 64, 65, 1000, 4099};
+        final int[] OFFSETS = {0, 1, 3, 13};
+        boolean ok = true;
+        for (String name : new String[]{"scalar", "vector"}) {
+            if (name.equals("vector") && !CipherKernel.isVectorAvailable())
+                continue;
+            CipherKernel kernel = CipherKernel.of(name);
+            for (int len : LENGTHS) {
+                for (int srcOff : OFFSETS) {
+                    int dstOff = OFFSETS[(srcOff + len) % OFFSETS.length];
+                    int padOff = OFFSETS[len % OFFSETS.length];
+                    byte[] src = new byte[srcOff + len + 5];
+                    byte[] pad = new byte[padOff + len + 5];
+                    byte[] dst = new byte[dstOff + len + 5];
+                    random.nextBytes(src);
+                    random.nextBytes(pad);
+                    random.nextBytes(dst);
+                    byte key = (byte) random.nextInt();
+
+                    // Plain byte loops, the bytes around the range are left untouched
+                    byte[] caesar = dst.clone();
+                    byte[] xor = dst.clone();
+                    byte[] oneTimePad = dst.clone();
+                    for (int k = 0; k < len; k++) {
+                        caesar[dstOff + k] = (byte) (src[srcOff + k] + key);
+                        xor[dstOff + k] = (byte) (src[srcOff + k] ^ key);
+                        oneTimePad[dstOff + k] = (byte) (src[srcOff + k] ^ pad[padOff + k]);
+                    }
+
+                    byte[] actual = dst.clone();
+                    kernel.caesar(src, srcOff, actual, dstOff, len, key);
+                    ok &= Arrays.equals(actual, caesar);
+                    actual = dst.clone();
+                    kernel.xor(src, srcOff, actual, dstOff, len, key);
+                    ok &= Arrays.equals(actual, xor);
+                    actual = dst.clone();
+                    kernel.oneTimePad(src, srcOff, pad, padOff, actual, dstOff, len);
+                    ok &= Arrays.equals(actual, oneTimePad);
+
+                    // In place
+                    byte[] inPlace = src.clone();
+                    kernel.caesar(inPlace, srcOff, inPlace, srcOff, len, key);
+                    kernel.caesar(inPlace, srcOff, inPlace, srcOff, len, (byte) -key);
+                    kernel.xor(inPlace, srcOff, inPlace, srcOff, len, key);
+                    kernel.oneTimePad(inPlace, srcOff, pad, padOff, inPlace, srcOff, len);
+                    for (int k = 0; k < len; k++)
+                        inPlace[srcOff + k] ^= (byte) (key ^ pad[padOff + k]);
+                    ok &= Arrays.equals(inPlace, src);
+                }
+            }
+        }
+        return ok;
+    }
+
+    private static boolean testParallelCipher() {
+        Random random = new Random(4);
+        ParallelCipher parallel = new ParallelCipher(1024);
+        boolean ok = true;
+        for (int length : new int[]{5, 1023, 1025, 65_537, (3 << 20) + 11}) {
+            byte[] plainText = new byte[length];
+            random.nextBytes(plainText);
+
+            // Keywords whose lengths are coprime to the 64 bytes of the partitions
+            for (int size : new int[]{1, 3, 7, 61, 67}) {
+                byte[] keyword = new byte[size];
+                random.nextBytes(keyword);
+                byte[] cipher = parallel.encryptVigenere(plainText, keyword);
+                ok &= Arrays.equals(cipher, Encrypt.vigenere(plainText, keyword))
+                        && Arrays.equals(parallel.decryptVigenere(cipher, keyword), plainText);
+            }
+
+            for (int size : new int[]{1, 7, 13, 61}) {
+                byte[] iv = new byte[size];
+                random.nextBytes(iv);
+                byte[] blocks = Arrays.copyOf(plainText, length - length % size);
+                if (blocks.length == 0)
+                    continue;
+                byte[] cipher = Encrypt.cbc(blocks, iv);
+                ok &= Arrays.equals(parallel.decryptCbc(cipher, iv), Decrypt.cbc(cipher, iv))
+                        && Arrays.equals(parallel.decryptCbc(cipher, iv), blocks);
+            }
+
+            byte key = (byte) random.nextInt();
+            byte[] cipher = parallel.encryptXor(plainText, key);
+            ok &= Arrays.equals(cipher, Encrypt.xor(plainText, key))
+                    && Arrays.equals(parallel.decryptXor(cipher, key), plainText);
+
+            byte[] pad = new byte[length];
+            random.nextBytes(pad);
+            cipher = parallel.encryptOneTimePad(plainText, pad);
+            ok &= Arrays.equals(cipher, Encrypt.oneTimePad(plainText, pad))
+                    && Arrays.equals(parallel.decryptOneTimePad(cipher, pad), plainText);
+
+            Keystream keystream = new Keystream(random.nextLong());
+            cipher = parallel.encryptOneTimePad(plainText, keystream);
+            ok &= Arrays.equals(cipher, Encrypt.oneTimePad(plainText, keystream))
+                    && Arrays.equals(cipher, Encrypt.oneTimePad(plainText, keystream.pad(length)))
+                    && Arrays.equals(parallel.decryptOneTimePad(cipher, keystream), plainText)
+                    && Arrays.equals(Decrypt.oneTimePad(cipher, keystream), plainText);
+        }
+
+        // The keystream is the sequence of a SplittableRandom, least significant byte first
+        long seed = random.nextLong();
+        Keystream keystream = new Keystream(seed);
+        SplittableRandom reference = new SplittableRandom(seed);
+        byte[] bytes = new byte[8 * 1000];
+        final int FILLED = bytes.length - 8;
+        keystream.fill(5, bytes, 3, FILLED);
+        for (int i = 0; i < 1000; i++) {
+            long word = reference.nextLong();
+            ok &= keystream.word(i) == word;
+            for (int b = 0; b < 8; b++) {
+                int position = 8 * i + b;
+                ok &= keystream.get(position) == (byte) (word >>> (8 * b));
+                if (position >= 5 && position - 5 < FILLED)
+                    ok &= bytes[3 + position - 5] == (byte) (word >>> (8 * b));
+            }
+        }
+        return ok;
+    }
+
+    private static boolean testKeySearch() {
+        final byte[] TEXT = Text.toBytes(String.join(" ",
+                "It was the best of times, it was the worst of times, it was the age of wisdom, it was",
+                "the age of foolishness, it was the epoch of belief, it was the epoch of incredulity, it",
+                "was the season of Light, it was the season of Darkness, it was the spring of hope, it",
+                "was the winter of despair. Call me Ishmael. Some years ago, never mind how long",
+                "precisely, having little or no money in my purse, and nothing particular to interest me",
+                "on shore, I thought I would sail about a little and see the watery part of the world.",
+                "It is a way I have of driving off the spleen and regulating the circulation. Whenever I",
+                "find myself growing grim about the mouth; whenever it is a damp, drizzly November in my",
+                "soul, then I account it high time to get to sea as soon as I can. Happy families are all",
+                "alike; every unhappy family is unhappy in its own way. Everything was in confusion in the",
+                "house. The wife had discovered that the husband was carrying on an intrigue with a French",
+                "girl, who had been a governess in their family, and she had announced to her husband that",
+                "she could not go on living in the same house with him. In a hole in the ground there",
+                "lived a hobbit. Not a nasty, dirty, wet hole, filled with the ends of worms and an oozy",
+                "smell, nor yet a dry, bare, sandy hole with nothing in it to sit down on or to eat: it",
+                "was a hobbit-hole, and that means comfort. The sky above the port was the color of",
+                "television, tuned to a dead channel. Far out in the uncharted backwaters of the",
+                "unfashionable end of the western spiral arm of the Galaxy lies a small unregarded yellow",
+                "sun. Orbiting this at a distance of roughly ninety-two million miles is an utterly",
+                "insignificant little blue green planet whose ape-descended life forms are so amazingly",
+                "primitive that they still think digital watches are a pretty neat idea."));
+        Random random = new Random(21);
+        boolean ok = true;
+        // The default engine scores the whole text, a small sample forces the keys to be scored again
+        for (KeySearch search : new KeySearch[]{KeySearch.DEFAULT, new KeySearch(64)}) {
+            for (int k = 0; k < 8; k++) {
+                byte key = (byte) random.nextInt();
+                ok &= search.caesar(Encrypt.caesar(TEXT, key), 5).get(0).key() == key;
+                ok &= search.xor(Encrypt.xor(TEXT, key), 5).get(0).key() == key;
+            }
+            for (int length : new int[]{1, 2, 5, 7, 11, 13}) {
+                byte[] keyword = new byte[length];
+                random.nextBytes(keyword);
+                byte[] cipher = Encrypt.vigenere(TEXT, keyword);
+                ok &= search.vigenereLength(cipher, 40) == length;
+                ok &= Arrays.equals(Decrypt.vigenere(cipher, search.vigenere(cipher, 40)), TEXT);
+            }
+        }
+        return ok;
+    }
+
+    private static boolean testCipherPipeline() {
+        final int BLOCK = 1 << 13;
+        Random random = new Random(23);
+        byte caesarKey = (byte) random.nextInt();
+        byte xorKey = (byte) random.nextInt();
+        byte[] keyword = Text.toBytes("2cF%5");
+        Keystream keystream = new Keystream(random.nextLong());
+        // IVs shorter than a word, of a word, and longer than a block of the pipeline
+        byte[][] ivs = {new byte[5], new byte[8], new byte[3 * BLOCK + 5]};
+        int[] lengths = {0, 1, 7, 8, BLOCK - 1, BLOCK, BLOCK + 1, 2 * BLOCK, 2 * BLOCK + 3, 4 * BLOCK + 11, 100_000};
+        for (byte[] iv : ivs) {
+            random.nextBytes(iv);
+            CipherPipeline pipeline = CipherPipeline.builder().caesar(caesarKey).vigenere(keyword).xor(xorKey)
+                    .cbc(iv).oneTimePad(keystream).vigenere(keyword).build();
+            CipherPipeline inverse = pipeline.inverse();
+            for (int length : lengths) {
+                byte[] plainText = new byte[length];
+                random.nextBytes(plainText);
+                byte[] expected = Encrypt.xor(Encrypt.vigenere(Encrypt.caesar(plainText, caesarKey), keyword), xorKey);
+                expected = Encrypt.vigenere(Encrypt.oneTimePad(Encrypt.cbc(expected, iv), keystream), keyword);
+                byte[] cipherText = pipeline.apply(plainText);
+
+                // Same bytes in place, in the middle of a larger array
+                byte[] inPlace = new byte[length + 6];
+                System.arraycopy(plainText, 0, inPlace, 3, length);
+                pipeline.apply(inPlace, 3, inPlace, 3, length);
+
+                // The inverse pipeline matches the calls to Decrypt in the reverse order
+                byte[] decoded = Decrypt.oneTimePad(Decrypt.vigenere(cipherText, keyword), keystream);
+                Decrypt.cbc(decoded, 0, decoded, 0, length, iv);
+                decoded = Decrypt.caesar(Decrypt.vigenere(Decrypt.xor(decoded, xorKey), keyword), caesarKey);
+                if (!Arrays.equals(cipherText, expected)
+                        || !Arrays.equals(Arrays.copyOfRange(inPlace, 3, 3 + length), expected)
+                        || !Arrays.equals(decoded, plainText)
+                        || !Arrays.equals(inverse.apply(cipherText), plainText))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean testCompiledCipher() {
+        Random random = new Random(24);
+        int[] lengths = {0, 1, 7, 8, 9, 63, 64, 65, 1000, 4099};
+        // Keys shorter than a word, of a word, and longer than the expanded pattern
+        for (int keyLength : new int[]{1, 3, 7, 8, 9, 64, 65, 1000}) {
+            byte[] key = new byte[keyLength];
+            random.nextBytes(key);
+            CompiledCipher[] ciphers = {CompiledCipher.caesar(key[0]), CompiledCipher.xor(key[0]),
+                    CompiledCipher.vigenere(key), CompiledCipher.cbc(key)};
+            for (CompiledCipher cipher : ciphers) {
+                for (int length : lengths) {
+                    byte[] plainText = new byte[length];
+                    random.nextBytes(plainText);
+                    byte[] expected = new byte[length];
+                    byte[] decoded = new byte[length];
+                    referenceCipher(cipher.name(), key, true, plainText, expected);
+                    referenceCipher(cipher.name(), key, false, expected, decoded);
+
+                    // In place, and overlapping : the source starts 3 bytes after the destination
+                    byte[] buffer = new byte[length + 3];
+                    System.arraycopy(plainText, 0, buffer, 3, length);
+                    cipher.encrypt(buffer, 3, buffer, 3, length);
+                    boolean inPlace = Arrays.equals(Arrays.copyOfRange(buffer, 3, 3 + length), expected);
+                    cipher.decrypt(buffer, 3, buffer, 3, length);
+                    inPlace &= Arrays.equals(Arrays.copyOfRange(buffer, 3, 3 + length), plainText);
+                    System.arraycopy(expected, 0, buffer, 3, length);
+                    cipher.decrypt(buffer, 3, buffer, 0, length);
+                    boolean overlapping = Arrays.equals(Arrays.copyOf(buffer, length), plainText);
+
+                    if (!Arrays.equals(cipher.encrypt(plainText), expected) || !Arrays.equals(decoded, plainText)
+                            || !Arrays.equals(cipher.decrypt(expected), plainText) || !inPlace || !overlapping)
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encode or decode with the static methods of Encrypt and Decrypt matching a compiled cipher
+     */
+    private static void referenceCipher(String name, byte[] key, boolean encrypt, byte[] src, byte[] dst) {
+        int length = src.length;
+        switch (name) {
+            case "caesar" -> {
+                if (encrypt)
+                    Encrypt.caesar(src, 0, dst, 0, length, key[0]);
+                else
+                    Decrypt.caesar(src, 0, dst, 0, length, key[0]);
+            }
+            case "xor" -> {
+                if (encrypt)
+                    Encrypt.xor(src, 0, dst, 0, length, key[0]);
+                else
+                    Decrypt.xor(src, 0, dst, 0, length, key[0]);
+            }
+            case "vigenere" -> {
+                if (encrypt)
+                    Encrypt.vigenere(src, 0, dst, 0, length, key);
+                else
+                    Decrypt.vigenere(src, 0, dst, 0, length, key);
+            }
+            default -> {
+                if (encrypt)
+                    Encrypt.cbc(src, 0, dst, 0, length, key);
+                else
+                    Decrypt.cbc(src, 0, dst, 0, length, key);
+            }
+        }
+    }
+
+    private static boolean testChunkedContainer() {
+        final byte[] KEYWORD = Text.toBytes("2cF%5");
+        final int CHUNK = 64;
+        Random random = new Random(25);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Path path = null;
+        try {
+            path = Files.createTempFile("container", ".bin");
+            boolean ok;
+            try (ChunkedContainer container = ChunkedContainer.create(path, KEYWORD, CHUNK, ParallelCipher.DEFAULT)) {
+                ok = appendRandom(container, expected, random, 0, 1, CHUNK - 2, CHUNK, CHUNK + 1, 1000);
+            }
+            // Appending to a reopened container, starting in the middle of its last chunk
+            try (ChunkedContainer container = ChunkedContainer.open(path, KEYWORD)) {
+                ok &= container.chunkSize() == CHUNK && container.length() == expected.size();
+                ok &= appendRandom(container, expected, random, 7, 5000);
+            }
+            byte[] plainText = expected.toByteArray();
+            try (ChunkedContainer container = ChunkedContainer.open(path, KEYWORD)) {
+                ok &= container.length() == plainText.length && container.chunks() == (plainText.length + CHUNK - 1) / CHUNK;
+                ok &= Arrays.equals(container.read(0, plainText.length), plainText);
+                for (int i = 0; i < 200; i++) {
+                    int position = random.nextInt(plainText.length + 1);
+                    int length = random.nextInt(plainText.length - position + 1);
+                    ok &= Arrays.equals(container.read(position, length), Arrays.copyOfRange(plainText, position, position + length));
+                }
+            }
+
+            // A crash during an append : the journal is replayed when it is complete, undone when it is torn
+            byte[] before = Files.readAllBytes(path);
+            byte[] more = new byte[300];
+            random.nextBytes(more);
+            try (ChunkedContainer container = ChunkedContainer.open(path, KEYWORD)) {
+                container.append(more);
+            }
+            byte[] after = Files.readAllBytes(path);
+            byte[] appended = Arrays.copyOf(plainText, plainText.length + more.length);
+            System.arraycopy(more, 0, appended, plainText.length, more.length);
+            int target = plainText.length / CHUNK * CHUNK;
+            byte[] region = Arrays.copyOfRange(after, target, after.length);
+            Files.write(path, plantJournal(before, region, target, true));
+            ok &= readsBack(path, KEYWORD, appended) && Files.size(path) == after.length;
+            Files.write(path, plantJournal(before, region, target, false));
+            ok &= readsBack(path, KEYWORD, plainText) && Files.size(path) == before.length;
+            // Torn journal of a failed append, followed by the torn journal of the next one
+            Files.write(path, plantJournal(plantJournal(before, region, target, false), region, target, false));
+            ok &= readsBack(path, KEYWORD, plainText) && Files.size(path) == before.length;
+            return ok;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            try {
+                if (path != null)
+                    Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Simulate a crash during an append, with the format described by {@link ChunkedContainer} : the file
+     * is followed by the journal of the new bytes and by its record, the bytes being left blank when the
+     * journal is torn
+     * @param file content of the container before the append
+     * @param region bytes written by the append, from the start of its first chunk
+     * @param target position of the first chunk rewritten by the append
+     * @param complete false if the crash happened before the journal was complete
+     * @return content of the interrupted container
+     */
+    private static byte[] plantJournal(byte[] file, byte[] region, int target, boolean complete) {
+        final int JOURNAL = 0x4353374A;
+        int start = Math.max(file.length, target + region.length);
+        ByteBuffer journal = ByteBuffer.allocate(start + region.length + 2 * Long.BYTES + 2 * Integer.BYTES + Long.BYTES);
+        journal.put(file);
+        if (complete)
+            journal.put(start, region);
+        CRC32 crc = new CRC32();
+        crc.update(region);
+        journal.position(start + region.length);
+        journal.putLong(file.length).putLong(target).putInt(JOURNAL).putInt((int) crc.getValue()).putLong(region.length);
+        return journal.array();
+    }
+
+    /**
+     * @return true if the container opens with the expected plain text
+     */
+    private static boolean readsBack(Path path, byte[] keyword, byte[] expected) throws IOException {
+        try (ChunkedContainer container = ChunkedContainer.open(path, keyword)) {
+            return container.length() == expected.length && Arrays.equals(container.read(0, expected.length), expected);
+        }
+    }
+
+    /**
+     * Append random bytes to a container and to the expected plain text
+     * @return true if the length of the container follows the appended bytes
+     */
+    private static boolean appendRandom(ChunkedContainer container, ByteArrayOutputStream expected, Random random,
+                                        int... lengths) throws IOException {
+        boolean ok = true;
+        for (int length : lengths) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            container.append(bytes);
+            expected.write(bytes);
+            ok &= container.length() == expected.size();
+        }
+        return ok;
+    }
+
     // ============================================================================================
     // ================================== IMAGE STEGANOGRAPHY =====================================
     // ============================================================================================
@@ -360,4 +998,126 @@ public final class Main {
         return Arrays.equals(expected, actual);
     }
 
+    private static boolean testFramedText() {
+        final byte[] TEXT = Text.toBytes("La vie est un long fleuve tranquille :-)");
+        int[][] cover = new int[30][30];
+        for (int i = 0; i < cover.length; i++)
+            for (int j = 0; j < cover[i].length; j++)
+                cover[i][j] = 0x01020304 * (i * cover[i].length + j);
+
+        // The header and the message fit : only these pixels are modified
+        int[][] hidden = TextSteganography.embedText(cover, TEXT);
+        int used = TextSteganography.HEADER_PIXELS + TEXT.length * Byte.SIZE;
+        boolean untouched = true;
+        for (int k = used; k < 900; k++)
+            untouched &= hidden[k / 30][k % 30] == cover[k / 30][k % 30];
+        // Without a header, the whole image is read back
+        int[][] legacy = TextSteganography.embedBitArray(cover, Text.toBitArray(Text.toString(TEXT)));
+        byte[] revealed = TextSteganography.revealText(legacy);
+        return untouched && Arrays.equals(TextSteganography.revealText(hidden), TEXT)
+                && Arrays.equals(Arrays.copyOf(revealed, TEXT.length), TEXT);
+    }
+
+    private static boolean testEmbeddingLayout() {
+        Random random = new Random(12);
+        final int WIDTH = 13, HEIGHT = 11;
+        byte[] message = new byte[120];
+        random.nextBytes(message);
+        boolean ok = true;
+        for (int bits = 1; bits <= EmbeddingLayout.MAX_BITS_PER_CHANNEL; bits++) {
+            for (int channels = 1; channels <= (EmbeddingLayout.RGB | EmbeddingLayout.ALPHA); channels++) {
+                EmbeddingLayout layout = EmbeddingLayout.of(bits, channels);
+                int bpp = layout.bitsPerPixel();
+                int mask = 0;
+                for (int c = 0; c < 4; c++)
+                    if ((channels >>> c & 1) != 0)
+                        mask |= ((1 << bits) - 1) << (c * Byte.SIZE);
+
+                // One pixel, then packed runs with an offset and a partial last pixel
+                for (int k = 0; k < 16; k++) {
+                    int pixel = random.nextInt();
+                    int value = random.nextInt() & (-1 >>> (Integer.SIZE - bpp));
+                    int embedded = layout.embed(pixel, value);
+                    ok &= layout.extract(embedded) == value && ((embedded ^ pixel) & ~mask) == 0;
+                }
+                int[] pixels = new int[40];
+                for (int k = 0; k < pixels.length; k++)
+                    pixels[k] = random.nextInt();
+                int[] cover = pixels.clone();
+                BitVector source = BitVector.fromBytes(message);
+                long count = 37L * bpp - 1;
+                layout.embed(pixels, 2, source, 5, count);
+                BitVector read = new BitVector(count + 5);
+                layout.extract(pixels, 2, read, 5, count);
+                for (long b = 5; b < count + 5; b++)
+                    ok &= read.get(b) == source.get(b);
+                // The last pixel keeps its trailing bit, and nothing outside the run is written
+                ok &= (layout.extract(pixels[38]) & 1) == (layout.extract(cover[38]) & 1);
+                ok &= pixels[0] == cover[0] && pixels[1] == cover[1] && pixels[39] == cover[39];
+                for (int k = 0; k < pixels.length; k++)
+                    ok &= ((pixels[k] ^ cover[k]) & ~mask) == 0;
+
+                // A short message and a truncated one, in array, region and buffer rasters
+                for (int length : new int[]{3, message.length}) {
+                    byte[] text = Arrays.copyOf(message, length);
+
+                    Raster plain = new Raster(WIDTH, HEIGHT);
+                    fillRandom(plain, random);
+                    int[][] before = plain.toArray();
+                    Raster hidden = TextSteganography.embedText(plain, text, layout);
+                    ok &= Arrays.deepEquals(plain.toArray(), before);
+                    ok &= embeddedIn(before, hidden, layout, mask, text);
+
+                    Raster parent = new Raster(WIDTH + 4, HEIGHT + 4);
+                    fillRandom(parent, random);
+                    int[][] outer = parent.toArray();
+                    Raster view = parent.region(2, 3, HEIGHT, WIDTH);
+                    before = view.toArray();
+                    TextSteganography.embedTextInPlace(view, text, layout);
+                    ok &= embeddedIn(before, view, layout, mask, text);
+                    int[][] changed = parent.toArray();
+                    for (int i = 0; i < outer.length; i++)
+                        for (int j = 0; j < outer[i].length; j++)
+                            if (i < 2 || i >= 2 + HEIGHT || j < 3 || j >= 3 + WIDTH)
+                                ok &= changed[i][j] == outer[i][j];
+
+                    final int STRIDE = WIDTH + 3;
+                    IntBuffer buffer = ByteBuffer.allocateDirect(((HEIGHT - 1) * STRIDE + WIDTH) * Integer.BYTES).asIntBuffer();
+                    Raster direct = Raster.wrap(buffer, STRIDE, WIDTH, HEIGHT);
+                    fillRandom(direct, random);
+                    before = direct.toArray();
+                    TextSteganography.embedTextInPlace(direct, text, layout);
+                    ok &= !direct.hasArray() && embeddedIn(before, direct, layout, mask, text);
+                }
+            }
+        }
+        return ok;
+    }
+
+    private static void fillRandom(Raster raster, Random random) {
+        for (int i = 0; i < raster.height(); i++)
+            for (int j = 0; j < raster.width(); j++)
+                raster.set(i, j, random.nextInt());
+    }
+
+    /**
+     * Check a message embedded in a raster : the layout and the message, truncated at capacity,
+     * are read back, and only the bits of the layout in the used pixels are modified
+     */
+    private static boolean embeddedIn(int[][] before, Raster hidden, EmbeddingLayout layout, int mask, byte[] text) {
+        int width = hidden.width();
+        long pixels = (long) width * hidden.height();
+        int length = (int) Math.min(text.length, layout.capacity(pixels - TextSteganography.HEADER_PIXELS) / Byte.SIZE);
+        long used = TextSteganography.HEADER_PIXELS
+                + ((long) length * Byte.SIZE + layout.bitsPerPixel() - 1) / layout.bitsPerPixel();
+        boolean ok = layout.equals(TextSteganography.readLayout(hidden))
+                && Arrays.equals(TextSteganography.revealText(hidden), Arrays.copyOf(text, length));
+        for (int p = 0; p < pixels; p++) {
+            int diff = hidden.get(p / width, p % width) ^ before[p / width][p % width];
+            int allowed = p < TextSteganography.HEADER_PIXELS ? 1 : p < used ? mask : 0;
+            ok &= (diff & ~allowed) == 0;
+        }
+        return ok;
+    }
+
 }
@@ -0,0 +1,79 @@
+package ch.epfl.cs107.crypto;
+
+/**
+ * Chaining state of a CBC encryption or decryption, carried from one buffer to the next.
+ * <p>
+ * The state is the last cipher block (initially the IV) and the position inside the current block,
+ * so buffers of any size can be processed, and no array is allocated per block.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class CbcChain {
+
+    /** Last cipher block, updated byte after byte */
+    private final byte[] previous;
+    /** Position of the next byte in the current block */
+    private int position;
+
+    /**
+     * @param iv the initialization vector used to start the chain, copied
+     */
+    CbcChain(byte[] iv) {
+        assert iv != null && iv.length > 0;
+        this.previous = iv.clone();
+        this.position = 0;
+    }
+
+    /**
+     * Encrypt a range of bytes, in place
+     * @param buffer bytes to encrypt
+     * @param offset index of the first byte
+     * @param length number of bytes
+     */
+    void encrypt(byte[] buffer, int offset, int length) {
+        assert buffer != null && offset >= 0 && length >= 0 && offset + length <= buffer.length;
+        int j = position;
+        for (int i = offset; i < offset + length; i++) {
+            byte cipher = (byte) (buffer[i] ^ previous[j]);
+            buffer[i] = cipher;
+            previous[j] = cipher;
+            if (++j == previous.length)
+                j = 0;
+        }
+        position = j;
+    }
+
+    /**
+     * Decrypt a range of bytes, in place
+     * @param buffer bytes to decrypt
+     * @param offset index of the first byte
+     * @param length number of bytes
+     */
+    void decrypt(byte[] buffer, int offset, int length) {
+        assert buffer != null && offset >= 0 && length >= 0 && offset + length <= buffer.length;
+        int j = position;
+        for (int i = offset; i < offset + length; i++) {
+            byte cipher = buffer[i];
+            buffer[i] = (byte) (cipher ^ previous[j]);
+            previous[j] = cipher;
+            if (++j == previous.length)
+                j = 0;
+        }
+        position = j;
+    }
+
+    /**
+     * Encrypt or decrypt a range of bytes, in place
+     * @param buffer bytes to process
+     * @param offset index of the first byte
+     * @param length number of bytes
+     * @param encrypt <code>true</code> to encrypt, <code>false</code> to decrypt
+     */
+    void apply(byte[] buffer, int offset, int length, boolean encrypt) {
+        if (encrypt)
+            encrypt(buffer, offset, length);
+        else
+            decrypt(buffer, offset, length);
+    }
+}
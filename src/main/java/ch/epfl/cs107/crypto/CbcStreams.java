@@ -0,0 +1,222 @@
+package ch.epfl.cs107.crypto;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streaming versions of {@link Encrypt#cbc(byte[], byte[])} and {@link Decrypt#cbc(byte[], byte[])}.
+ * <p>
+ * The chaining state is carried between buffers, so the data never has to fit in memory and the
+ * output is identical to the one of the array methods, whatever the size of the buffers used.
+ * Nothing is allocated per block : each stream owns a single fixed-size buffer.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class CbcStreams {
+
+    /** Size of the internal buffers */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private CbcStreams(){}
+
+    // ============================================================================================
+    // ===================================== JAVA STREAMS =========================================
+    // ============================================================================================
+
+    /**
+     * Wrap an output stream, encrypting everything written to it
+     * @param out stream receiving the cipher text
+     * @param iv the initialization vector used to start the chain encoding
+     * @return stream accepting the plain text
+     */
+    public static OutputStream encrypt(OutputStream out, byte[] iv) {
+        return new CbcOutputStream(out, new CbcChain(iv), true);
+    }
+
+    /**
+     * Wrap an output stream, decrypting everything written to it
+     * @param out stream receiving the plain text
+     * @param iv the initialization vector used to start the chain decoding
+     * @return stream accepting the cipher text
+     */
+    public static OutputStream decrypt(OutputStream out, byte[] iv) {
+        return new CbcOutputStream(out, new CbcChain(iv), false);
+    }
+
+    /**
+     * Wrap an input stream, encrypting everything read from it
+     * @param in stream providing the plain text
+     * @param iv the initialization vector used to start the chain encoding
+     * @return stream providing the cipher text
+     */
+    public static InputStream encrypt(InputStream in, byte[] iv) {
+        return new CbcInputStream(in, new CbcChain(iv), true);
+    }
+
+    /**
+     * Wrap an input stream, decrypting everything read from it
+     * @param in stream providing the cipher text
+     * @param iv the initialization vector used to start the chain decoding
+     * @return stream providing the plain text
+     */
+    public static InputStream decrypt(InputStream in, byte[] iv) {
+        return new CbcInputStream(in, new CbcChain(iv), false);
+    }
+
+    // ============================================================================================
+    // ======================================= CHANNELS ===========================================
+    // ============================================================================================
+
+    /**
+     * Encrypt the content of a channel, from its current position to its end, into another channel
+     * @param in channel providing the plain text
+     * @param out channel receiving the cipher text
+     * @param iv the initialization vector used to start the chain encoding
+     * @return number of bytes encrypted
+     * @throws IOException if an I/O error occurs
+     */
+    public static long encrypt(FileChannel in, FileChannel out, byte[] iv) throws IOException {
+        return transfer(in, out, new CbcChain(iv), true);
+    }
+
+    /**
+     * Decrypt the content of a channel, from its current position to its end, into another channel
+     * @param in channel providing the cipher text
+     * @param out channel receiving the plain text
+     * @param iv the initialization vector used to start the chain decoding
+     * @return number of bytes decrypted
+     * @throws IOException if an I/O error occurs
+     */
+    public static long decrypt(FileChannel in, FileChannel out, byte[] iv) throws IOException {
+        return transfer(in, out, new CbcChain(iv), false);
+    }
+
+    private static long transfer(FileChannel in, FileChannel out, CbcChain chain, boolean encrypt) throws IOException {
+        assert in != null && out != null;
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long total = 0;
+        while (in.read(buffer) >= 0 || buffer.position() > 0) {
+            buffer.flip();
+            chain.apply(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), encrypt);
+            total += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+        return total;
+    }
+
+    // ============================================================================================
+    // ==================================== IMPLEMENTATION ========================================
+    // ============================================================================================
+
+    /**
+     * Output stream applying the chain on a private copy of the written bytes
+     */
+    private static final class CbcOutputStream extends FilterOutputStream {
+
+        private final CbcChain chain;
+        private final boolean encrypt;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        CbcOutputStream(OutputStream out, CbcChain chain, boolean encrypt) {
+            super(out);
+            assert out != null;
+            this.chain = chain;
+            this.encrypt = encrypt;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer[0] = (byte) b;
+            chain.apply(buffer, 0, 1, encrypt);
+            out.write(buffer[0]);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            assert b != null && off >= 0 && len >= 0 && off + len <= b.length;
+            // The caller's array must not be modified : work on a copy, one buffer at a time
+            while (len > 0) {
+                int count = Math.min(len, buffer.length);
+                System.arraycopy(b, off, buffer, 0, count);
+                chain.apply(buffer, 0, count, encrypt);
+                out.write(buffer, 0, count);
+                off += count;
+                len -= count;
+            }
+        }
+    }
+
+    /**
+     * Input stream applying the chain, in place, on the bytes read
+     */
+    private static final class CbcInputStream extends FilterInputStream {
+
+        private final CbcChain chain;
+        private final boolean encrypt;
+        private final byte[] single = new byte[1];
+
+        CbcInputStream(InputStream in, CbcChain chain, boolean encrypt) {
+            super(in);
+            assert in != null;
+            this.chain = chain;
+            this.encrypt = encrypt;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int count;
+            do {
+                count = read(single, 0, 1);
+            } while (count == 0);
+            return count < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = in.read(b, off, len);
+            if (count > 0)
+                chain.apply(b, off, count, encrypt);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0)
+                return 0;
+            // Skipped bytes must go through the chain to keep it in sync
+            byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+            long skipped = 0;
+            while (skipped < n) {
+                int count = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+                if (count < 0)
+                    break;
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(int readlimit) {
+            // The chain cannot be rewound, marks are not supported
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("mark/reset not supported");
+        }
+    }
+}
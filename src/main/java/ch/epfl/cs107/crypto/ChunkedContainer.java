@@ -0,0 +1,479 @@
+package ch.epfl.cs107.crypto;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Encrypted file that can be read from any position and appended to.
+ * <p>
+ * A CBC cipher can only be decrypted from its start. The container instead cuts the data in chunks of
+ * a fixed size, each one encrypted on its own : Vigenere's cipher with the keyword of the container,
+ * then CBC with an IV drawn for the chunk. Any range of bytes is then read by decrypting only the
+ * chunks covering it, the chunks are encrypted and decrypted in parallel, and appending only
+ * re-encrypts the last chunk when it is not full.
+ * <p>
+ * The file holds the encrypted chunks, then the index (the IV of every chunk), then a footer :
+ * <pre>
+ * chunk 0 | chunk 1 | ... | chunk n-1 | IV 0 | ... | IV n-1 | magic (int) | chunk size (int) | length (long)
+ * </pre>
+ * Only the last chunk can be shorter than the chunk size. An encrypted chunk has the size of its plain
+ * text, so chunk <code>i</code> starts at <code>i * chunk size</code>.
+ * <p>
+ * Appending overwrites the last chunk and the index, so the new bytes are journaled first : they are
+ * written past the end of the file, followed by a record (ending with {@link #JOURNAL} instead of the
+ * magic number) holding their checksum, and only then copied to their place before the file is cut.
+ * A container whose append was interrupted by a crash is repaired when it is opened : the append is
+ * completed if the journal is complete, and undone otherwise.
+ * <p>
+ * A container must not be appended to while it is read by another thread.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ChunkedContainer implements Closeable {
+
+    /** Default size of a chunk */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+
+    /** Size of the IV of a chunk */
+    public static final int IV_BYTES = 16;
+
+    /** First bytes of the footer ("CS7C") */
+    static final int MAGIC = 0x43533743;
+
+    /** Size of the footer */
+    static final int FOOTER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES;
+
+    /** First bytes of the end of a journal ("CS7J"), in place of the magic number of the footer */
+    static final int JOURNAL = 0x4353374A;
+
+    /**
+     * Size of the record ending a journal : size of the file before the append (long), position of the
+     * journaled bytes in the file (long), {@link #JOURNAL} (int), CRC-32 of the bytes (int), number of bytes (long)
+     */
+    static final int RECORD_BYTES = 2 * Long.BYTES + FOOTER_BYTES;
+
+    /** Maximal number of bytes encrypted or decrypted at once */
+    static final int BATCH_BYTES = 1 << 26;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final FileChannel channel;
+    private final CompiledCipher vigenere;
+    private final ParallelCipher engine;
+    private final int chunkSize;
+    /** IVs of the chunks, one after the other */
+    private byte[] ivs;
+    /** Number of plain text bytes */
+    private long length;
+    /** Set when an append failed : the file may not match the state of the container any more */
+    private boolean broken;
+
+    private ChunkedContainer(FileChannel channel, byte[] keyword, ParallelCipher engine, int chunkSize, byte[] ivs, long length) {
+        this.channel = channel;
+        this.vigenere = CompiledCipher.vigenere(keyword);
+        this.engine = engine;
+        this.chunkSize = chunkSize;
+        this.ivs = ivs;
+        this.length = length;
+    }
+
+    // ============================================================================================
+    // ======================================== OPENING ===========================================
+    // ============================================================================================
+
+    /**
+     * Create an empty container with chunks of {@link #DEFAULT_CHUNK_SIZE} bytes, replacing any existing file
+     * @param path path of the container
+     * @param keyword the keyword used to encrypt the chunks
+     * @return the container, opened for reading and appending
+     * @throws IOException if an I/O error occurs
+     */
+    public static ChunkedContainer create(Path path, byte[] keyword) throws IOException {
+        return create(path, keyword, DEFAULT_CHUNK_SIZE, ParallelCipher.DEFAULT);
+    }
+
+    /**
+     * Create an empty container, replacing any existing file
+     * @param path path of the container
+     * @param keyword the keyword used to encrypt the chunks
+     * @param chunkSize number of bytes of a chunk
+     * @param engine engine used to process the chunks in parallel
+     * @return the container, opened for reading and appending
+     * @throws IOException if an I/O error occurs
+     */
+    public static ChunkedContainer create(Path path, byte[] keyword, int chunkSize, ParallelCipher engine) throws IOException {
+        assert path != null && keyword != null && keyword.length > 0 && engine != null;
+        assert chunkSize >= IV_BYTES && chunkSize <= BATCH_BYTES;
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ChunkedContainer container = new ChunkedContainer(channel, keyword, engine, chunkSize, new byte[0], 0);
+        try {
+            container.writeIndex();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return container;
+    }
+
+    /**
+     * Open an existing container
+     * @param path path of the container
+     * @param keyword the keyword used to encrypt the chunks
+     * @return the container, opened for reading and appending
+     * @throws IOException if an I/O error occurs or if the file is not a valid container
+     */
+    public static ChunkedContainer open(Path path, byte[] keyword) throws IOException {
+        return open(path, keyword, ParallelCipher.DEFAULT);
+    }
+
+    /**
+     * Open an existing container, completing or undoing an append interrupted by a crash
+     * @param path path of the container
+     * @param keyword the keyword used to encrypt the chunks
+     * @param engine engine used to process the chunks in parallel
+     * @return the container, opened for reading and appending
+     * @throws IOException if an I/O error occurs or if the file is not a valid container
+     */
+    public static ChunkedContainer open(Path path, byte[] keyword, ParallelCipher engine) throws IOException {
+        assert path != null && keyword != null && keyword.length > 0 && engine != null;
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_BYTES)
+                throw new IOException("Not a chunked container");
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES);
+            readFully(channel, footer, size - FOOTER_BYTES);
+            // Each recovery makes the file shorter, a failed append may have left a journal behind the last one
+            while (footer.getInt(0) == JOURNAL) {
+                recover(channel, size);
+                size = channel.size();
+                if (size < FOOTER_BYTES)
+                    throw new IOException("Not a chunked container");
+                readFully(channel, footer.clear(), size - FOOTER_BYTES);
+            }
+            footer.flip();
+            int magic = footer.getInt();
+            int chunkSize = footer.getInt();
+            long length = footer.getLong();
+            if (magic != MAGIC)
+                throw new IOException("Not a chunked container");
+            if (chunkSize < IV_BYTES || chunkSize > BATCH_BYTES || length < 0)
+                throw new IOException("Invalid chunked container footer");
+            long chunks = (length + chunkSize - 1) / chunkSize;
+            if (chunks * IV_BYTES > Integer.MAX_VALUE - FOOTER_BYTES || size != length + chunks * IV_BYTES + FOOTER_BYTES)
+                throw new IOException("Truncated chunked container");
+            ByteBuffer ivs = ByteBuffer.allocate((int) chunks * IV_BYTES);
+            readFully(channel, ivs, length);
+            return new ChunkedContainer(channel, keyword, engine, chunkSize, ivs.array(), length);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** @return number of plain text bytes in the container */
+    public long length() {
+        return length;
+    }
+
+    /** @return number of bytes of a chunk */
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    /** @return number of chunks in the container */
+    public int chunks() {
+        return ivs.length / IV_BYTES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // ============================================================================================
+    // ======================================== READING ===========================================
+    // ============================================================================================
+
+    /**
+     * Read a range of the plain text
+     * @param position index of the first byte to read
+     * @param len number of bytes to read
+     * @return the plain text bytes
+     * @throws IOException if an I/O error occurs
+     */
+    public byte[] read(long position, int len) throws IOException {
+        byte[] result = new byte[len];
+        read(position, result, 0, len);
+        return result;
+    }
+
+    /**
+     * Read a range of the plain text, only decrypting the chunks covering it
+     * @param position index of the first byte to read
+     * @param dst array receiving the plain text
+     * @param dstOff index of the first byte to write
+     * @param len number of bytes to read
+     * @throws IOException if an I/O error occurs
+     */
+    public void read(long position, byte[] dst, int dstOff, int len) throws IOException {
+        assert dst != null && dstOff >= 0 && len >= 0 && dstOff + len <= dst.length;
+        checkUsable();
+        if (position < 0 || position + len > length)
+            throw new EOFException("Range out of the container");
+        int done = 0;
+        while (done < len) {
+            long from = position + done;
+            int first = (int) (from / chunkSize);
+            int count = Math.min(batchChunks(), (int) ((from + len - done - 1) / chunkSize) - first + 1);
+            byte[] plainText = decrypt(first, count);
+            int skip = (int) (from - (long) first * chunkSize);
+            int n = Math.min(len - done, plainText.length - skip);
+            System.arraycopy(plainText, skip, dst, dstOff + done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Read and decrypt consecutive chunks
+     * @param first index of the first chunk
+     * @param count number of chunks
+     * @return the plain text of the chunks
+     */
+    private byte[] decrypt(int first, int count) throws IOException {
+        long start = (long) first * chunkSize;
+        int size = (int) Math.min((long) count * chunkSize, length - start);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        readFully(channel, buffer, start);
+        byte[] data = buffer.array();
+        forEachChunk(size, (offset, n) -> {
+            int chunk = first + offset / chunkSize;
+            Decrypt.cbc(data, offset, data, offset, n, iv(ivs, chunk));
+            vigenere.decrypt(data, offset, data, offset, n);
+        });
+        return data;
+    }
+
+    // ============================================================================================
+    // ======================================== WRITING ===========================================
+    // ============================================================================================
+
+    /**
+     * Append bytes at the end of the plain text. Only the last chunk is encrypted again, if it is not full.
+     * @param data the bytes to append
+     * @throws IOException if an I/O error occurs
+     */
+    public void append(byte[] data) throws IOException {
+        assert data != null;
+        append(data, 0, data.length);
+    }
+
+    /**
+     * Append bytes at the end of the plain text. Only the last chunk is encrypted again, if it is not full.
+     * The bytes are appended in batches of {@link #BATCH_BYTES} bytes, each one being journaled : after a
+     * crash, the container holds all the batches written before it. If an append fails, the container
+     * cannot be used any more : it must be opened again, which completes or undoes the failed batch.
+     * @param src array holding the bytes to append
+     * @param srcOff index of the first byte to append
+     * @param len number of bytes to append
+     * @throws IOException if an I/O error occurs
+     */
+    public void append(byte[] src, int srcOff, int len) throws IOException {
+        assert src != null && srcOff >= 0 && len >= 0 && srcOff + len <= src.length;
+        checkUsable();
+        int done = 0;
+        while (done < len) {
+            int first = (int) (length / chunkSize);
+            // Plain text of the last chunk, when it is not full
+            int tail = (int) (length - (long) first * chunkSize);
+            byte[] previous = tail == 0 ? new byte[0] : decrypt(first, 1);
+            int n = (int) Math.min(len - done, (long) batchChunks() * chunkSize - tail);
+            byte[] data = Arrays.copyOf(previous, tail + n);
+            System.arraycopy(src, srcOff + done, data, tail, n);
+
+            int count = (data.length + chunkSize - 1) / chunkSize;
+            byte[] grown = Arrays.copyOf(ivs, (first + count) * IV_BYTES);
+            byte[] fresh = new byte[count * IV_BYTES];
+            RANDOM.nextBytes(fresh);
+            System.arraycopy(fresh, 0, grown, first * IV_BYTES, fresh.length);
+            forEachChunk(data.length, (offset, size) -> {
+                vigenere.encrypt(data, offset, data, offset, size);
+                Encrypt.cbc(data, offset, data, offset, size, iv(grown, first + offset / chunkSize));
+            });
+            long target = (long) first * chunkSize;
+            try {
+                commit(target, data, index(grown, target + data.length));
+            } catch (IOException | RuntimeException e) {
+                broken = true;
+                throw e;
+            }
+            // The state only changes once the file holds the new chunks
+            ivs = grown;
+            length = target + data.length;
+            done += n;
+        }
+    }
+
+    /**
+     * Write the bytes following the unchanged chunks, so that a crash at any point leaves the file with
+     * either its previous or its new content : the bytes are journaled past both the current and the new
+     * end of the file, then copied to their place, and the journal is cut. The record ending the journal is
+     * written first : until the journal is complete, its checksum does not match and {@link #recover}
+     * undoes the append.
+     * @param target position of the first byte to write
+     * @param data new chunks
+     * @param index IVs and footer following the new chunks
+     */
+    private void commit(long target, byte[] data, ByteBuffer index) throws IOException {
+        // The committed content ends with the footer : anything after it is left by a failed append
+        long end = length + ivs.length + FOOTER_BYTES;
+        if (channel.size() != end)
+            channel.truncate(end);
+        long size = data.length + (long) index.remaining();
+        long start = Math.max(end, target + size);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        crc.update(index.duplicate());
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        record.putLong(end).putLong(target).putInt(JOURNAL).putInt((int) crc.getValue()).putLong(size).flip();
+        writeFully(channel, record, start + size);
+        channel.force(false);
+        writeFully(channel, ByteBuffer.wrap(data), start);
+        writeFully(channel, index.duplicate(), start + data.length);
+        channel.force(false);
+
+        writeFully(channel, ByteBuffer.wrap(data), target);
+        writeFully(channel, index, target + data.length);
+        channel.force(false);
+        channel.truncate(target + size);
+    }
+
+    /**
+     * Complete the append whose journal ends the file if the journal is complete, undo it otherwise
+     * @param channel the container
+     * @param size size of the file, ending with a journal
+     */
+    private static void recover(FileChannel channel, long size) throws IOException {
+        if (size < RECORD_BYTES)
+            throw new IOException("Truncated chunked container");
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        readFully(channel, record, size - RECORD_BYTES);
+        record.flip();
+        long end = record.getLong();
+        long target = record.getLong();
+        record.getInt();
+        int checksum = record.getInt();
+        long length = record.getLong();
+        long start = size - RECORD_BYTES - length;
+        if (length < 0 || length > size - RECORD_BYTES || end < 0 || end > start || target < 0 || target > start - length)
+            throw new IOException("Invalid chunked container journal");
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, BATCH_BYTES));
+        CRC32 crc = new CRC32();
+        for (long done = 0; done < length; done += buffer.limit()) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), length - done));
+            readFully(channel, buffer, start + done);
+            crc.update(buffer.flip());
+        }
+        if ((int) crc.getValue() != checksum) {
+            channel.truncate(end);
+        } else {
+            for (long done = 0; done < length; done += buffer.limit()) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), length - done));
+                readFully(channel, buffer, start + done);
+                writeFully(channel, buffer.flip(), target + done);
+            }
+            channel.force(false);
+            channel.truncate(target + length);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Write the IVs and the footer after the chunks, and cut what may follow
+     */
+    private void writeIndex() throws IOException {
+        writeFully(channel, index(ivs, length), length);
+        channel.truncate(length + ivs.length + FOOTER_BYTES);
+    }
+
+    /**
+     * @param ivs IVs of the chunks
+     * @param length number of plain text bytes the footer records
+     * @return the IVs of the chunks and the footer
+     */
+    private ByteBuffer index(byte[] ivs, long length) {
+        ByteBuffer index = ByteBuffer.allocate(ivs.length + FOOTER_BYTES);
+        return index.put(ivs).putInt(MAGIC).putInt(chunkSize).putLong(length).flip();
+    }
+
+    // ============================================================================================
+    // ========================================= HELPERS ==========================================
+    // ============================================================================================
+
+    /**
+     * Operation on a chunk held in memory
+     */
+    private interface ChunkOperation {
+        /**
+         * @param offset index of the first byte of the chunk
+         * @param size number of bytes of the chunk
+         */
+        void apply(int offset, int size);
+    }
+
+    /**
+     * Apply an operation on every chunk of <code>[0, size)</code>, in parallel above the threshold of the engine
+     */
+    private void forEachChunk(int size, ChunkOperation operation) {
+        ParallelCipher.RangeOperation range = (from, to) -> {
+            for (int offset = from; offset < to; offset += chunkSize) {
+                operation.apply(offset, Math.min(chunkSize, to - offset));
+            }
+        };
+        if (size < engine.threshold())
+            range.apply(0, size);
+        else
+            engine.run(size, chunkSize, range);
+    }
+
+    /** @return a copy of the IV of a chunk */
+    private static byte[] iv(byte[] ivs, int chunk) {
+        return Arrays.copyOfRange(ivs, chunk * IV_BYTES, (chunk + 1) * IV_BYTES);
+    }
+
+    private void checkUsable() throws IOException {
+        if (broken)
+            throw new IOException("Chunked container left unusable by a failed append, it must be opened again");
+    }
+
+    /** @return maximal number of chunks processed at once */
+    private int batchChunks() {
+        return Math.max(1, BATCH_BYTES / chunkSize);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0)
+                throw new EOFException("Truncated chunked container");
+            position += n;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ch.epfl.cs107.crypto;
+
+import ch.epfl.cs107.Helper;
+
+/**
+ * Byte-wise loops shared by the ciphers of {@link Encrypt} and {@link Decrypt}.
+ * <p>
+ * Two implementations are provided : a portable {@link #scalar() scalar} one processing a
+ * <code>long</code> (8 bytes) at a time, and a {@link #vector() vector} one based on the
+ * <code>jdk.incubator.vector</code> API. The {@link #preferred() preferred} implementation is
+ * selected once, at startup, and can be forced with the <code>cs107.kernel</code> system
+ * property (<code>scalar</code>, <code>vector</code> or <code>auto</code>).
+ * <p>
+ * All the methods support in-place operation (<code>src == dst</code> and <code>srcOff == dstOff</code>).
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public interface CipherKernel {
+
+    /** Name of the system property used to select the preferred kernel */
+    String PROPERTY = "cs107.kernel";
+
+    /**
+     * Add a key to every byte of a range (Caesar's cipher)
+     * @param src source bytes
+     * @param srcOff index of the first byte to read
+     * @param dst destination bytes
+     * @param dstOff index of the first byte to write
+     * @param len number of bytes to process
+     * @param key key to add, use the opposite key to decrypt
+     */
+    void caesar(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte key);
+
+    /**
+     * XOR every byte of a range with a key
+     * @param src source bytes
+     * @param srcOff index of the first byte to read
+     * @param dst destination bytes
+     * @param dstOff index of the first byte to write
+     * @param len number of bytes to process
+     * @param key key to XOR with
+     */
+    void xor(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte key);
+
+    /**
+     * XOR every byte of a range with the corresponding byte of a pad (one-time pad)
+     * @param src source bytes
+     * @param srcOff index of the first byte to read
+     * @param pad pad bytes
+     * @param padOff index of the first pad byte to use
+     * @param dst destination bytes
+     * @param dstOff index of the first byte to write
+     * @param len number of bytes to process
+     */
+    void oneTimePad(byte[] src, int srcOff, byte[] pad, int padOff, byte[] dst, int dstOff, int len);
+
+    /** @return name of the implementation */
+    String name();
+
+    // ============================================================================================
+    // ===================================== IMPLEMENTATIONS ======================================
+    // ============================================================================================
+
+    /** @return the portable, word-at-a-time implementation */
+    static CipherKernel scalar() {
+        return ScalarKernel.INSTANCE;
+    }
+
+    /** @return <code>true</code> if the <code>jdk.incubator.vector</code> module is available */
+    static boolean isVectorAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    /**
+     * @return the Vector API implementation
+     * @apiNote The JVM must be started with <code>--add-modules jdk.incubator.vector</code>
+     */
+    static CipherKernel vector() {
+        if (!isVectorAvailable())
+            return Helper.fail("The module jdk.incubator.vector is not available, add '--add-modules jdk.incubator.vector'");
+        return VectorKernel.create();
+    }
+
+    /** @return the implementation selected at startup */
+    static CipherKernel preferred() {
+        return ScalarKernel.PREFERRED;
+    }
+
+    /**
+     * Select an implementation by name
+     * @param name <code>scalar</code>, <code>vector</code> or <code>auto</code>
+     * @return the corresponding implementation
+     */
+    static CipherKernel of(String name) {
+        assert name != null;
+        return switch (name) {
+            case "scalar" -> scalar();
+            case "vector" -> vector();
+            case "auto" -> isVectorAvailable() ? vector() : scalar();
+            default -> Helper.fail("Unknown cipher kernel : '%s'", name);
+        };
+    }
+}
@@ -0,0 +1,502 @@
+package ch.epfl.cs107.crypto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ch.epfl.cs107.crypto.ScalarKernel.LONGS;
+
+/**
+ * Chain of ciphers applied in a single pass over the data.
+ * <p>
+ * Chaining the methods of {@link Encrypt} allocates one array and reads the whole message once per
+ * cipher. A pipeline instead encodes the message one block of {@link #BLOCK_SIZE} bytes at a time,
+ * applying every cipher to a block while it is still in the cache. The pipeline is also compiled
+ * when built : consecutive Caesar, XOR and Vigenere stages are folded into substitution tables,
+ * one table of 256 bytes per position in the common period of their keywords, so any run of
+ * constant key stages costs a single table lookup per byte.
+ * <p>
+ * The output is byte-identical to the one of the corresponding sequence of calls to {@link Encrypt}.
+ * {@link #inverse()} builds the pipeline undoing this one, which matches the calls to {@link Decrypt}
+ * in the reverse order.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class CipherPipeline {
+
+    /** Number of bytes going through all the stages before the next ones are read */
+    static final int BLOCK_SIZE = 1 << 13;
+
+    /** Longest period of a substitution table (the table takes 256 bytes per position) */
+    static final int MAX_PERIOD = 256;
+
+    private final List<Stage> stages;
+    private final Step[] steps;
+
+    private CipherPipeline(List<Stage> stages) {
+        this.stages = List.copyOf(stages);
+        this.steps = compile(this.stages);
+    }
+
+    /**
+     * Start building a pipeline, the stages are applied in the order they are added
+     * @return an empty builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ============================================================================================
+    // ========================================= BUILDER ==========================================
+    // ============================================================================================
+
+    /**
+     * Builder of a {@link CipherPipeline}
+     */
+    public static final class Builder {
+
+        private final List<Stage> stages = new ArrayList<>();
+
+        private Builder(){}
+
+        /**
+         * Add a stage equivalent to {@link Encrypt#caesar(byte[], byte)}
+         * @param key the key used to shift the bytes
+         * @return this builder
+         */
+        public Builder caesar(byte key) {
+            stages.add(new Stage(Kind.CAESAR, new byte[]{key}, null));
+            return this;
+        }
+
+        /**
+         * Add a stage equivalent to {@link Encrypt#vigenere(byte[], byte[])}
+         * @param keyword the keyword used to shift the bytes, copied
+         * @return this builder
+         */
+        public Builder vigenere(byte[] keyword) {
+            assert keyword != null && keyword.length > 0;
+            stages.add(new Stage(Kind.VIGENERE, keyword.clone(), null));
+            return this;
+        }
+
+        /**
+         * Add a stage equivalent to {@link Encrypt#xor(byte[], byte)}
+         * @param key the byte used to XOR
+         * @return this builder
+         */
+        public Builder xor(byte key) {
+            stages.add(new Stage(Kind.XOR, new byte[]{key}, null));
+            return this;
+        }
+
+        /**
+         * Add a stage equivalent to {@link Encrypt#cbc(byte[], byte[])}
+         * @param iv the initialization vector, copied
+         * @return this builder
+         */
+        public Builder cbc(byte[] iv) {
+            assert iv != null && iv.length > 0;
+            stages.add(new Stage(Kind.CBC, iv.clone(), null));
+            return this;
+        }
+
+        /**
+         * Add a stage equivalent to {@link Encrypt#oneTimePad(byte[], Keystream)}, which XORs a keystream
+         * (not a one-time pad, see {@link Keystream})
+         * @param pad the keystream
+         * @return this builder
+         */
+        public Builder oneTimePad(Keystream pad) {
+            assert pad != null;
+            stages.add(new Stage(Kind.PAD, null, pad));
+            return this;
+        }
+
+        /**
+         * Compile the stages added so far
+         * @return the pipeline
+         */
+        public CipherPipeline build() {
+            return new CipherPipeline(stages);
+        }
+    }
+
+    // ============================================================================================
+    // ======================================== PIPELINE ==========================================
+    // ============================================================================================
+
+    /**
+     * Encode a message with all the stages
+     * @param input the message to encode
+     * @return the encoded message
+     */
+    public byte[] apply(byte[] input) {
+        assert input != null;
+        byte[] output = new byte[input.length];
+        apply(input, 0, output, 0, input.length);
+        return output;
+    }
+
+    /**
+     * Allocation-free variant of {@link #apply(byte[])} (only the chaining state of the CBC stages is
+     * allocated). The source and the destination can be the same array (in-place encoding).
+     * @param src the byte array containing the message to encode
+     * @param srcOff index of the first byte to encode
+     * @param dst the byte array receiving the encoded bytes
+     * @param dstOff index of the first encoded byte
+     * @param len number of bytes to encode
+     */
+    public void apply(byte[] src, int srcOff, byte[] dst, int dstOff, int len) {
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        if (src != dst || from != dstOff)
+            System.arraycopy(src, from, dst, dstOff, len);
+        if (steps.length == 1) {
+            // A single step does not need to be cut in blocks
+            steps[0].apply(dst, dstOff, len, 0, steps[0].start());
+            return;
+        }
+        Object[] states = new Object[steps.length];
+        for (int s = 0; s < steps.length; s++) {
+            states[s] = steps[s].start();
+        }
+        for (int done = 0; done < len; done += BLOCK_SIZE) {
+            int n = Math.min(BLOCK_SIZE, len - done);
+            for (int s = 0; s < steps.length; s++) {
+                steps[s].apply(dst, dstOff + done, n, done, states[s]);
+            }
+        }
+    }
+
+    /**
+     * Build the pipeline undoing this one : the stages are inverted and applied in the reverse order
+     * @return the decoding pipeline
+     */
+    public CipherPipeline inverse() {
+        List<Stage> inverse = new ArrayList<>(stages.size());
+        for (int s = stages.size() - 1; s >= 0; s--) {
+            inverse.add(stages.get(s).inverse());
+        }
+        return new CipherPipeline(inverse);
+    }
+
+    /** @return number of stages of the pipeline */
+    public int stages() {
+        return stages.size();
+    }
+
+    /** @return number of steps the stages were compiled to */
+    int steps() {
+        return steps.length;
+    }
+
+    @Override
+    public String toString() {
+        return "CipherPipeline" + stages;
+    }
+
+    // ============================================================================================
+    // ========================================= STAGES ===========================================
+    // ============================================================================================
+
+    private enum Kind { CAESAR, XOR, VIGENERE, UNVIGENERE, CBC, UNCBC, PAD }
+
+    /**
+     * A cipher as added to the builder
+     */
+    private static final class Stage {
+
+        private final Kind kind;
+        private final byte[] key;
+        private final Keystream pad;
+
+        Stage(Kind kind, byte[] key, Keystream pad) {
+            this.kind = kind;
+            this.key = key;
+            this.pad = pad;
+        }
+
+        Stage inverse() {
+            return switch (kind) {
+                case CAESAR -> new Stage(Kind.CAESAR, new byte[]{(byte) -key[0]}, null);
+                case XOR, PAD -> this;
+                case VIGENERE -> new Stage(Kind.UNVIGENERE, key, null);
+                case UNVIGENERE -> new Stage(Kind.VIGENERE, key, null);
+                case CBC -> new Stage(Kind.UNCBC, key, null);
+                case UNCBC -> new Stage(Kind.CBC, key, null);
+            };
+        }
+
+        /** @return number of positions after which the stage repeats, 0 if it never repeats */
+        int period() {
+            return switch (kind) {
+                case CAESAR, XOR -> 1;
+                case VIGENERE, UNVIGENERE -> key.length;
+                case CBC, UNCBC, PAD -> 0;
+            };
+        }
+
+        /**
+         * @param value byte to encode, from 0 to 255
+         * @param position position of the byte in the message
+         * @return the encoded byte
+         */
+        int apply(int value, int position) {
+            return switch (kind) {
+                case CAESAR -> value + key[0];
+                case XOR -> value ^ key[0];
+                case VIGENERE -> value + key[position % key.length];
+                case UNVIGENERE -> value - key[position % key.length];
+                default -> throw new IllegalStateException("Stage without period");
+            } & 0xFF;
+        }
+
+        @Override
+        public String toString() {
+            return kind.name().toLowerCase() + (kind == Kind.PAD ? "" : "(" + key.length + " bytes)");
+        }
+    }
+
+    // ============================================================================================
+    // ========================================= COMPILER =========================================
+    // ============================================================================================
+
+    /**
+     * Fold the runs of periodic stages into substitution tables
+     */
+    private static Step[] compile(List<Stage> stages) {
+        List<Step> steps = new ArrayList<>();
+        List<Stage> run = new ArrayList<>();
+        int period = 1;
+        for (Stage stage : stages) {
+            int p = stage.period();
+            long common = p == 0 ? 0 : (long) period / gcd(period, p) * p;
+            if (p == 0 || common > MAX_PERIOD) {
+                flush(run, period, steps);
+                period = 1;
+                if (p == 0) {
+                    steps.add(stage.kind == Kind.PAD ? new Pad(stage.pad) : new Chain(stage.key, stage.kind == Kind.UNCBC));
+                    continue;
+                }
+                if (p > MAX_PERIOD) {
+                    // Too long to be tabulated
+                    steps.add(new Shift(stage.key, stage.kind == Kind.UNVIGENERE));
+                    continue;
+                }
+                common = p;
+            }
+            run.add(stage);
+            period = (int) common;
+        }
+        flush(run, period, steps);
+        if (steps.isEmpty())
+            steps.add(new Substitution(1, identity(1)));
+        return steps.toArray(new Step[0]);
+    }
+
+    /**
+     * Turn a run of periodic stages into a substitution table, and empty the run
+     */
+    private static void flush(List<Stage> run, int period, List<Step> steps) {
+        if (run.isEmpty())
+            return;
+        byte[] table = identity(period);
+        for (int j = 0; j < period; j++) {
+            for (int v = 0; v < 256; v++) {
+                int value = v;
+                for (Stage stage : run) {
+                    value = stage.apply(value, j);
+                }
+                table[(j << 8) | v] = (byte) value;
+            }
+        }
+        steps.add(new Substitution(period, table));
+        run.clear();
+    }
+
+    private static byte[] identity(int period) {
+        byte[] table = new byte[period << 8];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) i;
+        }
+        return table;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    // ============================================================================================
+    // ========================================== STEPS ===========================================
+    // ============================================================================================
+
+    /**
+     * Compiled form of one or several stages, encoding a block in place
+     */
+    private interface Step {
+
+        /** @return the state of the step at the start of a message, if any */
+        default Object start() {
+            return null;
+        }
+
+        /**
+         * Encode a block in place
+         * @param data array holding the block
+         * @param off index of the first byte of the block
+         * @param len number of bytes of the block
+         * @param position position of the block in the message
+         * @param state state of the step, updated
+         */
+        void apply(byte[] data, int off, int len, long position, Object state);
+    }
+
+    /**
+     * Substitution depending on the position modulo a period
+     */
+    private static final class Substitution implements Step {
+
+        private final int period;
+        private final byte[] table;
+
+        Substitution(int period, byte[] table) {
+            this.period = period;
+            this.table = table;
+        }
+
+        @Override
+        public void apply(byte[] data, int off, int len, long position, Object state) {
+            byte[] t = table;
+            if (period == 1) {
+                for (int i = off; i < off + len; i++) {
+                    data[i] = t[data[i] & 0xFF];
+                }
+                return;
+            }
+            int j = (int) (position % period);
+            for (int i = off; i < off + len; i++) {
+                data[i] = t[(j << 8) | (data[i] & 0xFF)];
+                if (++j == period)
+                    j = 0;
+            }
+        }
+    }
+
+    /**
+     * Vigenere stage whose keyword is too long to be tabulated
+     */
+    private static final class Shift implements Step {
+
+        private final byte[] keyword;
+        private final boolean decrypt;
+
+        Shift(byte[] keyword, boolean decrypt) {
+            this.keyword = keyword;
+            this.decrypt = decrypt;
+        }
+
+        @Override
+        public void apply(byte[] data, int off, int len, long position, Object state) {
+            int k = (int) (position % keyword.length);
+            for (int i = off; i < off + len; i++) {
+                data[i] = (byte) (decrypt ? data[i] - keyword[k] : data[i] + keyword[k]);
+                if (++k == keyword.length)
+                    k = 0;
+            }
+        }
+    }
+
+    /**
+     * CBC stage : the state holds, for each position modulo the block size, the last byte produced
+     * (or read, when decrypting), starting with the IV. Inside a block of the pipeline, the bytes are
+     * chained with the bytes of the same block, 8 at a time when the chain blocks are long enough.
+     */
+    private static final class Chain implements Step {
+
+        private final byte[] iv;
+        private final boolean decrypt;
+
+        Chain(byte[] iv, boolean decrypt) {
+            this.iv = iv;
+            this.decrypt = decrypt;
+        }
+
+        @Override
+        public Object start() {
+            return new byte[][]{iv.clone(), new byte[iv.length]};
+        }
+
+        @Override
+        public void apply(byte[] data, int off, int len, long position, Object state) {
+            byte[] previous = ((byte[][]) state)[0];
+            byte[] saved = ((byte[][]) state)[1];
+            int T = previous.length;
+            int head = Math.min(T, len);
+            int j = (int) (position % T);
+            int tail = (int) ((position + len - head) % T);
+            if (decrypt) {
+                // The ciphertext chained with the next block is overwritten below
+                System.arraycopy(data, off + len - head, saved, 0, head);
+                // Backwards, so that data[i - T] is still the ciphertext
+                int i = len;
+                if (T >= Long.BYTES) {
+                    for (; i - Long.BYTES >= head; i -= Long.BYTES) {
+                        int at = off + i - Long.BYTES;
+                        LONGS.set(data, at, (long) LONGS.get(data, at) ^ (long) LONGS.get(data, at - T));
+                    }
+                }
+                for (i--; i >= head; i--) {
+                    data[off + i] ^= data[off + i - T];
+                }
+                chainHead(data, off, head, previous, j);
+                for (int k = 0; k < head; k++) {
+                    previous[tail] = saved[k];
+                    if (++tail == T)
+                        tail = 0;
+                }
+            } else {
+                chainHead(data, off, head, previous, j);
+                int i = head;
+                if (T >= Long.BYTES) {
+                    for (; i + Long.BYTES <= len; i += Long.BYTES) {
+                        LONGS.set(data, off + i, (long) LONGS.get(data, off + i) ^ (long) LONGS.get(data, off + i - T));
+                    }
+                }
+                for (; i < len; i++) {
+                    data[off + i] ^= data[off + i - T];
+                }
+                for (int k = len - head; k < len; k++) {
+                    previous[tail] = data[off + k];
+                    if (++tail == T)
+                        tail = 0;
+                }
+            }
+        }
+
+        /** Chain the first bytes of a pipeline block with the bytes of the previous one */
+        private static void chainHead(byte[] data, int off, int head, byte[] previous, int j) {
+            for (int i = 0; i < head; i++) {
+                data[off + i] ^= previous[j];
+                if (++j == previous.length)
+                    j = 0;
+            }
+        }
+    }
+
+    /**
+     * Keystream stage, the keystream being generated for each block
+     */
+    private static final class Pad implements Step {
+
+        private final Keystream pad;
+
+        Pad(Keystream pad) {
+            this.pad = pad;
+        }
+
+        @Override
+        public void apply(byte[] data, int off, int len, long position, Object state) {
+            pad.apply(position, data, off, data, off, len);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package ch.epfl.cs107.crypto;
+
+import static ch.epfl.cs107.crypto.ScalarKernel.LONGS;
+
+/**
+ * Cipher bound to its key, built once and reused for many messages.
+ * <p>
+ * The static methods of {@link Encrypt} and {@link Decrypt} check and derive the key material on every
+ * call. A compiled cipher does it once : the keyword of Vigenere's cipher (a single byte for Caesar's
+ * and the XOR ciphers) is expanded into a repeating pattern of at least a cache line, read 8 bytes at
+ * a time without any modulo, and the opposite pattern used to decrypt is computed up front. CBC chains
+ * the blocks 8 bytes at a time when the IV is long enough, without copying it.
+ * <p>
+ * Instances are immutable, so a single instance can be shared by all the threads. The encoded bytes are
+ * the same as the ones of the corresponding methods of {@link Encrypt} and {@link Decrypt}.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class CompiledCipher {
+
+    /** Minimal length of the expanded key pattern (a cache line) */
+    static final int PATTERN_BYTES = 64;
+
+    private enum Kind { ADD, XOR, CBC }
+
+    private final String name;
+    private final Kind kind;
+    /** Number of bytes after which the key repeats (length of the IV for CBC) */
+    private final int period;
+    /** Key repeated over <code>period + 7</code> bytes, so that 8 bytes can be read from any position */
+    private final byte[] encryption;
+    /** Same as {@link #encryption}, for the decryption */
+    private final byte[] decryption;
+
+    private CompiledCipher(String name, Kind kind, int period, byte[] encryption, byte[] decryption) {
+        this.name = name;
+        this.kind = kind;
+        this.period = period;
+        this.encryption = encryption;
+        this.decryption = decryption;
+    }
+
+    // ============================================================================================
+    // ======================================== CIPHERS ===========================================
+    // ============================================================================================
+
+    /**
+     * Compile Caesar's cipher, see {@link Encrypt#caesar(byte[], byte)}
+     * @param key the key used to shift the bytes
+     * @return the compiled cipher
+     */
+    public static CompiledCipher caesar(byte key) {
+        return shift("caesar", Kind.ADD, new byte[]{key});
+    }
+
+    /**
+     * Compile Vigenere's cipher, see {@link Encrypt#vigenere(byte[], byte[])}
+     * @param keyword the keyword used to shift the bytes, copied
+     * @return the compiled cipher
+     */
+    public static CompiledCipher vigenere(byte[] keyword) {
+        assert keyword != null && keyword.length > 0;
+        return shift("vigenere", Kind.ADD, keyword);
+    }
+
+    /**
+     * Compile the XOR cipher, see {@link Encrypt#xor(byte[], byte)}
+     * @param key the byte used to XOR
+     * @return the compiled cipher
+     */
+    public static CompiledCipher xor(byte key) {
+        return shift("xor", Kind.XOR, new byte[]{key});
+    }
+
+    /**
+     * Compile the CBC cipher, see {@link Encrypt#cbc(byte[], byte[])}
+     * @param iv the initialization vector, copied
+     * @return the compiled cipher
+     */
+    public static CompiledCipher cbc(byte[] iv) {
+        assert iv != null && iv.length > 0;
+        byte[] copy = iv.clone();
+        return new CompiledCipher("cbc", Kind.CBC, copy.length, copy, copy);
+    }
+
+    /**
+     * Expand the keyword of a byte-wise cipher
+     */
+    private static CompiledCipher shift(String name, Kind kind, byte[] keyword) {
+        int L = keyword.length;
+        int period = L * ((PATTERN_BYTES + L - 1) / L);
+        byte[] encryption = new byte[period + Long.BYTES - 1];
+        byte[] decryption = new byte[encryption.length];
+        for (int i = 0; i < encryption.length; i++) {
+            byte k = keyword[i % L];
+            encryption[i] = k;
+            decryption[i] = kind == Kind.ADD ? (byte) -k : k;
+        }
+        return new CompiledCipher(name, kind, period, encryption, decryption);
+    }
+
+    // ============================================================================================
+    // ======================================= ENCRYPTION =========================================
+    // ============================================================================================
+
+    /**
+     * Encrypt a message
+     * @param plainText the message to encode
+     * @return the encoded message
+     */
+    public byte[] encrypt(byte[] plainText) {
+        assert plainText != null;
+        byte[] cipherText = new byte[plainText.length];
+        encrypt(plainText, 0, cipherText, 0, plainText.length);
+        return cipherText;
+    }
+
+    /**
+     * Allocation-free variant of {@link #encrypt(byte[])}.
+     * The source and the destination can be the same array (in-place encoding).
+     * @param src the byte array containing the message to encode
+     * @param srcOff index of the first byte to encode
+     * @param dst the byte array receiving the encoded bytes
+     * @param dstOff index of the first encoded byte
+     * @param len number of bytes to encode
+     */
+    public void encrypt(byte[] src, int srcOff, byte[] dst, int dstOff, int len) {
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        if (kind == Kind.CBC)
+            chain(src, from, dst, dstOff, len);
+        else
+            shift(src, from, dst, dstOff, len, encryption);
+    }
+
+    // ============================================================================================
+    // ======================================= DECRYPTION =========================================
+    // ============================================================================================
+
+    /**
+     * Decrypt a message
+     * @param cipherText the message to decode
+     * @return the decoded message
+     */
+    public byte[] decrypt(byte[] cipherText) {
+        assert cipherText != null;
+        byte[] plainText = new byte[cipherText.length];
+        decrypt(cipherText, 0, plainText, 0, cipherText.length);
+        return plainText;
+    }
+
+    /**
+     * Allocation-free variant of {@link #decrypt(byte[])}.
+     * The source and the destination can be the same array (in-place decoding).
+     * @param src the byte array containing the message to decode
+     * @param srcOff index of the first byte to decode
+     * @param dst the byte array receiving the decoded bytes
+     * @param dstOff index of the first decoded byte
+     * @param len number of bytes to decode
+     */
+    public void decrypt(byte[] src, int srcOff, byte[] dst, int dstOff, int len) {
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        if (kind == Kind.CBC)
+            unchain(src, from, dst, dstOff, len);
+        else
+            shift(src, from, dst, dstOff, len, decryption);
+    }
+
+    /** @return name of the cipher */
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledCipher[" + name + "]";
+    }
+
+    // ============================================================================================
+    // ========================================= LOOPS ============================================
+    // ============================================================================================
+
+    /**
+     * Add or XOR the pattern, 8 bytes at a time
+     */
+    private void shift(byte[] src, int from, byte[] dst, int dstOff, int len, byte[] pattern) {
+        boolean add = kind == Kind.ADD;
+        int k = 0;
+        int i = 0;
+        for (; i + Long.BYTES <= len; i += Long.BYTES) {
+            long word = (long) LONGS.get(src, from + i);
+            long key = (long) LONGS.get(pattern, k);
+            LONGS.set(dst, dstOff + i, add ? ScalarKernel.add(word, key) : word ^ key);
+            k += Long.BYTES;
+            if (k >= period)
+                k -= period;
+        }
+        for (; i < len; i++, k++) {
+            dst[dstOff + i] = (byte) (add ? src[from + i] + pattern[k] : src[from + i] ^ pattern[k]);
+        }
+    }
+
+    /**
+     * CBC encryption : the previous block is read back from the destination, already encoded
+     */
+    private void chain(byte[] src, int from, byte[] dst, int dstOff, int len) {
+        byte[] iv = encryption;
+        int T = period;
+        int i = 0;
+        for (; i < Math.min(T, len); i++) {
+            dst[dstOff + i] = (byte) (src[from + i] ^ iv[i]);
+        }
+        if (T >= Long.BYTES) {
+            for (; i + Long.BYTES <= len; i += Long.BYTES) {
+                LONGS.set(dst, dstOff + i, (long) LONGS.get(src, from + i) ^ (long) LONGS.get(dst, dstOff + i - T));
+            }
+        }
+        for (; i < len; i++) {
+            dst[dstOff + i] = (byte) (src[from + i] ^ dst[dstOff + i - T]);
+        }
+    }
+
+    /**
+     * CBC decryption, backward : when decoding in place, the previous cipher block has not been
+     * overwritten yet
+     */
+    private void unchain(byte[] src, int from, byte[] dst, int dstOff, int len) {
+        byte[] iv = decryption;
+        int T = period;
+        int i = len;
+        if (T >= Long.BYTES) {
+            for (; i - Long.BYTES >= T; i -= Long.BYTES) {
+                int at = i - Long.BYTES;
+                LONGS.set(dst, dstOff + at, (long) LONGS.get(src, from + at) ^ (long) LONGS.get(src, from + at - T));
+            }
+        }
+        for (i--; i >= T; i--) {
+            dst[dstOff + i] = (byte) (src[from + i] ^ src[from + i - T]);
+        }
+        for (; i >= 0; i--) {
+            dst[dstOff + i] = (byte) (src[from + i] ^ iv[i]);
+        }
+    }
+}
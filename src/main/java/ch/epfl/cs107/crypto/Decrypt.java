@@ -1,5 +1,7 @@
 package ch.epfl.cs107.crypto;
 
+import java.nio.ByteBuffer;
+
 /**
  * <b>Task 2: </b>Utility class to decrypt a given cipher text.
  *
@@ -24,14 +26,50 @@ public final class Decrypt {
      * @return decoded message
      */
     public static byte[] caesar(byte[] cipher, byte key) {
-        assert cipher != null;
+        return caesar(cipher, key, CipherKernel.preferred());
+    }
+
+    /**
+     * Method to decode a byte array message using a single character key,
+     * with a given implementation of the loop
+     * <p>
+     * @param cipher Cipher message to decode
+     * @param key Key to decode with
+     * @param kernel implementation to use
+     * @return decoded message
+     */
+    public static byte[] caesar(byte[] cipher, byte key, CipherKernel kernel) {
+        assert cipher != null && kernel != null;
         byte[] plainText = new byte[cipher.length];
+        // Subtracting the key modulo 256 is adding its opposite
+        kernel.caesar(cipher, 0, plainText, 0, cipher.length, (byte) -key);
+        return plainText;
+    }
 
-        for (int i = 0; i < cipher.length; i++) {
-            plainText[i] = (byte) ((cipher[i] - key + 256) % 256);
-        }
+    /**
+     * Allocation-free variant of {@link #caesar(byte[], byte)}.
+     * The source and the destination can be the same array (in-place decoding).
+     * @param src the byte array containing the cipher
+     * @param srcOff index of the first byte to decode
+     * @param dst the byte array receiving the decoded bytes
+     * @param dstOff index of the first decoded byte
+     * @param len number of bytes to decode
+     * @param key Key to decode with
+     */
+    public static void caesar(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte key) {
+        Encrypt.caesar(src, srcOff, dst, dstOff, len, (byte) -key);
+    }
 
-        return plainText;
+    /**
+     * Allocation-free variant of {@link #caesar(byte[], byte)} on buffers (heap or direct).
+     * All the remaining bytes of <code>src</code> are decoded into <code>dst</code>, the positions
+     * of both buffers are moved accordingly. <code>src</code> and <code>dst</code> can be the same buffer.
+     * @param src buffer containing the cipher
+     * @param dst buffer receiving the decoded bytes
+     * @param key Key to decode with
+     */
+    public static void caesar(ByteBuffer src, ByteBuffer dst, byte key) {
+        Encrypt.caesar(src, dst, (byte) -key);
     }
 
 
@@ -48,12 +86,56 @@ public final class Decrypt {
     public static byte[] vigenere(byte[] cipher, byte[] keyword) {
         assert cipher != null && keyword != null && keyword.length > 0;
         byte[] plainText = new byte[cipher.length];
+        vigenere(cipher, 0, plainText, 0, cipher.length, keyword);
+        return plainText;
+    }
 
-        for (int i = 0; i < cipher.length; i++) {
-            plainText[i] = (byte) ((cipher[i] - keyword[i % keyword.length] + 256) % 256);
+    /**
+     * Allocation-free variant of {@link #vigenere(byte[], byte[])}, the keyword starts
+     * at <code>srcOff</code>. The source and the destination can be the same array (in-place decoding).
+     * @param src the byte array containing the cipher
+     * @param srcOff index of the first byte to decode
+     * @param dst the byte array receiving the decoded bytes
+     * @param dstOff index of the first decoded byte
+     * @param len number of bytes to decode
+     * @param keyword Key to decode with
+     */
+    public static void vigenere(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte[] keyword) {
+        assert keyword != null && keyword.length > 0;
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        int k = 0;
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] = (byte) (src[from + i] - keyword[k]);
+            if (++k == keyword.length)
+                k = 0;
         }
+    }
 
-        return plainText;
+    /**
+     * Allocation-free variant of {@link #vigenere(byte[], byte[])} on buffers (heap or direct),
+     * the keyword starts at the position of <code>src</code>.
+     * All the remaining bytes of <code>src</code> are decoded into <code>dst</code>, the positions
+     * of both buffers are moved accordingly. <code>src</code> and <code>dst</code> can be the same buffer.
+     * @param src buffer containing the cipher
+     * @param dst buffer receiving the decoded bytes
+     * @param keyword Key to decode with
+     */
+    public static void vigenere(ByteBuffer src, ByteBuffer dst, byte[] keyword) {
+        int len = Ranges.check(src, dst);
+        if (Ranges.hasArrays(src, dst)) {
+            vigenere(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(), len, keyword);
+        } else {
+            assert keyword != null && keyword.length > 0;
+            int s = src.position();
+            int d = dst.position();
+            int k = 0;
+            for (int i = 0; i < len; i++) {
+                dst.put(d + i, (byte) (src.get(s + i) - keyword[k]));
+                if (++k == keyword.length)
+                    k = 0;
+            }
+        }
+        Ranges.advance(src, dst, len);
     }
 
 
@@ -77,28 +159,59 @@ public final class Decrypt {
         assert blockSize > 0 && cipher.length % blockSize == 0; // Cipher text must be a multiple of block size
 
         byte[] plainText = new byte[cipher.length];
-        byte[] previousBlock = new byte[blockSize];
-
-        // Copy IV into previousBlock for the initial XOR operation
-        System.arraycopy(iv, 0, previousBlock, 0, blockSize);
+        cbc(cipher, 0, plainText, 0, cipher.length, iv);
+        return plainText;
+    }
 
-        for (int i = 0; i < cipher.length; i += blockSize) {
-            int blockLength = Math.min(blockSize, cipher.length - i); // Get length of current block
+    /**
+     * Allocation-free variant of {@link #cbc(byte[], byte[])}.
+     * The source and the destination can be the same array (in-place decoding).
+     * @param src the byte array containing the cipher
+     * @param srcOff index of the first byte to decode
+     * @param dst the byte array receiving the decoded bytes
+     * @param dstOff index of the first decoded byte
+     * @param len number of bytes to decode
+     * @param iv the initialization vector used to start the chain decoding
+     */
+    public static void cbc(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte[] iv) {
+        assert iv != null && iv.length > 0;
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        int blockSize = iv.length;
 
-            // Temporary array to hold the current cipher block before updating previousBlock
-            byte[] currentCipherBlock = new byte[blockLength];
-            System.arraycopy(cipher, i, currentCipherBlock, 0, blockLength);
+        // Go backward : when decoding in place, the previous cipher block has not been overwritten yet
+        int i = len - 1;
+        for (; i >= blockSize; i--) {
+            dst[dstOff + i] = (byte) (src[from + i] ^ src[from + i - blockSize]);
+        }
+        // The first block is chained with the IV
+        for (; i >= 0; i--) {
+            dst[dstOff + i] = (byte) (src[from + i] ^ iv[i]);
+        }
+    }
 
-            // XOR the cipher block with previousBlock to get the plaintext block
-            for (int j = 0; j < blockLength; j++) {
-                plainText[i + j] = (byte) (cipher[i + j] ^ previousBlock[j]);
+    /**
+     * Allocation-free variant of {@link #cbc(byte[], byte[])} on buffers (heap or direct).
+     * All the remaining bytes of <code>src</code> are decoded into <code>dst</code>, the positions
+     * of both buffers are moved accordingly. <code>src</code> and <code>dst</code> can be the same buffer.
+     * @param src buffer containing the cipher
+     * @param dst buffer receiving the decoded bytes
+     * @param iv the initialization vector used to start the chain decoding
+     */
+    public static void cbc(ByteBuffer src, ByteBuffer dst, byte[] iv) {
+        int len = Ranges.check(src, dst);
+        if (Ranges.hasArrays(src, dst)) {
+            cbc(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(), len, iv);
+        } else {
+            assert iv != null && iv.length > 0;
+            int s = src.position();
+            int d = dst.position();
+            int blockSize = iv.length;
+            for (int i = len - 1; i >= 0; i--) {
+                byte previous = i < blockSize ? iv[i] : src.get(s + i - blockSize);
+                dst.put(d + i, (byte) (src.get(s + i) ^ previous));
             }
-
-            // Update previousBlock with the current cipher block for the next iteration
-            System.arraycopy(currentCipherBlock, 0, previousBlock, 0, blockLength);
         }
-
-        return plainText;
+        Ranges.advance(src, dst, len);
     }
 
 
@@ -115,11 +228,45 @@ public final class Decrypt {
      * @return decoded message
      */
     public static byte[] xor(byte[] cipher, byte key) {
+        return xor(cipher, key, CipherKernel.preferred());
+    }
+
+    /**
+     * Method to decode xor-encrypted ciphers, with a given implementation of the loop
+     * @param cipher text to decode
+     * @param key the byte we will use to XOR
+     * @param kernel implementation to use
+     * @return decoded message
+     */
+    public static byte[] xor(byte[] cipher, byte key, CipherKernel kernel) {
         assert cipher != null;
-        byte[] plainText;
-        plainText = Encrypt.xor(cipher, key);
+        return Encrypt.xor(cipher, key, kernel);
+    }
 
-        return plainText;
+    /**
+     * Allocation-free variant of {@link #xor(byte[], byte)}.
+     * The source and the destination can be the same array (in-place decoding).
+     * @param src the byte array containing the cipher
+     * @param srcOff index of the first byte to decode
+     * @param dst the byte array receiving the decoded bytes
+     * @param dstOff index of the first decoded byte
+     * @param len number of bytes to decode
+     * @param key the byte we will use to XOR
+     */
+    public static void xor(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte key) {
+        Encrypt.xor(src, srcOff, dst, dstOff, len, key);
+    }
+
+    /**
+     * Allocation-free variant of {@link #xor(byte[], byte)} on buffers (heap or direct).
+     * All the remaining bytes of <code>src</code> are decoded into <code>dst</code>, the positions
+     * of both buffers are moved accordingly. <code>src</code> and <code>dst</code> can be the same buffer.
+     * @param src buffer containing the cipher
+     * @param dst buffer receiving the decoded bytes
+     * @param key the byte we will use to XOR
+     */
+    public static void xor(ByteBuffer src, ByteBuffer dst, byte key) {
+        Encrypt.xor(src, dst, key);
     }
 
     // ============================================================================================
@@ -133,6 +280,17 @@ public final class Decrypt {
      * @return decoded message
      */
     public static byte[] oneTimePad(byte[] cipher, byte[] pad) {
+        return oneTimePad(cipher, pad, CipherKernel.preferred());
+    }
+
+    /**
+     * Method to decode otp-encrypted ciphers, with a given implementation of the loop
+     * @param cipher text to decode
+     * @param pad the one-time pad to use
+     * @param kernel implementation to use
+     * @return decoded message
+     */
+    public static byte[] oneTimePad(byte[] cipher, byte[] pad, CipherKernel kernel) {
         // Check that pad is not null and has a valid length
         assert pad != null && pad.length > 0;
 
@@ -147,15 +305,76 @@ public final class Decrypt {
         // Check that the length of the pad matches the length of the cipher
         assert pad.length == cipher.length;
 
-        // Create an array for the plaintext
+        // XOR operation for decryption
         byte[] plainText = new byte[cipher.length];
+        kernel.oneTimePad(cipher, 0, pad, 0, plainText, 0, cipher.length);
+        return plainText; // Return the decrypted plaintext
+    }
 
-        // XOR operation for decryption
-        for (int i = 0; i < cipher.length; i++) {
-            plainText[i] = (byte) (cipher[i] ^ pad[i]); // XOR each byte of cipher with corresponding pad byte
-        }
+    /**
+     * Allocation-free variant of {@link #oneTimePad(byte[], byte[])}.
+     * The source and the destination can be the same array (in-place decoding).
+     * @param src the byte array containing the cipher
+     * @param srcOff index of the first byte to decode
+     * @param dst the byte array receiving the decoded bytes
+     * @param dstOff index of the first decoded byte
+     * @param len number of bytes to decode
+     * @param pad the one-time pad to use
+     * @param padOff index of the first byte of the pad to use
+     */
+    public static void oneTimePad(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte[] pad, int padOff) {
+        Encrypt.oneTimePad(src, srcOff, dst, dstOff, len, pad, padOff);
+    }
 
-        return plainText; // Return the decrypted plaintext
+    /**
+     * Allocation-free variant of {@link #oneTimePad(byte[], byte[])} on buffers (heap or direct).
+     * All the remaining bytes of <code>src</code> are decoded into <code>dst</code>, using as many
+     * bytes of <code>pad</code>. The positions of the three buffers are moved accordingly.
+     * <code>src</code> and <code>dst</code> can be the same buffer.
+     * @param src buffer containing the cipher
+     * @param dst buffer receiving the decoded bytes
+     * @param pad buffer containing the one-time pad
+     */
+    public static void oneTimePad(ByteBuffer src, ByteBuffer dst, ByteBuffer pad) {
+        Encrypt.oneTimePad(src, dst, pad);
+    }
+
+    /**
+     * Method to decode ciphers encoded with a keystream generated on the fly (not a one-time pad, see {@link Keystream})
+     * @param cipher text to decode
+     * @param pad the keystream, used from its first byte
+     * @return decoded message
+     */
+    public static byte[] oneTimePad(byte[] cipher, Keystream pad) {
+        return Encrypt.oneTimePad(cipher, pad);
+    }
+
+    /**
+     * Allocation-free variant of {@link #oneTimePad(byte[], Keystream)}, decoding a chunk of a longer
+     * cipher. The source and the destination can be the same array (in-place decoding).
+     * @param src the byte array containing the cipher
+     * @param srcOff index of the first byte to decode
+     * @param dst the byte array receiving the decoded bytes
+     * @param dstOff index of the first decoded byte
+     * @param len number of bytes to decode
+     * @param pad the keystream
+     * @param position position of the first byte to decode in the whole cipher
+     */
+    public static void oneTimePad(byte[] src, int srcOff, byte[] dst, int dstOff, int len, Keystream pad, long position) {
+        Encrypt.oneTimePad(src, srcOff, dst, dstOff, len, pad, position);
+    }
+
+    /**
+     * Allocation-free variant of {@link #oneTimePad(byte[], Keystream)} on buffers (heap or direct).
+     * All the remaining bytes of <code>src</code> are decoded into <code>dst</code>, the positions
+     * of both buffers are moved accordingly. <code>src</code> and <code>dst</code> can be the same buffer.
+     * @param src buffer containing the cipher
+     * @param dst buffer receiving the decoded bytes
+     * @param pad the keystream
+     * @param position position of the first byte to decode in the whole cipher
+     */
+    public static void oneTimePad(ByteBuffer src, ByteBuffer dst, Keystream pad, long position) {
+        Encrypt.oneTimePad(src, dst, pad, position);
     }
 
 }
@@ -1,5 +1,6 @@
 package ch.epfl.cs107.crypto;
 
+import java.nio.ByteBuffer;
 import java.util.Random;
 import ch.epfl.cs107.Helper;
 
@@ -37,15 +38,62 @@ public final class Encrypt {
      * @return an encoded byte array
      */
     public static byte[] caesar(byte[] plainText, byte key) {
-        assert plainText != null;
-        byte[] cipherText = new byte[plainText.length];
+        return caesar(plainText, key, CipherKernel.preferred());
+    }
 
-        for(int i = 0; i < plainText.length; i++){
-            cipherText[i] = (byte) (plainText[i] + key);
-        }
+    /**
+     * Method to encode a byte array message using a single character key,
+     * with a given implementation of the loop
+     *
+     * @param plainText The byte array representing the string to encode
+     * @param key the byte corresponding to the char we use to shift
+     * @param kernel implementation to use
+     * @return an encoded byte array
+     */
+    public static byte[] caesar(byte[] plainText, byte key, CipherKernel kernel) {
+        assert plainText != null && kernel != null;
+        byte[] cipherText = new byte[plainText.length];
+        kernel.caesar(plainText, 0, cipherText, 0, plainText.length, key);
         return cipherText;
+    }
 
+    /**
+     * Allocation-free variant of {@link #caesar(byte[], byte)}.
+     * The source and the destination can be the same array (in-place encoding).
+     *
+     * @param src the byte array containing the plain text
+     * @param srcOff index of the first byte to encode
+     * @param dst the byte array receiving the encoded bytes
+     * @param dstOff index of the first encoded byte
+     * @param len number of bytes to encode
+     * @param key the byte corresponding to the char we use to shift
+     */
+    public static void caesar(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte key) {
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        CipherKernel.preferred().caesar(src, from, dst, dstOff, len, key);
+    }
 
+    /**
+     * Allocation-free variant of {@link #caesar(byte[], byte)} on buffers (heap or direct).
+     * All the remaining bytes of <code>src</code> are encoded into <code>dst</code>, the positions
+     * of both buffers are moved accordingly. <code>src</code> and <code>dst</code> can be the same buffer.
+     *
+     * @param src buffer containing the plain text
+     * @param dst buffer receiving the encoded bytes
+     * @param key the byte corresponding to the char we use to shift
+     */
+    public static void caesar(ByteBuffer src, ByteBuffer dst, byte key) {
+        int len = Ranges.check(src, dst);
+        if (Ranges.hasArrays(src, dst)) {
+            caesar(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(), len, key);
+        } else {
+            int s = src.position();
+            int d = dst.position();
+            for (int i = 0; i < len; i++) {
+                dst.put(d + i, (byte) (src.get(s + i) + key));
+            }
+        }
+        Ranges.advance(src, dst, len);
     }
 
     // ============================================================================================
@@ -63,14 +111,58 @@ public final class Encrypt {
     public static byte[] vigenere(byte[] plainText, byte[] keyword) {
         assert plainText != null && keyword != null && keyword.length > 0;
         byte[] cipherText = new byte[plainText.length];
+        vigenere(plainText, 0, cipherText, 0, plainText.length, keyword);
+        return cipherText;
+    }
 
-        for(int i = 0; i < plainText.length; i++){
-
-            cipherText[i] = (byte) (plainText[i] + keyword[i % keyword.length]);
-
+    /**
+     * Allocation-free variant of {@link #vigenere(byte[], byte[])}, the keyword starts
+     * at <code>srcOff</code>. The source and the destination can be the same array (in-place encoding).
+     *
+     * @param src the byte array containing the message to encode
+     * @param srcOff index of the first byte to encode
+     * @param dst the byte array receiving the encoded bytes
+     * @param dstOff index of the first encoded byte
+     * @param len number of bytes to encode
+     * @param keyword the byte array representing the key used to perform the shift
+     */
+    public static void vigenere(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte[] keyword) {
+        assert keyword != null && keyword.length > 0;
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        int k = 0;
+        for (int i = 0; i < len; i++) {
+            dst[dstOff + i] = (byte) (src[from + i] + keyword[k]);
+            if (++k == keyword.length)
+                k = 0;
         }
-        return cipherText;
+    }
 
+    /**
+     * Allocation-free variant of {@link #vigenere(byte[], byte[])} on buffers (heap or direct),
+     * the keyword starts at the position of <code>src</code>.
+     * All the remaining bytes of <code>src</code> are encoded into <code>dst</code>, the positions
+     * of both buffers are moved accordingly. <code>src</code> and <code>dst</code> can be the same buffer.
+     *
+     * @param src buffer containing the message to encode
+     * @param dst buffer receiving the encoded bytes
+     * @param keyword the byte array representing the key used to perform the shift
+     */
+    public static void vigenere(ByteBuffer src, ByteBuffer dst, byte[] keyword) {
+        int len = Ranges.check(src, dst);
+        if (Ranges.hasArrays(src, dst)) {
+            vigenere(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(), len, keyword);
+        } else {
+            assert keyword != null && keyword.length > 0;
+            int s = src.position();
+            int d = dst.position();
+            int k = 0;
+            for (int i = 0; i < len; i++) {
+                dst.put(d + i, (byte) (src.get(s + i) + keyword[k]));
+                if (++k == keyword.length)
+                    k = 0;
+            }
+        }
+        Ranges.advance(src, dst, len);
     }
 
     // ============================================================================================
@@ -85,26 +177,62 @@ public final class Encrypt {
      */
     public static byte[] cbc(byte[] plainText, byte[] iv) {
         assert plainText != null && iv != null && iv.length > 0;
-        int T = iv.length;
         byte[] cipherText = new byte[plainText.length];
-        byte[] previousBlock = new byte[T];
+        cbc(plainText, 0, cipherText, 0, plainText.length, iv);
+        return cipherText;
+    }
 
-        // Copy IV into the previousBlock
-        System.arraycopy(iv, 0, previousBlock, 0, T);
+    /**
+     * Allocation-free variant of {@link #cbc(byte[], byte[])}.
+     * The source and the destination can be the same array (in-place encoding).
+     *
+     * @param src the byte array containing the string to encode
+     * @param srcOff index of the first byte to encode
+     * @param dst the byte array receiving the encoded bytes
+     * @param dstOff index of the first encoded byte
+     * @param len number of bytes to encode
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     */
+    public static void cbc(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte[] iv) {
+        assert iv != null && iv.length > 0;
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        int T = iv.length;
 
-        for (int i = 0; i < plainText.length; i += T) {
-            int blockLength = (i + T <= plainText.length) ? T : plainText.length - i;
+        // The first block is chained with the IV
+        int i = 0;
+        for (; i < Math.min(T, len); i++) {
+            dst[dstOff + i] = (byte) (src[from + i] ^ iv[i]);
+        }
+        // The other blocks are chained with the previous block, already encoded in dst
+        for (; i < len; i++) {
+            dst[dstOff + i] = (byte) (src[from + i] ^ dst[dstOff + i - T]);
+        }
+    }
 
-            // XOR the plainText block with previousBlock
-            for (int j = 0; j < blockLength; j++) {
-                cipherText[i + j] = (byte) (plainText[i + j] ^ previousBlock[j]);
+    /**
+     * Allocation-free variant of {@link #cbc(byte[], byte[])} on buffers (heap or direct).
+     * All the remaining bytes of <code>src</code> are encoded into <code>dst</code>, the positions
+     * of both buffers are moved accordingly. <code>src</code> and <code>dst</code> can be the same buffer.
+     *
+     * @param src buffer containing the string to encode
+     * @param dst buffer receiving the encoded bytes
+     * @param iv the pad of size BLOCKSIZE we use to start the chain encoding
+     */
+    public static void cbc(ByteBuffer src, ByteBuffer dst, byte[] iv) {
+        int len = Ranges.check(src, dst);
+        if (Ranges.hasArrays(src, dst)) {
+            cbc(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(), len, iv);
+        } else {
+            assert iv != null && iv.length > 0;
+            int s = src.position();
+            int d = dst.position();
+            int T = iv.length;
+            for (int i = 0; i < len; i++) {
+                byte previous = i < T ? iv[i] : dst.get(d + i - T);
+                dst.put(d + i, (byte) (src.get(s + i) ^ previous));
             }
-
-            // Update previousBlock with the current cipherText block
-            System.arraycopy(cipherText, i, previousBlock, 0, blockLength);
         }
-
-        return cipherText;
+        Ranges.advance(src, dst, len);
     }
 
 
@@ -119,14 +247,61 @@ public final class Encrypt {
      * @return an encoded byte array
      */
     public static byte[] xor(byte[] plainText, byte key) {
-        assert plainText != null;
-        byte[] cipherText = new byte[plainText.length];
+        return xor(plainText, key, CipherKernel.preferred());
+    }
 
-        for(int i = 0; i < plainText.length; i++){
-            cipherText[i] = (byte) (plainText[i] ^ key);
-        }
+    /**
+     * Method to encode a byte array using a XOR with a single byte long key,
+     * with a given implementation of the loop
+     * @param plainText the byte array representing the string to encode
+     * @param key the byte we will use to XOR
+     * @param kernel implementation to use
+     * @return an encoded byte array
+     */
+    public static byte[] xor(byte[] plainText, byte key, CipherKernel kernel) {
+        assert plainText != null && kernel != null;
+        byte[] cipherText = new byte[plainText.length];
+        kernel.xor(plainText, 0, cipherText, 0, plainText.length, key);
         return cipherText;
+    }
 
+    /**
+     * Allocation-free variant of {@link #xor(byte[], byte)}.
+     * The source and the destination can be the same array (in-place encoding).
+     *
+     * @param src the byte array containing the string to encode
+     * @param srcOff index of the first byte to encode
+     * @param dst the byte array receiving the encoded bytes
+     * @param dstOff index of the first encoded byte
+     * @param len number of bytes to encode
+     * @param key the byte we will use to XOR
+     */
+    public static void xor(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte key) {
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        CipherKernel.preferred().xor(src, from, dst, dstOff, len, key);
+    }
+
+    /**
+     * Allocation-free variant of {@link #xor(byte[], byte)} on buffers (heap or direct).
+     * All the remaining bytes of <code>src</code> are encoded into <code>dst</code>, the positions
+     * of both buffers are moved accordingly. <code>src</code> and <code>dst</code> can be the same buffer.
+     *
+     * @param src buffer containing the string to encode
+     * @param dst buffer receiving the encoded bytes
+     * @param key the byte we will use to XOR
+     */
+    public static void xor(ByteBuffer src, ByteBuffer dst, byte key) {
+        int len = Ranges.check(src, dst);
+        if (Ranges.hasArrays(src, dst)) {
+            xor(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(), len, key);
+        } else {
+            int s = src.position();
+            int d = dst.position();
+            for (int i = 0; i < len; i++) {
+                dst.put(d + i, (byte) (src.get(s + i) ^ key));
+            }
+        }
+        Ranges.advance(src, dst, len);
     }
 
     // ============================================================================================
@@ -142,19 +317,27 @@ public final class Encrypt {
      * @return an encoded byte array
      */
     public static byte[] oneTimePad(byte[] plainText, byte[] pad) {
+        return oneTimePad(plainText, pad, CipherKernel.preferred());
+    }
+
+    /**
+     * Method to encode a byte array using a one-time pad of the same length,
+     * with a given implementation of the loop
+     *
+     * @param plainText the byte array representing the string to encode
+     * @param pad the one-time pad
+     * @param kernel implementation to use
+     * @return an encoded byte array
+     */
+    public static byte[] oneTimePad(byte[] plainText, byte[] pad, CipherKernel kernel) {
         assert plainText != null;
         assert pad != null;
         assert pad.length == plainText.length;
-
-        if (plainText.length == 0) {
-            return new byte[0];  // Return an empty array for empty plainText
-        }
+        assert kernel != null;
 
         byte[] cipherText = new byte[plainText.length];
-        for (int i = 0; i < plainText.length; i++) {
-            cipherText[i] = (byte) (plainText[i] ^ pad[i]); // XOR operation
-        }
-        return cipherText; // Return the resulting cipher text
+        kernel.oneTimePad(plainText, 0, pad, 0, cipherText, 0, plainText.length);
+        return cipherText;
     }
 
 
@@ -169,14 +352,117 @@ public final class Encrypt {
         assert pad.length == plainText.length;
         assert plainText.length == result.length;
 
+        CipherKernel.preferred().oneTimePad(plainText, 0, pad, 0, result, 0, plainText.length);
+    }
 
+    /**
+     * Allocation-free variant of {@link #oneTimePad(byte[], byte[])}.
+     * The source and the destination can be the same array (in-place encoding).
+     *
+     * @param src the byte array containing the string to encode
+     * @param srcOff index of the first byte to encode
+     * @param dst the byte array receiving the encoded bytes
+     * @param dstOff index of the first encoded byte
+     * @param len number of bytes to encode
+     * @param pad the one-time pad
+     * @param padOff index of the first byte of the pad to use
+     */
+    public static void oneTimePad(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte[] pad, int padOff) {
+        assert pad != null && padOff >= 0 && padOff + len <= pad.length;
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        CipherKernel.preferred().oneTimePad(src, from, pad, padOff, dst, dstOff, len);
+    }
 
-        for(int i = 0; i < plainText.length; i++){
-
-            result[i] = (byte) (plainText[i] ^ pad[i]);
+    /**
+     * Allocation-free variant of {@link #oneTimePad(byte[], byte[])} on buffers (heap or direct).
+     * All the remaining bytes of <code>src</code> are encoded into <code>dst</code>, using as many
+     * bytes of <code>pad</code>. The positions of the three buffers are moved accordingly.
+     * <code>src</code> and <code>dst</code> can be the same buffer.
+     *
+     * @param src buffer containing the string to encode
+     * @param dst buffer receiving the encoded bytes
+     * @param pad buffer containing the one-time pad
+     */
+    public static void oneTimePad(ByteBuffer src, ByteBuffer dst, ByteBuffer pad) {
+        int len = Ranges.check(src, dst);
+        assert pad != null && pad.remaining() >= len;
+        if (Ranges.hasArrays(src, dst) && pad.hasArray()) {
+            oneTimePad(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(), len,
+                    pad.array(), pad.arrayOffset() + pad.position());
+        } else {
+            int s = src.position();
+            int d = dst.position();
+            int p = pad.position();
+            for (int i = 0; i < len; i++) {
+                dst.put(d + i, (byte) (src.get(s + i) ^ pad.get(p + i)));
+            }
         }
+        pad.position(pad.position() + len);
+        Ranges.advance(src, dst, len);
+    }
+
+    /**
+     * Method to encode a byte array with a keystream generated on the fly, the keystream is never
+     * stored. Unlike a one-time pad, the keystream only has a 64 bits key and is not secure, see {@link Keystream}
+     *
+     * @param plainText the byte array representing the string to encode
+     * @param pad the keystream, used from its first byte
+     * @return an encoded byte array
+     */
+    public static byte[] oneTimePad(byte[] plainText, Keystream pad) {
+        assert plainText != null && pad != null;
+        byte[] cipherText = new byte[plainText.length];
+        pad.apply(0, plainText, 0, cipherText, 0, plainText.length);
+        return cipherText;
+    }
 
+    /**
+     * Allocation-free variant of {@link #oneTimePad(byte[], Keystream)}, encoding a chunk of a longer
+     * message. The source and the destination can be the same array (in-place encoding).
+     *
+     * @param src the byte array containing the string to encode
+     * @param srcOff index of the first byte to encode
+     * @param dst the byte array receiving the encoded bytes
+     * @param dstOff index of the first encoded byte
+     * @param len number of bytes to encode
+     * @param pad the keystream
+     * @param position position of the first byte to encode in the whole message
+     */
+    public static void oneTimePad(byte[] src, int srcOff, byte[] dst, int dstOff, int len, Keystream pad, long position) {
+        assert pad != null && position >= 0;
+        int from = Ranges.prepare(src, srcOff, dst, dstOff, len);
+        pad.apply(position, src, from, dst, dstOff, len);
+    }
 
+    /**
+     * Allocation-free variant of {@link #oneTimePad(byte[], Keystream)} on buffers (heap or direct).
+     * All the remaining bytes of <code>src</code> are encoded into <code>dst</code>, the positions
+     * of both buffers are moved accordingly. <code>src</code> and <code>dst</code> can be the same buffer.
+     *
+     * @param src buffer containing the string to encode
+     * @param dst buffer receiving the encoded bytes
+     * @param pad the keystream
+     * @param position position of the first byte to encode in the whole message
+     */
+    public static void oneTimePad(ByteBuffer src, ByteBuffer dst, Keystream pad, long position) {
+        int len = Ranges.check(src, dst);
+        assert pad != null && position >= 0;
+        if (Ranges.hasArrays(src, dst)) {
+            oneTimePad(src.array(), src.arrayOffset() + src.position(), dst.array(), dst.arrayOffset() + dst.position(), len,
+                    pad, position);
+        } else {
+            int s = src.position();
+            int d = dst.position();
+            long word = 0;
+            for (int i = 0; i < len; i++) {
+                long p = position + i;
+                // A word of the pad serves 8 consecutive bytes
+                if (i == 0 || (p & 7) == 0)
+                    word = pad.word(p >>> 3);
+                dst.put(d + i, (byte) (src.get(s + i) ^ (word >>> ((p & 7) << 3))));
+            }
+        }
+        Ranges.advance(src, dst, len);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,419 @@
+package ch.epfl.cs107.crypto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Recover the key of a text encrypted with {@link Encrypt#caesar(byte[], byte)} or
+ * {@link Encrypt#xor(byte[], byte)} by trying the 256 keys, and the keyword of a text encrypted
+ * with {@link Encrypt#vigenere(byte[], byte[])}.
+ * <p>
+ * Each key is scored by the average log-probability of the bytes it decodes under a model of
+ * English text. A decoded byte only depends on the key and on the cipher byte, so the score of a
+ * key is computed from the histogram of the cipher : nothing is ever decrypted, and scoring a key
+ * costs 256 operations whatever the length of the cipher. All the keys are first scored on the
+ * histogram of a prefix of the cipher, then the best ones are scored again on the histogram of the
+ * whole cipher. Histograms and scores are computed in parallel by a {@link ForkJoinPool}.
+ * <p>
+ * The length of a Vigenere keyword is found with the index of coincidence : when the cipher is
+ * split in as many columns as the keyword has bytes, each column is a Caesar cipher, whose bytes
+ * are distributed as unevenly as in the plain text. Each column is then solved as a Caesar cipher.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class KeySearch {
+
+    /** Name of the system property used to configure the sample size of {@link #DEFAULT} */
+    public static final String SAMPLE_PROPERTY = "cs107.keysearch.sample";
+
+    /** Engine using the common pool, with a sample of 64 KiB unless configured otherwise */
+    public static final KeySearch DEFAULT =
+            new KeySearch(ForkJoinPool.commonPool(), Integer.getInteger(SAMPLE_PROPERTY, 1 << 16));
+
+    /** Number of keys of a single byte */
+    static final int KEYS = 256;
+
+    /** Minimal number of keys scored again on the whole cipher */
+    static final int RESCORED = 8;
+
+    /** Keys scored by a single task */
+    private static final int KEYS_PER_TASK = 32;
+
+    /**
+     * A keyword length is kept if its index of coincidence reaches this fraction of the best one,
+     * so the shortest of the lengths sharing the best index (the multiples of the keyword length)
+     * is chosen
+     */
+    static final double COINCIDENCE_RATIO = 0.9;
+
+    /** Natural logarithm of the probability of each byte in English text */
+    static final double[] ENGLISH = english();
+
+    private final ForkJoinPool pool;
+    private final ParallelCipher engine;
+    private final int sample;
+
+    /**
+     * Create an engine running on the common pool
+     * @param sample number of bytes of the prefix used to score all the keys
+     */
+    public KeySearch(int sample) {
+        this(ForkJoinPool.commonPool(), sample);
+    }
+
+    /**
+     * Create an engine running on a given pool
+     * @param pool pool to run the tasks on
+     * @param sample number of bytes of the prefix used to score all the keys
+     */
+    public KeySearch(ForkJoinPool pool, int sample) {
+        assert pool != null && sample > 0;
+        this.pool = pool;
+        this.engine = new ParallelCipher(pool, 0);
+        this.sample = sample;
+    }
+
+    /** @return number of bytes of the prefix used to score all the keys */
+    public int sample() {
+        return sample;
+    }
+
+    // ============================================================================================
+    // ======================================== CANDIDATES ========================================
+    // ============================================================================================
+
+    /**
+     * A key and the score of the text it decodes
+     */
+    public static final class Candidate {
+
+        private final byte key;
+        private final double score;
+
+        Candidate(byte key, double score) {
+            this.key = key;
+            this.score = score;
+        }
+
+        /** @return the key */
+        public byte key() {
+            return key;
+        }
+
+        /** @return average log-probability of a decoded byte, the higher the better (at most 0) */
+        public double score() {
+            return score;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d (%.4f)", key, score);
+        }
+    }
+
+    /**
+     * Way a single byte key is combined with the plain text
+     */
+    enum Shift {
+        /** {@link Encrypt#caesar(byte[], byte)} */
+        CAESAR {
+            @Override
+            int decode(int cipher, int key) {
+                return (cipher - key) & 0xFF;
+            }
+        },
+        /** {@link Encrypt#xor(byte[], byte)} */
+        XOR {
+            @Override
+            int decode(int cipher, int key) {
+                return cipher ^ key;
+            }
+        };
+
+        /**
+         * @param cipher cipher byte, from 0 to 255
+         * @param key key, from 0 to 255
+         * @return the plain byte, from 0 to 255
+         */
+        abstract int decode(int cipher, int key);
+    }
+
+    // ============================================================================================
+    // ========================================= SEARCH ===========================================
+    // ============================================================================================
+
+    /**
+     * Rank the keys of a text encrypted with {@link Encrypt#caesar(byte[], byte)}
+     * @param cipher the encrypted text
+     * @param count number of keys to return
+     * @return the <code>count</code> best keys, best first
+     */
+    public List<Candidate> caesar(byte[] cipher, int count) {
+        return search(cipher, count, Shift.CAESAR);
+    }
+
+    /**
+     * Rank the keys of a text encrypted with {@link Encrypt#xor(byte[], byte)}
+     * @param cipher the encrypted text
+     * @param count number of keys to return
+     * @return the <code>count</code> best keys, best first
+     */
+    public List<Candidate> xor(byte[] cipher, int count) {
+        return search(cipher, count, Shift.XOR);
+    }
+
+    /**
+     * Score all the keys on a prefix of the cipher, then the best ones on the whole cipher
+     */
+    private List<Candidate> search(byte[] cipher, int count, Shift shift) {
+        assert cipher != null && cipher.length > 0;
+        assert count > 0 && count <= KEYS;
+
+        int prefix = Math.min(sample, cipher.length);
+        long[] histogram = histogram(cipher, 0, prefix, 1);
+        double[] scores = new double[KEYS];
+        pool.invoke(new IndexTask(0, KEYS, KEYS_PER_TASK, k -> scores[k] = score(histogram, k, shift)));
+        List<Candidate> ranked = rank(scores);
+        if (prefix == cipher.length)
+            return ranked.subList(0, count);
+
+        long[] full = histogram(cipher, 0, cipher.length, 1);
+        List<Candidate> best = new ArrayList<>(ranked.subList(0, Math.max(count, RESCORED)));
+        best.replaceAll(candidate -> new Candidate(candidate.key(), score(full, candidate.key() & 0xFF, shift)));
+        best.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        return best.subList(0, count);
+    }
+
+    // ============================================================================================
+    // ======================================== VIGENERE ==========================================
+    // ============================================================================================
+
+    /**
+     * Recover the keyword of a text encrypted with {@link Encrypt#vigenere(byte[], byte[])}
+     * @param cipher the encrypted text
+     * @param maxLength length of the longest keyword to consider
+     * @return the keyword, to be used with {@link Decrypt#vigenere(byte[], byte[])}
+     */
+    public byte[] vigenere(byte[] cipher, int maxLength) {
+        int length = vigenereLength(cipher, maxLength);
+
+        // Count the bytes of each column in a single pass, on chunks starting with the first column
+        long[][] columns = new long[length][KEYS];
+        engine.run(cipher.length, length, (from, to) -> {
+            int[][] local = new int[length][KEYS];
+            for (int i = from, c = 0; i < to; i++) {
+                local[c][cipher[i] & 0xFF]++;
+                if (++c == length)
+                    c = 0;
+            }
+            synchronized (columns) {
+                for (int c = 0; c < length; c++) {
+                    for (int b = 0; b < KEYS; b++) {
+                        columns[c][b] += local[c][b];
+                    }
+                }
+            }
+        });
+
+        // Each column is a Caesar cipher
+        byte[] keyword = new byte[length];
+        pool.invoke(new IndexTask(0, length, 1, c -> {
+            int best = 0;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < KEYS; k++) {
+                double score = score(columns[c], k, Shift.CAESAR);
+                if (score > bestScore) {
+                    best = k;
+                    bestScore = score;
+                }
+            }
+            keyword[c] = (byte) best;
+        }));
+        return keyword;
+    }
+
+    /**
+     * Find the length of the keyword of a text encrypted with {@link Encrypt#vigenere(byte[], byte[])}
+     * from a prefix of the cipher, the lengths being tried in parallel
+     * @param cipher the encrypted text
+     * @param maxLength length of the longest keyword to consider
+     * @return the most likely length
+     */
+    public int vigenereLength(byte[] cipher, int maxLength) {
+        assert cipher != null && cipher.length > 0 && maxLength > 0;
+        int longest = Math.max(1, Math.min(maxLength, cipher.length / 2));
+        int prefix = (int) Math.min(cipher.length, (long) sample * longest);
+        double[] indices = new double[longest + 1];
+        pool.invoke(new IndexTask(1, longest + 1, 1, length -> indices[length] = coincidence(cipher, prefix, length)));
+
+        double best = Arrays.stream(indices).max().orElse(0);
+        for (int length = 1; length <= longest; length++) {
+            if (indices[length] >= COINCIDENCE_RATIO * best)
+                return length;
+        }
+        return 1;
+    }
+
+    /**
+     * Average index of coincidence of the columns of a prefix of a cipher
+     * @param cipher the encrypted text
+     * @param prefix number of bytes to consider
+     * @param length number of columns
+     * @return probability that two bytes of the same column are equal
+     */
+    static double coincidence(byte[] cipher, int prefix, int length) {
+        int[][] columns = new int[length][KEYS];
+        for (int i = 0, c = 0; i < prefix; i++) {
+            columns[c][cipher[i] & 0xFF]++;
+            if (++c == length)
+                c = 0;
+        }
+        double sum = 0;
+        for (int c = 0; c < length; c++) {
+            long pairs = 0;
+            long n = 0;
+            for (int b = 0; b < KEYS; b++) {
+                pairs += (long) columns[c][b] * (columns[c][b] - 1);
+                n += columns[c][b];
+            }
+            sum += n < 2 ? 0 : (double) pairs / (n * (n - 1));
+        }
+        return sum / length;
+    }
+
+    // ============================================================================================
+    // ========================================= HELPERS ==========================================
+    // ============================================================================================
+
+    /**
+     * Count the bytes of a part of an array, in parallel
+     * @param data bytes to count
+     * @param from index of the first byte
+     * @param to index after the last byte
+     * @param step distance between two counted bytes
+     * @return number of occurrences of each byte value
+     */
+    long[] histogram(byte[] data, int from, int to, int step) {
+        assert data != null && 0 <= from && from <= to && to <= data.length && step > 0;
+        long[] histogram = new long[KEYS];
+        int count = (to - from + step - 1) / step;
+        engine.run(count, 1, (first, last) -> {
+            int[] local = new int[KEYS];
+            for (int i = first; i < last; i++) {
+                local[data[from + i * step] & 0xFF]++;
+            }
+            synchronized (histogram) {
+                for (int b = 0; b < KEYS; b++) {
+                    histogram[b] += local[b];
+                }
+            }
+        });
+        return histogram;
+    }
+
+    /**
+     * Score a key from the histogram of a cipher
+     * @param histogram number of occurrences of each cipher byte
+     * @param key the key, from 0 to 255
+     * @param shift how the key was applied
+     * @return average log-probability of a decoded byte
+     */
+    static double score(long[] histogram, int key, Shift shift) {
+        double sum = 0;
+        long total = 0;
+        for (int c = 0; c < KEYS; c++) {
+            if (histogram[c] != 0) {
+                sum += histogram[c] * ENGLISH[shift.decode(c, key)];
+                total += histogram[c];
+            }
+        }
+        return total == 0 ? 0 : sum / total;
+    }
+
+    /**
+     * @param scores score of each key
+     * @return all the keys, best first (the smallest key first on ties)
+     */
+    static List<Candidate> rank(double[] scores) {
+        List<Candidate> ranked = new ArrayList<>(scores.length);
+        for (int k = 0; k < scores.length; k++) {
+            ranked.add(new Candidate((byte) k, scores[k]));
+        }
+        ranked.sort(Comparator.comparingDouble(Candidate::score).reversed());
+        return ranked;
+    }
+
+    /**
+     * Model of English text (as UTF-8) : letters follow the usual frequencies, mostly in lower
+     * case, spaces are the most frequent bytes, and control characters are very unlikely
+     */
+    private static double[] english() {
+        double[] letters = {
+                8.2, 1.5, 2.8, 4.3, 12.7, 2.2, 2.0, 6.1, 7.0, 0.15, 0.77, 4.0, 2.4,
+                6.7, 7.5, 1.9, 0.095, 6.0, 6.3, 9.1, 2.8, 0.98, 2.4, 0.15, 2.0, 0.074
+        };
+        double[] weights = new double[KEYS];
+        Arrays.fill(weights, 0, 0x20, 0.0005);
+        Arrays.fill(weights, 0x20, 0x7F, 0.05);
+        Arrays.fill(weights, 0x7F, KEYS, 0.01);
+        for (int i = 0; i < letters.length; i++) {
+            weights['a' + i] = 0.8 * letters[i];
+            weights['A' + i] = 0.05 * letters[i];
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            weights[c] = 0.3;
+        }
+        for (char c : ".,'\"-;:!?()".toCharArray()) {
+            weights[c] = 0.3;
+        }
+        weights[' '] = 15;
+        weights['\n'] = 1;
+        weights['\r'] = 0.1;
+        weights['\t'] = 0.1;
+
+        double total = Arrays.stream(weights).sum();
+        double[] result = new double[KEYS];
+        for (int b = 0; b < KEYS; b++) {
+            result[b] = Math.log(weights[b] / total);
+        }
+        return result;
+    }
+
+    /**
+     * Recursively split a range of indices (keys, keyword lengths or columns) in two halves and
+     * apply an operation on each index
+     */
+    @SuppressWarnings("serial")
+    private static final class IndexTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final IntConsumer operation;
+
+        IndexTask(int from, int to, int grain, IntConsumer operation) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.operation = operation;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) {
+                    operation.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new IndexTask(from, middle, grain, operation), new IndexTask(middle, to, grain, operation));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package ch.epfl.cs107.crypto;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static ch.epfl.cs107.crypto.ScalarKernel.LONGS;
+
+/**
+ * Keystream generated on the fly from a 64 bits seed, to be XORed with a message like a pad.
+ * <p>
+ * <b>This is not a one-time pad, and not a cryptographic cipher.</b> A one-time pad is as long as
+ * the message and truly random; this keystream is fully determined by a 64 bits key, the seed. Worse,
+ * the SplitMix64 generator is invertible : the 8 bytes of plain text at any word boundary (a known
+ * file header for instance) give a word of the keystream, from which the seed, hence the whole
+ * keystream, is computed. It must only be used where a reproducible scrambling is enough.
+ * <p>
+ * The keystream is counter based : its <code>i</code>-th word of 8 bytes is the <code>i</code>-th value
+ * of a SplitMix64 generator (the values returned by <code>new SplittableRandom(seed).nextLong()</code>),
+ * computed straight from the counter. Any part of the keystream can thus be generated without the parts
+ * before it, so a message can be encrypted chunk by chunk, by as many threads as needed, with a
+ * memory use independent of its length. The bytes of a word are used least significant first.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ * @see SplittableRandom
+ */
+public final class Keystream {
+
+    /** Increment of the state of the generator between two words (see {@link SplittableRandom}) */
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+
+    /**
+     * Create the keystream generated from a seed. Both parties must use the same seed.
+     * @param seed seed of the keystream, its only key
+     */
+    public Keystream(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Create a keystream from a seed drawn by a {@link SecureRandom}. Only the seed is random : the
+     * keystream still has a 64 bits key and gives its seed away to anyone knowing 8 aligned bytes of
+     * plain text, it is not a one-time pad.
+     * @return a new keystream
+     */
+    public static Keystream random() {
+        return new Keystream(new SecureRandom().nextLong());
+    }
+
+    /** @return seed of the keystream */
+    public long seed() {
+        return seed;
+    }
+
+    // ============================================================================================
+    // ========================================= PAD ==============================================
+    // ============================================================================================
+
+    /**
+     * @param index index of the word
+     * @return the 8 bytes of the keystream starting at position <code>8 * index</code>
+     */
+    public long word(long index) {
+        long z = seed + (index + 1) * GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @param position position in the keystream
+     * @return byte of the keystream at this position
+     */
+    public byte get(long position) {
+        assert position >= 0;
+        return (byte) (word(position >>> 3) >>> ((position & 7) << 3));
+    }
+
+    /**
+     * Copy a part of the keystream into an array
+     * @param position position of the first byte in the keystream
+     * @param dst array receiving the bytes
+     * @param dstOff index of the first byte to write
+     * @param len number of bytes
+     */
+    public void fill(long position, byte[] dst, int dstOff, int len) {
+        assert dst != null && dstOff >= 0 && len >= 0 && dstOff + len <= dst.length;
+        Arrays.fill(dst, dstOff, dstOff + len, (byte) 0);
+        apply(position, dst, dstOff, dst, dstOff, len);
+    }
+
+    /**
+     * Materialise the beginning of the keystream, to be used with {@link Encrypt#oneTimePad(byte[], byte[])}
+     * @param length number of bytes
+     * @return the first <code>length</code> bytes of the keystream
+     */
+    public byte[] pad(int length) {
+        assert length >= 0;
+        byte[] result = new byte[length];
+        apply(0, result, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * XOR a range of bytes with a part of the keystream. The source and the destination can be the
+     * same range (in-place encoding).
+     * @param position position in the keystream of the byte used with <code>src[srcOff]</code>
+     * @param src source bytes
+     * @param srcOff index of the first byte to read
+     * @param dst destination bytes
+     * @param dstOff index of the first byte to write
+     * @param len number of bytes
+     */
+    public void apply(long position, byte[] src, int srcOff, byte[] dst, int dstOff, int len) {
+        assert position >= 0 && position + len >= 0;
+        Ranges.check(src, srcOff, dst, dstOff, len);
+        int i = 0;
+        // Bytes up to the next word boundary of the keystream
+        for (; i < len && ((position + i) & 7) != 0; i++) {
+            dst[dstOff + i] = (byte) (src[srcOff + i] ^ get(position + i));
+        }
+        for (; i + Long.BYTES <= len; i += Long.BYTES) {
+            LONGS.set(dst, dstOff + i, (long) LONGS.get(src, srcOff + i) ^ word((position + i) >>> 3));
+        }
+        for (; i < len; i++) {
+            dst[dstOff + i] = (byte) (src[srcOff + i] ^ get(position + i));
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package ch.epfl.cs107.crypto;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel versions of the position-independent ciphers (Vigenere, XOR, one-time pad and the
+ * {@link Keystream}) and of the CBC decryption.
+ * <p>
+ * Inputs shorter than the threshold are processed sequentially by {@link Encrypt} and {@link Decrypt}.
+ * Longer inputs are split into chunks that start on a multiple of the keyword (or block) length, so
+ * every chunk starts with the first byte of the keyword, and the chunks are processed by a
+ * {@link ForkJoinPool}. The output is always byte-identical to the sequential versions.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ParallelCipher {
+
+    /** Name of the system property used to configure the threshold of {@link #DEFAULT} */
+    public static final String THRESHOLD_PROPERTY = "cs107.parallel.threshold";
+
+    /** Engine using the common pool, with a threshold of 1 MiB unless configured otherwise */
+    public static final ParallelCipher DEFAULT =
+            new ParallelCipher(ForkJoinPool.commonPool(), Integer.getInteger(THRESHOLD_PROPERTY, 1 << 20));
+
+    /** Smallest chunk processed by a single task */
+    private static final int MIN_CHUNK = 1 << 16;
+
+    /** Alignment of the chunks when the cipher does not use a keyword (one cache line) */
+    private static final int CACHE_LINE = 64;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * Create an engine running on the common pool
+     * @param threshold minimal input size (in bytes) to process in parallel
+     */
+    public ParallelCipher(int threshold) {
+        this(ForkJoinPool.commonPool(), threshold);
+    }
+
+    /**
+     * Create an engine running on a given pool
+     * @param pool pool to run the tasks on
+     * @param threshold minimal input size (in bytes) to process in parallel
+     */
+    public ParallelCipher(ForkJoinPool pool, int threshold) {
+        assert pool != null && threshold >= 0;
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /** @return minimal input size (in bytes) processed in parallel */
+    public int threshold() {
+        return threshold;
+    }
+
+    // ============================================================================================
+    // =============================== VIGENERE'S ENCRYPTION ======================================
+    // ============================================================================================
+
+    /**
+     * Parallel version of {@link Encrypt#vigenere(byte[], byte[])}
+     * @param plainText the byte array representing the message to encode
+     * @param keyword the byte array representing the key used to perform the shift
+     * @return an encoded byte array
+     */
+    public byte[] encryptVigenere(byte[] plainText, byte[] keyword) {
+        assert plainText != null && keyword != null && keyword.length > 0;
+        if (plainText.length < threshold)
+            return Encrypt.vigenere(plainText, keyword);
+        byte[] cipherText = new byte[plainText.length];
+        run(plainText.length, keyword.length, (from, to) -> vigenere(plainText, cipherText, keyword, from, to, false));
+        return cipherText;
+    }
+
+    /**
+     * Parallel version of {@link Decrypt#vigenere(byte[], byte[])}
+     * @param cipher Cipher message to decode
+     * @param keyword Key to decode with
+     * @return decoded message
+     */
+    public byte[] decryptVigenere(byte[] cipher, byte[] keyword) {
+        assert cipher != null && keyword != null && keyword.length > 0;
+        if (cipher.length < threshold)
+            return Decrypt.vigenere(cipher, keyword);
+        byte[] plainText = new byte[cipher.length];
+        run(cipher.length, keyword.length, (from, to) -> vigenere(cipher, plainText, keyword, from, to, true));
+        return plainText;
+    }
+
+    // ============================================================================================
+    // =================================== CBC'S ENCRYPTION =======================================
+    // ============================================================================================
+
+    /**
+     * Parallel version of {@link Decrypt#cbc(byte[], byte[])}.
+     * <p>
+     * Each plain block only depends on the current and the previous cipher blocks, so the cipher
+     * is split on block boundaries and the partitions are decrypted concurrently.
+     * @param cipher message to decode
+     * @param iv the initialization vector used to start the chain decoding
+     * @return decoded message
+     */
+    public byte[] decryptCbc(byte[] cipher, byte[] iv) {
+        assert cipher != null && cipher.length > 0;
+        assert iv != null && iv.length > 0;
+        assert cipher.length % iv.length == 0; // Cipher text must be a multiple of block size
+        if (cipher.length < threshold)
+            return Decrypt.cbc(cipher, iv);
+        byte[] plainText = new byte[cipher.length];
+        run(cipher.length, iv.length, (from, to) -> decryptCbc(cipher, plainText, iv, from, to));
+        return plainText;
+    }
+
+    // ============================================================================================
+    // =================================== XOR'S ENCRYPTION =======================================
+    // ============================================================================================
+
+    /**
+     * Parallel version of {@link Encrypt#xor(byte[], byte)}
+     * @param plainText the byte array representing the string to encode
+     * @param key the byte we will use to XOR
+     * @return an encoded byte array
+     */
+    public byte[] encryptXor(byte[] plainText, byte key) {
+        assert plainText != null;
+        if (plainText.length < threshold)
+            return Encrypt.xor(plainText, key);
+        byte[] cipherText = new byte[plainText.length];
+        CipherKernel kernel = CipherKernel.preferred();
+        run(plainText.length, 1, (from, to) -> kernel.xor(plainText, from, cipherText, from, to - from, key));
+        return cipherText;
+    }
+
+    /**
+     * Parallel version of {@link Decrypt#xor(byte[], byte)}
+     * @param cipher text to decode
+     * @param key the byte we will use to XOR
+     * @return decoded message
+     */
+    public byte[] decryptXor(byte[] cipher, byte key) {
+        return encryptXor(cipher, key);
+    }
+
+    // ============================================================================================
+    // =================================== ONETIME'S PAD ENCRYPTION ===============================
+    // ============================================================================================
+
+    /**
+     * Parallel version of {@link Encrypt#oneTimePad(byte[], byte[])}
+     * @param plainText the byte array representing the string to encode
+     * @param pad the one-time pad
+     * @return an encoded byte array
+     */
+    public byte[] encryptOneTimePad(byte[] plainText, byte[] pad) {
+        assert plainText != null && pad != null && pad.length == plainText.length;
+        if (plainText.length < threshold)
+            return Encrypt.oneTimePad(plainText, pad);
+        byte[] cipherText = new byte[plainText.length];
+        CipherKernel kernel = CipherKernel.preferred();
+        run(plainText.length, 1, (from, to) -> kernel.oneTimePad(plainText, from, pad, from, cipherText, from, to - from));
+        return cipherText;
+    }
+
+    /**
+     * Parallel version of {@link Decrypt#oneTimePad(byte[], byte[])}
+     * @param cipher text to decode
+     * @param pad the one-time pad to use
+     * @return decoded message
+     */
+    public byte[] decryptOneTimePad(byte[] cipher, byte[] pad) {
+        assert cipher != null && pad != null && pad.length > 0;
+        if (cipher.length == 0 || cipher.length < threshold)
+            return Decrypt.oneTimePad(cipher, pad);
+        return encryptOneTimePad(cipher, pad);
+    }
+
+    /**
+     * Parallel version of {@link Encrypt#oneTimePad(byte[], Keystream)} : each task generates
+     * the part of the keystream it uses
+     * @param plainText the byte array representing the string to encode
+     * @param pad the keystream
+     * @return an encoded byte array
+     */
+    public byte[] encryptOneTimePad(byte[] plainText, Keystream pad) {
+        assert plainText != null && pad != null;
+        if (plainText.length < threshold)
+            return Encrypt.oneTimePad(plainText, pad);
+        byte[] cipherText = new byte[plainText.length];
+        run(plainText.length, Long.BYTES, (from, to) -> pad.apply(from, plainText, from, cipherText, from, to - from));
+        return cipherText;
+    }
+
+    /**
+     * Parallel version of {@link Decrypt#oneTimePad(byte[], Keystream)}
+     * @param cipher text to decode
+     * @param pad the keystream
+     * @return decoded message
+     */
+    public byte[] decryptOneTimePad(byte[] cipher, Keystream pad) {
+        return encryptOneTimePad(cipher, pad);
+    }
+
+    // ============================================================================================
+    // ========================================= HELPERS ==========================================
+    // ============================================================================================
+
+    /**
+     * Operation applied on a range of the input
+     */
+    @FunctionalInterface
+    interface RangeOperation {
+        /**
+         * @param from index of the first byte (inclusive)
+         * @param to index of the last byte (exclusive)
+         */
+        void apply(int from, int to);
+    }
+
+    /**
+     * Split <code>[0, length)</code> in chunks and apply an operation on each of them, in parallel
+     * @param length number of bytes to process
+     * @param period every chunk starts on a multiple of the period
+     * @param operation operation to apply
+     */
+    void run(int length, int period, RangeOperation operation) {
+        assert length >= 0 && period > 0;
+        // Chunks are a multiple of both the period and a cache line, so no two tasks share a line
+        long align = (long) period * CACHE_LINE / gcd(period, CACHE_LINE);
+        long target = Math.max(MIN_CHUNK, length / (4L * pool.getParallelism()));
+        int chunk = (int) Math.min(Integer.MAX_VALUE - align, (target + align - 1) / align * align);
+        pool.invoke(new ChunkTask(0, length, chunk, operation));
+    }
+
+    /**
+     * Sequential Vigenere loop on a range starting with the first byte of the keyword
+     */
+    private static void vigenere(byte[] src, byte[] dst, byte[] keyword, int from, int to, boolean decrypt) {
+        int k = 0;
+        for (int i = from; i < to; i++) {
+            dst[i] = (byte) (decrypt ? src[i] - keyword[k] : src[i] + keyword[k]);
+            if (++k == keyword.length)
+                k = 0;
+        }
+    }
+
+    /**
+     * Sequential CBC decryption of a range starting on a block boundary
+     */
+    private static void decryptCbc(byte[] cipher, byte[] plainText, byte[] iv, int from, int to) {
+        int blockSize = iv.length;
+        int i = from;
+        // The first block of the whole cipher is chained with the IV
+        for (; i < Math.min(to, blockSize); i++) {
+            plainText[i] = (byte) (cipher[i] ^ iv[i]);
+        }
+        for (; i < to; i++) {
+            plainText[i] = (byte) (cipher[i] ^ cipher[i - blockSize]);
+        }
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Recursively split a range in two halves, on chunk boundaries
+     */
+    @SuppressWarnings("serial")
+    private static final class ChunkTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final RangeOperation operation;
+
+        ChunkTask(int from, int to, int chunk, RangeOperation operation) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.operation = operation;
+        }
+
+        @Override
+        protected void compute() {
+            int chunks = (int) (((long) to - from + chunk - 1) / chunk);
+            if (chunks <= 1) {
+                operation.apply(from, to);
+                return;
+            }
+            int middle = from + (chunks / 2) * chunk;
+            invokeAll(new ChunkTask(from, middle, chunk, operation), new ChunkTask(middle, to, chunk, operation));
+        }
+    }
+}
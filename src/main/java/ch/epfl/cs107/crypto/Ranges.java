@@ -0,0 +1,83 @@
+package ch.epfl.cs107.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Helpers shared by the allocation-free variants of {@link Encrypt} and {@link Decrypt}
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class Ranges {
+
+    private Ranges(){}
+
+    /**
+     * Check that a source and a destination range are valid
+     * @param src source bytes
+     * @param srcOff index of the first byte to read
+     * @param dst destination bytes
+     * @param dstOff index of the first byte to write
+     * @param len number of bytes
+     */
+    static void check(byte[] src, int srcOff, byte[] dst, int dstOff, int len) {
+        assert src != null && dst != null && len >= 0;
+        assert srcOff >= 0 && srcOff + len <= src.length;
+        assert dstOff >= 0 && dstOff + len <= dst.length;
+    }
+
+    /**
+     * Prepare a source range to be processed byte after byte into a destination range.
+     * When both ranges partially overlap, the source is first moved to the destination,
+     * so that the operation can be done in place.
+     * @param src source bytes
+     * @param srcOff index of the first byte to read
+     * @param dst destination bytes
+     * @param dstOff index of the first byte to write
+     * @param len number of bytes
+     * @return index of the first byte to read : <code>srcOff</code>, or <code>dstOff</code> if the
+     * source has been moved to <code>dst</code>
+     */
+    static int prepare(byte[] src, int srcOff, byte[] dst, int dstOff, int len) {
+        check(src, srcOff, dst, dstOff, len);
+        if (src == dst && srcOff != dstOff && srcOff < dstOff + len && dstOff < srcOff + len) {
+            System.arraycopy(src, srcOff, dst, dstOff, len);
+            return dstOff;
+        }
+        return srcOff;
+    }
+
+    /**
+     * Check that a destination buffer can hold the content of a source buffer
+     * @param src source buffer
+     * @param dst destination buffer
+     * @return number of bytes to process
+     */
+    static int check(ByteBuffer src, ByteBuffer dst) {
+        assert src != null && dst != null;
+        assert !dst.isReadOnly();
+        assert dst.remaining() >= src.remaining();
+        return src.remaining();
+    }
+
+    /**
+     * @param src source buffer
+     * @param dst destination buffer
+     * @return <code>true</code> if both buffers expose an accessible array
+     */
+    static boolean hasArrays(ByteBuffer src, ByteBuffer dst) {
+        return src.hasArray() && dst.hasArray();
+    }
+
+    /**
+     * Move the position of both buffers after the processed bytes
+     * @param src source buffer
+     * @param dst destination buffer
+     * @param len number of processed bytes
+     */
+    static void advance(ByteBuffer src, ByteBuffer dst, int len) {
+        if (src != dst)
+            src.position(src.position() + len);
+        dst.position(dst.position() + len);
+    }
+}
@@ -0,0 +1,101 @@
+package ch.epfl.cs107.crypto;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Portable implementation of {@link CipherKernel} processing 8 bytes at a time with <code>long</code>
+ * arithmetic (SWAR : SIMD within a register).
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class ScalarKernel implements CipherKernel {
+
+    static final ScalarKernel INSTANCE = new ScalarKernel();
+
+    /** Kernel selected at startup, see {@link CipherKernel#PROPERTY} */
+    static final CipherKernel PREFERRED = CipherKernel.of(System.getProperty(PROPERTY, "auto"));
+
+    /** View of a byte array as little-endian longs, shared by the word-at-a-time loops of the package */
+    static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** Most significant bit of each byte of a long */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private ScalarKernel(){}
+
+    @Override
+    public void caesar(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte key) {
+        checkRange(src, srcOff, dst, dstOff, len);
+        long keys = broadcast(key);
+        int i = 0;
+        for (; i + Long.BYTES <= len; i += Long.BYTES) {
+            LONGS.set(dst, dstOff + i, add((long) LONGS.get(src, srcOff + i), keys));
+        }
+        for (; i < len; i++) {
+            dst[dstOff + i] = (byte) (src[srcOff + i] + key);
+        }
+    }
+
+    @Override
+    public void xor(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte key) {
+        checkRange(src, srcOff, dst, dstOff, len);
+        long keys = broadcast(key);
+        int i = 0;
+        for (; i + Long.BYTES <= len; i += Long.BYTES) {
+            LONGS.set(dst, dstOff + i, (long) LONGS.get(src, srcOff + i) ^ keys);
+        }
+        for (; i < len; i++) {
+            dst[dstOff + i] = (byte) (src[srcOff + i] ^ key);
+        }
+    }
+
+    @Override
+    public void oneTimePad(byte[] src, int srcOff, byte[] pad, int padOff, byte[] dst, int dstOff, int len) {
+        checkRange(src, srcOff, dst, dstOff, len);
+        assert pad != null && padOff >= 0 && padOff + len <= pad.length;
+        int i = 0;
+        for (; i + Long.BYTES <= len; i += Long.BYTES) {
+            LONGS.set(dst, dstOff + i, (long) LONGS.get(src, srcOff + i) ^ (long) LONGS.get(pad, padOff + i));
+        }
+        for (; i < len; i++) {
+            dst[dstOff + i] = (byte) (src[srcOff + i] ^ pad[padOff + i]);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    // ============================================================================================
+    // ========================================= HELPERS ==========================================
+    // ============================================================================================
+
+    /**
+     * Repeat a byte 8 times in a long
+     * @param value byte to repeat
+     * @return the repeated byte
+     */
+    static long broadcast(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+
+    /**
+     * Add two longs byte by byte, without carry between the bytes
+     * @param a first operand
+     * @param b second operand
+     * @return the 8 sums, each one modulo 256
+     */
+    static long add(long a, long b) {
+        return ((a & ~HIGH_BITS) + (b & ~HIGH_BITS)) ^ ((a ^ b) & HIGH_BITS);
+    }
+
+    static void checkRange(byte[] src, int srcOff, byte[] dst, int dstOff, int len) {
+        assert src != null && dst != null && len >= 0;
+        assert srcOff >= 0 && srcOff + len <= src.length;
+        assert dstOff >= 0 && dstOff + len <= dst.length;
+    }
+}
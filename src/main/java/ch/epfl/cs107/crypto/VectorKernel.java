@@ -0,0 +1,68 @@
+package ch.epfl.cs107.crypto;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementation of {@link CipherKernel} based on the <code>jdk.incubator.vector</code> API.
+ * <p>
+ * This class must only be loaded when the module is available, see {@link CipherKernel#vector()}.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class VectorKernel implements CipherKernel {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private static final VectorKernel INSTANCE = new VectorKernel();
+
+    private VectorKernel(){}
+
+    static CipherKernel create() {
+        return INSTANCE;
+    }
+
+    @Override
+    public void caesar(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte key) {
+        ScalarKernel.checkRange(src, srcOff, dst, dstOff, len);
+        int bound = SPECIES.loopBound(len);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector.fromArray(SPECIES, src, srcOff + i).add(key).intoArray(dst, dstOff + i);
+        }
+        ScalarKernel.INSTANCE.caesar(src, srcOff + i, dst, dstOff + i, len - i, key);
+    }
+
+    @Override
+    public void xor(byte[] src, int srcOff, byte[] dst, int dstOff, int len, byte key) {
+        ScalarKernel.checkRange(src, srcOff, dst, dstOff, len);
+        int bound = SPECIES.loopBound(len);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector.fromArray(SPECIES, src, srcOff + i).lanewise(VectorOperators.XOR, key)
+                    .intoArray(dst, dstOff + i);
+        }
+        ScalarKernel.INSTANCE.xor(src, srcOff + i, dst, dstOff + i, len - i, key);
+    }
+
+    @Override
+    public void oneTimePad(byte[] src, int srcOff, byte[] pad, int padOff, byte[] dst, int dstOff, int len) {
+        ScalarKernel.checkRange(src, srcOff, dst, dstOff, len);
+        assert pad != null && padOff >= 0 && padOff + len <= pad.length;
+        int bound = SPECIES.loopBound(len);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector.fromArray(SPECIES, src, srcOff + i)
+                    .lanewise(VectorOperators.XOR, ByteVector.fromArray(SPECIES, pad, padOff + i))
+                    .intoArray(dst, dstOff + i);
+        }
+        ScalarKernel.INSTANCE.oneTimePad(src, srcOff + i, pad, padOff + i, dst, dstOff + i, len - i);
+    }
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+}
@@ -0,0 +1,226 @@
+package ch.epfl.cs107.stegano;
+
+import ch.epfl.cs107.utils.Bit;
+import ch.epfl.cs107.utils.BitVector;
+
+/**
+ * Describes where the bits of a message are stored in an ARGB pixel : the <code>k</code> lowest
+ * bits of each selected channel.
+ * <p>
+ * The bits of a pixel are filled channel after channel, in the order alpha, red, green and blue,
+ * the first bit of each group going to the most significant of the <code>k</code> bits. Hence
+ * {@link #LSB} (one bit in the blue channel) is the historical one bit per pixel embedding.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class EmbeddingLayout {
+
+    /** Blue channel, bits 0 to 7 of a pixel */
+    public static final int BLUE = 1;
+    /** Green channel, bits 8 to 15 of a pixel */
+    public static final int GREEN = 1 << 1;
+    /** Red channel, bits 16 to 23 of a pixel */
+    public static final int RED = 1 << 2;
+    /** Alpha channel, bits 24 to 31 of a pixel */
+    public static final int ALPHA = 1 << 3;
+    /** The three color channels */
+    public static final int RGB = RED | GREEN | BLUE;
+
+    /** Largest number of bits that can be used in a channel */
+    public static final int MAX_BITS_PER_CHANNEL = 4;
+
+    /** One bit per pixel, in the least significant bit of the blue channel */
+    public static final EmbeddingLayout LSB = of(1, BLUE);
+
+    private final int bitsPerChannel;
+    private final int channels;
+    /** Positions of the lowest used bit of each selected channel, in embedding order */
+    private final int[] shifts;
+
+    private EmbeddingLayout(int bitsPerChannel, int channels) {
+        this.bitsPerChannel = bitsPerChannel;
+        this.channels = channels;
+        this.shifts = new int[Integer.bitCount(channels)];
+        int c = 0;
+        for (int channel = 3; channel >= 0; channel--) {
+            if ((channels & (1 << channel)) != 0)
+                shifts[c++] = channel * Byte.SIZE;
+        }
+    }
+
+    /**
+     * Create a layout
+     * @param bitsPerChannel number of low bits used in each channel (between 1 and 4)
+     * @param channels selected channels, a combination of {@link #ALPHA}, {@link #RED}, {@link #GREEN}
+     *                 and {@link #BLUE}
+     * @return the layout
+     */
+    public static EmbeddingLayout of(int bitsPerChannel, int channels) {
+        assert bitsPerChannel >= 1 && bitsPerChannel <= MAX_BITS_PER_CHANNEL;
+        assert channels > 0 && channels <= (ALPHA | RGB);
+        return new EmbeddingLayout(bitsPerChannel, channels);
+    }
+
+    // ============================================================================================
+    // ======================================== ACCESSORS =========================================
+    // ============================================================================================
+
+    /** @return number of low bits used in each channel */
+    public int bitsPerChannel() {
+        return bitsPerChannel;
+    }
+
+    /** @return selected channels */
+    public int channels() {
+        return channels;
+    }
+
+    /** @return number of bits stored in each pixel */
+    public int bitsPerPixel() {
+        return bitsPerChannel * shifts.length;
+    }
+
+    /**
+     * @param pixels number of pixels
+     * @return number of bits that can be stored in the pixels
+     */
+    public long capacity(long pixels) {
+        return pixels * bitsPerPixel();
+    }
+
+    // ============================================================================================
+    // ======================================== ENCODING ==========================================
+    // ============================================================================================
+
+    /**
+     * @return the layout packed in a byte : <code>bitsPerChannel - 1</code> in the high nibble and
+     * the channels in the low one
+     */
+    int code() {
+        return (bitsPerChannel - 1) << 4 | channels;
+    }
+
+    /**
+     * Reverse operation of {@link #code()}
+     * @param code packed layout
+     * @return the layout, or <code>null</code> if the code does not describe a valid layout
+     */
+    static EmbeddingLayout fromCode(int code) {
+        int bits = (code >>> 4 & 0xF) + 1;
+        int channels = code & 0xF;
+        if ((code & ~0xFF) != 0 || bits > MAX_BITS_PER_CHANNEL || channels == 0)
+            return null;
+        return new EmbeddingLayout(bits, channels);
+    }
+
+    // ============================================================================================
+    // ======================================= EMBEDDING ==========================================
+    // ============================================================================================
+
+    /**
+     * Embed the bits of one pixel
+     * @param pixel ARGB pixel to embed in
+     * @param bits bits to embed, in the {@link #bitsPerPixel()} lowest bits
+     * @return embedded pixel
+     */
+    public int embed(int pixel, int bits) {
+        int shift = bitsPerPixel();
+        for (int s : shifts) {
+            shift -= bitsPerChannel;
+            pixel = Bit.embedBits(pixel, bits >>> shift, s, bitsPerChannel);
+        }
+        return pixel;
+    }
+
+    /**
+     * Extract the bits of one pixel
+     * @param pixel ARGB pixel to extract from
+     * @return the bits, in the {@link #bitsPerPixel()} lowest bits
+     */
+    public int extract(int pixel) {
+        int bits = 0;
+        for (int s : shifts) {
+            bits = bits << bitsPerChannel | Bit.getBits(pixel, s, bitsPerChannel);
+        }
+        return bits;
+    }
+
+    /**
+     * Embed consecutive bits of a vector in consecutive pixels. If <code>count</code> is not a
+     * multiple of {@link #bitsPerPixel()}, the last pixel keeps its trailing bits.
+     * @param pixels ARGB pixels, modified in place
+     * @param offset index of the first pixel
+     * @param bits bits to embed
+     * @param from index of the first bit to embed
+     * @param count number of bits to embed
+     */
+    public void embed(int[] pixels, int offset, BitVector bits, long from, long count) {
+        assert pixels != null && bits != null;
+        assert offset >= 0 && offset + (count + bitsPerPixel() - 1) / bitsPerPixel() <= pixels.length;
+        assert from >= 0 && count >= 0 && from + count <= bits.length();
+        int bpp = bitsPerPixel();
+        int mask = -1 >>> (Integer.SIZE - bpp);
+        int full = (int) (count / bpp);
+        int perWord = Long.SIZE / bpp;
+        for (int i = 0; i < full; i += perWord) {
+            int n = Math.min(perWord, full - i);
+            long chunk = bits.get(from + (long) i * bpp, n * bpp);
+            for (int k = offset + i + n - 1; k >= offset + i; k--) {
+                pixels[k] = embed(pixels[k], (int) chunk & mask);
+                chunk >>>= bpp;
+            }
+        }
+        int rest = (int) (count - (long) full * bpp);
+        if (rest > 0) {
+            int k = offset + full;
+            int kept = extract(pixels[k]) & (mask >>> rest);
+            pixels[k] = embed(pixels[k], (int) bits.get(from + (long) full * bpp, rest) << (bpp - rest) | kept);
+        }
+    }
+
+    /**
+     * Extract bits from consecutive pixels into a vector.
+     * Reverse operation of {@link #embed(int[], int, BitVector, long, long)}.
+     * @param pixels ARGB pixels
+     * @param offset index of the first pixel
+     * @param bits vector receiving the bits
+     * @param from index of the first bit to write
+     * @param count number of bits to extract
+     */
+    public void extract(int[] pixels, int offset, BitVector bits, long from, long count) {
+        assert pixels != null && bits != null;
+        assert offset >= 0 && offset + (count + bitsPerPixel() - 1) / bitsPerPixel() <= pixels.length;
+        assert from >= 0 && count >= 0 && from + count <= bits.length();
+        int bpp = bitsPerPixel();
+        int full = (int) (count / bpp);
+        int perWord = Long.SIZE / bpp;
+        for (int i = 0; i < full; i += perWord) {
+            int n = Math.min(perWord, full - i);
+            long chunk = 0;
+            for (int k = offset + i; k < offset + i + n; k++) {
+                chunk = chunk << bpp | extract(pixels[k]);
+            }
+            bits.set(from + (long) i * bpp, n * bpp, chunk);
+        }
+        int rest = (int) (count - (long) full * bpp);
+        if (rest > 0)
+            bits.set(from + (long) full * bpp, rest, extract(pixels[offset + full]) >>> (bpp - rest));
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof EmbeddingLayout layout
+                && layout.bitsPerChannel == bitsPerChannel && layout.channels == channels;
+    }
+
+    @Override
+    public int hashCode() {
+        return code();
+    }
+
+    @Override
+    public String toString() {
+        return "EmbeddingLayout[bitsPerChannel=" + bitsPerChannel + ", channels=0b" + Integer.toBinaryString(channels) + "]";
+    }
+}
@@ -0,0 +1,99 @@
+package ch.epfl.cs107.stegano;
+
+import ch.epfl.cs107.utils.BitVector;
+
+import java.util.zip.CRC32;
+
+/**
+ * Header written before a message embedded in a raster :
+ * <pre>
+ * magic (16 bits) | version (8 bits) | layout (8 bits) | length in bytes (32 bits) | CRC-32 (32 bits)
+ * </pre>
+ * The header is always stored in the least significant bit of the first {@link #BITS} pixels, the
+ * message follows with the layout of the header.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class Frame {
+
+    /** Number of bits of the header */
+    static final int BITS = 96;
+
+    private static final int MAGIC = 0x57E6;
+    private static final int VERSION = 1;
+
+    private final EmbeddingLayout layout;
+    private final int length;
+    private final int crc;
+
+    private Frame(EmbeddingLayout layout, int length, int crc) {
+        this.layout = layout;
+        this.length = length;
+        this.crc = crc;
+    }
+
+    /**
+     * Describe a message
+     * @param layout layout used to store the message
+     * @param message bytes of the message
+     * @param length number of bytes of the message that are embedded
+     * @return header of the message
+     */
+    static Frame of(EmbeddingLayout layout, byte[] message, int length) {
+        assert layout != null && message != null && length >= 0 && length <= message.length;
+        return new Frame(layout, length, crc(message, length));
+    }
+
+    /** @return layout used to store the message */
+    EmbeddingLayout layout() {
+        return layout;
+    }
+
+    /** @return number of bytes of the message */
+    int length() {
+        return length;
+    }
+
+    /**
+     * Check the checksum of an extracted message
+     * @param message extracted message, of {@link #length()} bytes
+     * @return <code>true</code> if the message matches the checksum of the header
+     */
+    boolean matches(byte[] message) {
+        return message.length == length && crc(message, length) == crc;
+    }
+
+    /** @return the header as a vector of {@link #BITS} bits */
+    BitVector encode() {
+        BitVector bits = new BitVector(BITS);
+        bits.set(0, 16, MAGIC);
+        bits.set(16, 8, VERSION);
+        bits.set(24, 8, layout.code());
+        bits.set(32, 32, length);
+        bits.set(64, 32, crc);
+        return bits;
+    }
+
+    /**
+     * Reverse operation of {@link #encode()}
+     * @param bits the first {@link #BITS} bits of the header
+     * @return the header, or <code>null</code> if the bits do not form a valid header
+     */
+    static Frame decode(BitVector bits) {
+        assert bits != null && bits.length() >= BITS;
+        if (bits.get(0, 16) != MAGIC || bits.get(16, 8) != VERSION)
+            return null;
+        EmbeddingLayout layout = EmbeddingLayout.fromCode((int) bits.get(24, 8));
+        int length = (int) bits.get(32, 32);
+        if (layout == null || length < 0)
+            return null;
+        return new Frame(layout, length, (int) bits.get(64, 32));
+    }
+
+    private static int crc(byte[] message, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(message, 0, length);
+        return (int) crc.getValue();
+    }
+}
@@ -3,6 +3,11 @@ package ch.epfl.cs107.stegano;
 import ch.epfl.cs107.Helper;
 import ch.epfl.cs107.utils.Bit;
 import ch.epfl.cs107.utils.Image;
+import ch.epfl.cs107.utils.Raster;
+import ch.epfl.cs107.utils.RasterFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 import static ch.epfl.cs107.utils.Text.*;
 import static ch.epfl.cs107.utils.Image.*;
@@ -38,8 +43,23 @@ public final class ImageSteganography {
      */
     public static int[][] embedARGB(int[][] cover, int[][] argbImage, int threshold) {
         assert cover != null && cover.length > 0 && argbImage != null && argbImage.length > 0;
-        int[][] grayImage = Image.toGray(argbImage);
-        return embedGray(cover, grayImage, threshold);
+        assert cover.length >= argbImage.length;
+
+        // Gray scale, threshold and embedding in a single sweep, without any intermediate image
+        int[][] result = new int[cover.length][];
+        for (int i = 0; i < cover.length; i++) {
+            assert cover[i] != null;
+            int[] src = cover[i];
+            int[] dst = result[i] = new int[src.length];
+            int[] load = i < argbImage.length ? argbImage[i] : null;
+            int width = load == null ? 0 : load.length;
+            assert width <= src.length;
+            for (int j = 0; j < width; j++) {
+                dst[j] = Bit.embedInLSB(src[j], Image.gray(load[j]) >= threshold);
+            }
+            System.arraycopy(src, width, dst, width, src.length - width);
+        }
+        return result;
     }
 
     /**
@@ -109,8 +129,150 @@ public final class ImageSteganography {
         return result;
     }
 
+    /**
+     * Embed a binary raster on an ARGB raster (the cover).
+     *
+     * @param cover Cover raster in ARGB format
+     * @param load  Embedded binary raster (any non-zero value is <code>true</code>)
+     * @return a new ARGB raster with the image embedded on the cover
+     */
+    public static Raster embedBW(Raster cover, Raster load) {
+        assert cover != null && load != null;
+        assert cover.width() > 0 && cover.height() > 0;
+        assert load.width() > 0 && load.height() > 0;
+        assert cover.height() >= load.height() && cover.width() >= load.width();
 
+        Raster result = cover.copy();
+        embedBWInPlace(result, load);
+        return result;
+    }
 
+    /**
+     * Embed an ARGB raster on another ARGB raster (the cover), in a single sweep
+     * @param cover Cover raster
+     * @param argbImage Embedded raster
+     * @param threshold threshold to use for binary conversion
+     * @return a new ARGB raster with the image embedded on the cover
+     */
+    public static Raster embedARGB(Raster cover, Raster argbImage, int threshold) {
+        assert cover != null && cover.width() > 0 && cover.height() > 0;
+        Raster result = cover.copy();
+        embedARGBInPlace(result, argbImage, threshold);
+        return result;
+    }
+
+    // ============================================================================================
+    // =================================== IN-PLACE EMBEDDING =====================================
+    // ============================================================================================
+
+    /**
+     * Embed a binary image on another ARGB image (the cover), by modifying the cover : only the
+     * pixels covered by the embedded image are written, and nothing is allocated
+     * @param cover Cover image, modified in place
+     * @param load Embedded image
+     * @see #embedBW(int[][], boolean[][])
+     */
+    public static void embedBWInPlace(int[][] cover, boolean[][] load) {
+        assert cover != null && cover.length > 0 && load != null && load.length > 0;
+        assert cover.length >= load.length;
+
+        for (int i = 0; i < load.length; i++) {
+            assert cover[i] != null && load[i] != null && load[i].length <= cover[i].length;
+            int[] dst = cover[i];
+            boolean[] src = load[i];
+            for (int j = 0; j < src.length; j++) {
+                dst[j] = Bit.embedInLSB(dst[j], src[j]);
+            }
+        }
+    }
+
+    /**
+     * Embed a binary raster on an ARGB raster (the cover), by modifying the cover : only the
+     * pixels covered by the embedded raster are written
+     * @param cover Cover raster, modified in place
+     * @param load Embedded binary raster (any non-zero value is <code>true</code>)
+     * @see #embedBW(Raster, Raster)
+     */
+    public static void embedBWInPlace(Raster cover, Raster load) {
+        assert cover != null && load != null;
+        assert load.width() > 0 && load.height() > 0;
+        assert cover.height() >= load.height() && cover.width() >= load.width();
+
+        int width = load.width();
+        if (cover.hasArray()) {
+            int[] dst = cover.array();
+            for (int i = 0; i < load.height(); i++) {
+                int d = cover.index(i, 0);
+                for (int j = 0; j < width; j++) {
+                    dst[d + j] = Bit.embedInLSB(dst[d + j], load.get(i, j) != 0);
+                }
+            }
+            cover.markDirty(0, load.height());
+            return;
+        }
+        for (int i = 0; i < load.height(); i++) {
+            for (int j = 0; j < width; j++) {
+                cover.set(i, j, Bit.embedInLSB(cover.get(i, j), load.get(i, j) != 0));
+            }
+        }
+    }
+
+    /**
+     * Embed an ARGB image on another ARGB image (the cover), by modifying the cover : only the
+     * pixels covered by the embedded image are written, and nothing is allocated
+     * @param cover Cover image, modified in place
+     * @param argbImage Embedded image
+     * @param threshold threshold to use for binary conversion
+     * @see #embedARGB(int[][], int[][], int)
+     */
+    public static void embedARGBInPlace(int[][] cover, int[][] argbImage, int threshold) {
+        assert cover != null && cover.length > 0 && argbImage != null && argbImage.length > 0;
+        assert cover.length >= argbImage.length;
+
+        for (int i = 0; i < argbImage.length; i++) {
+            assert cover[i] != null && argbImage[i] != null && argbImage[i].length <= cover[i].length;
+            int[] dst = cover[i];
+            int[] load = argbImage[i];
+            for (int j = 0; j < load.length; j++) {
+                dst[j] = Bit.embedInLSB(dst[j], Image.gray(load[j]) >= threshold);
+            }
+        }
+    }
+
+    /**
+     * Embed an ARGB raster on another ARGB raster (the cover), by modifying the cover : only the
+     * pixels covered by the embedded raster are written, and nothing is allocated for array
+     * backed rasters
+     * @param cover Cover raster, modified in place
+     * @param argbImage Embedded raster
+     * @param threshold threshold to use for binary conversion
+     * @see #embedARGB(Raster, Raster, int)
+     */
+    public static void embedARGBInPlace(Raster cover, Raster argbImage, int threshold) {
+        assert cover != null && argbImage != null;
+        assert argbImage.width() > 0 && argbImage.height() > 0;
+        assert cover.height() >= argbImage.height() && cover.width() >= argbImage.width();
+
+        int width = argbImage.width();
+        if (cover.hasArray() && argbImage.hasArray()) {
+            int[] dst = cover.array();
+            int[] src = argbImage.array();
+            for (int i = 0; i < argbImage.height(); i++) {
+                int d = cover.index(i, 0);
+                int s = argbImage.index(i, 0);
+                for (int j = 0; j < width; j++) {
+                    dst[d + j] = Bit.embedInLSB(dst[d + j], Image.gray(src[s + j]) >= threshold);
+                }
+            }
+            cover.markDirty(0, argbImage.height());
+            return;
+        }
+        for (int i = 0; i < argbImage.height(); i++) {
+            for (int j = 0; j < width; j++) {
+                cover.set(i, j, Bit.embedInLSB(cover.get(i, j), Image.gray(argbImage.get(i, j)) >= threshold));
+            }
+        }
+    }
 
     // ============================================================================================
     // =================================== REVEALING METHODS ======================================
@@ -132,4 +294,108 @@ public final class ImageSteganography {
         return result;
     }
 
+    /**
+     * Reveal a binary raster from a given raster
+     * @param image raster to reveal from
+     * @return binary raster (1 for <code>true</code>, 0 for <code>false</code>) of the hidden image
+     */
+    public static Raster revealBW(Raster image) {
+        assert image != null && image.width() > 0 && image.height() > 0;
+        Raster result = new Raster(image.width(), image.height());
+        int[] dst = result.array();
+        for (int i = 0; i < image.height(); i++) {
+            for (int j = 0; j < image.width(); j++) {
+                dst[i * image.width() + j] = image.get(i, j) & 1;
+            }
+        }
+        return result;
+    }
+
+    // ============================================================================================
+    // ====================================== RASTER FILES ========================================
+    // ============================================================================================
+
+    /**
+     * Embed a binary raster in a raster file, in place. Only the rows covered by the load are mapped.
+     * @param cover file to embed in, opened for writing
+     * @param load binary raster to embed (any non-zero value is <code>true</code>)
+     * @throws IOException if an I/O error occurs
+     * @see #embedBW(Raster, Raster)
+     */
+    public static void embedBW(RasterFile cover, Raster load) throws IOException {
+        assert cover != null && load != null && cover.isWritable();
+        assert load.width() > 0 && load.height() > 0;
+        assert cover.height() >= load.height() && cover.width() >= load.width();
+
+        int width = load.width();
+        int[] row = new int[width];
+        for (int from = 0; from < load.height(); from += cover.bandRows()) {
+            Raster band = cover.map(from, Math.min(cover.bandRows(), load.height() - from));
+            for (int i = 0; i < band.height(); i++) {
+                Raster segment = band.region(i, 0, 1, width);
+                segment.copyRow(0, row, 0);
+                for (int j = 0; j < width; j++) {
+                    row[j] = Bit.embedInLSB(row[j], load.get(from + i, j) != 0);
+                }
+                segment.putRow(0, row, 0);
+            }
+        }
+    }
+
+    /**
+     * Reveal a binary raster from a raster file into another raster file of the same size
+     * @param image file to reveal from
+     * @param result file receiving the binary raster (1 for <code>true</code>, 0 for <code>false</code>),
+     *               opened for writing
+     * @throws IOException if an I/O error occurs
+     * @see #revealBW(Raster)
+     */
+    public static void revealBW(RasterFile image, RasterFile result) throws IOException {
+        assert image != null && result != null && result.isWritable();
+        assert image.width() == result.width() && image.height() == result.height();
+
+        int[] row = new int[image.width()];
+        for (int from = 0; from < image.height(); from += image.bandRows()) {
+            int rows = Math.min(image.bandRows(), image.height() - from);
+            Raster src = image.map(from, rows);
+            Raster dst = result.map(from, rows);
+            for (int i = 0; i < rows; i++) {
+                src.copyRow(i, row, 0);
+                for (int j = 0; j < row.length; j++) {
+                    row[j] &= 1;
+                }
+                dst.putRow(i, row, 0);
+            }
+        }
+    }
+
+    // ============================================================================================
+    // ====================================== STREAMING PNG =======================================
+    // ============================================================================================
+
+    /**
+     * Embed a binary raster in a PNG image, one strip of rows at a time, so the memory used does not
+     * depend on the size of the cover
+     * @param cover path of the cover PNG image
+     * @param result path of the PNG image to write
+     * @param load binary raster to embed (any non-zero value is <code>true</code>)
+     * @throws IOException if an I/O error occurs or if the cover is not a supported PNG image
+     * @see #embedBW(Raster, Raster)
+     */
+    public static void embedBW(Path cover, Path result, Raster load) throws IOException {
+        assert load != null && load.width() > 0 && load.height() > 0;
+        Strips.run(cover, result, (width, height) -> {
+            assert height >= load.height() && width >= load.width();
+            return (strip, first) -> {
+                int row = (int) (first / width);
+                int[] dst = strip.array();
+                for (int i = 0; i < strip.height() && row + i < load.height(); i++) {
+                    int d = strip.index(i, 0);
+                    for (int j = 0; j < load.width(); j++) {
+                        dst[d + j] = Bit.embedInLSB(dst[d + j], load.get(row + i, j) != 0);
+                    }
+                }
+            };
+        });
+    }
 }
@@ -0,0 +1,72 @@
+package ch.epfl.cs107.stegano;
+
+import ch.epfl.cs107.utils.PngReader;
+import ch.epfl.cs107.utils.PngWriter;
+import ch.epfl.cs107.utils.Raster;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.BiFunction;
+
+/**
+ * Stream a PNG image through a transformation, one strip of rows at a time : each strip is decoded,
+ * transformed in place and encoded before the next one is decoded, so the memory used is bounded by
+ * the size of a strip, whatever the size of the image (except for interlaced images, which
+ * {@link PngReader} decodes entirely).
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+final class Strips {
+
+    /** Number of pixels of a strip (at least one row) */
+    static final int STRIP_PIXELS = 1 << 20;
+
+    private Strips(){}
+
+    /**
+     * Transformation applied on a strip
+     */
+    @FunctionalInterface
+    interface StripOperation {
+        /**
+         * @param strip rows to transform in place
+         * @param first index of the first pixel of the strip in the image, counting row after row
+         */
+        void apply(Raster strip, long first);
+    }
+
+    /**
+     * @param width number of columns of an image
+     * @param height number of rows of an image
+     * @return number of rows of a strip
+     */
+    static int rows(int width, int height) {
+        return Math.max(1, Math.min(height, STRIP_PIXELS / width));
+    }
+
+    /**
+     * Transform a PNG image into another PNG image
+     * @param cover image to read
+     * @param result image to write
+     * @param prepare builds the transformation, from the width and the height of the image
+     * @throws IOException if an I/O error occurs or if the cover is not a supported PNG image
+     */
+    static void run(Path cover, Path result, BiFunction<Integer, Integer, StripOperation> prepare) throws IOException {
+        assert cover != null && result != null && prepare != null;
+        try (PngReader reader = PngReader.open(cover);
+             PngWriter writer = PngWriter.create(result, reader.width(), reader.height())) {
+            int width = reader.width();
+            int height = reader.height();
+            StripOperation operation = prepare.apply(width, height);
+            int rows = rows(width, height);
+            Raster strip = new Raster(width, rows);
+            for (int from = 0; from < height; from += rows) {
+                int n = Math.min(rows, height - from);
+                reader.read(strip, n);
+                operation.apply(n == rows ? strip : strip.region(0, 0, n, width), (long) from * width);
+                writer.write(strip, n);
+            }
+        }
+    }
+}
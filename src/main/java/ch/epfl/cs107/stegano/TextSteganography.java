@@ -2,8 +2,14 @@ package ch.epfl.cs107.stegano;
 
 import ch.epfl.cs107.Helper;
 import ch.epfl.cs107.utils.Bit;
+import ch.epfl.cs107.utils.BitVector;
+import ch.epfl.cs107.utils.PngReader;
+import ch.epfl.cs107.utils.Raster;
+import ch.epfl.cs107.utils.RasterFile;
 import ch.epfl.cs107.utils.Text;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Arrays;
 
 import static ch.epfl.cs107.utils.Text.*;
@@ -24,6 +30,9 @@ import static ch.epfl.cs107.Main.*;
  */
 public class TextSteganography {
 
+    /** Number of pixels holding the header of a message embedded in a raster */
+    public static final int HEADER_PIXELS = Frame.BITS;
+
     // DO NOT CHANGE THIS, MORE ON THAT ON WEEK 7
     private TextSteganography(){}
 
@@ -58,13 +67,22 @@ public class TextSteganography {
         }
 
         // Embed message bits
-        int maxCapacity = cover.length * cover[0].length;
-        for (int k = 0; k < Math.min(message.length, maxCapacity); k++) {
-            int i = k / cover[0].length;
-            int j = k % cover[0].length;
-            result[i][j] = Bit.embedInLSB(cover[i][j], message[k]);
-        }
+        embedBitArrayInPlace(result, message);
+        return result;
+    }
+
+    /**
+     * Embed a bitmap message in an ARGB raster
+     * @param cover Cover raster
+     * @param message Embedded message
+     * @return a new ARGB raster with the message embedded
+     */
+    public static Raster embedBitArray(Raster cover, boolean[] message) {
+        assert cover != null && cover.width() > 0 && cover.height() > 0;
+        assert message != null; // Can be empty
 
+        Raster result = cover.copy();
+        embedBitArrayInPlace(result, message);
         return result;
     }
 
@@ -111,12 +129,64 @@ public class TextSteganography {
 
 
 
+    // ============================================================================================
+    // ================================== EMBEDDING BIT VECTOR ====================================
+    // ============================================================================================
+
+    /**
+     * Embed a packed message in an ARGB raster, one bit per pixel
+     * @param cover Cover raster
+     * @param message Embedded message, truncated if it does not fit in the cover
+     * @return a new ARGB raster with the message embedded
+     */
+    public static Raster embedBitVector(Raster cover, BitVector message) {
+        assert cover != null && cover.width() > 0 && cover.height() > 0;
+        assert message != null;
+
+        Raster result = cover.copy();
+        embedBitVectorInPlace(result, message);
+        return result;
+    }
+
+    /**
+     * Extract a packed bitmap from an ARGB raster, one bit per pixel
+     * @param image Raster to extract from
+     * @return extracted message
+     */
+    public static BitVector revealBitVector(Raster image) {
+        assert image != null;
+
+        int width = image.width();
+        BitVector result = new BitVector((long) width * image.height());
+        if (image.hasArray()) {
+            // Rows are contiguous in the backing array : extract them as spans
+            for (int i = 0; i < image.height(); i++) {
+                Bit.getBits(image.array(), image.offset() + i * image.stride(), width, 0, 1, result, (long) i * width);
+            }
+            return result;
+        }
+        long k = 0;
+        for (int i = 0; i < image.height(); i++) {
+            for (int j = 0; j < width; j++, k++) {
+                if (Bit.getLSB(image.get(i, j)))
+                    result.set(k, true);
+            }
+        }
+        return result;
+    }
+
+
+
+
     // ============================================================================================
     // ===================================== EMBEDDING STRING =====================================
     // ============================================================================================
 
     /**
-     * Embed a String message in an ARGB image
+     * Embed a String message in an ARGB image. When the whole message fits after a header of
+     * {@link #HEADER_PIXELS} pixels, it is framed as with {@link #embedText(Raster, byte[])}, so
+     * {@link #revealText(int[][])} only reads the pixels of the header and of the message. Otherwise
+     * the bits of the message are embedded from the first pixel on, truncated to the cover.
      * @param cover Cover image
      * @param message Embedded message
      * @return ARGB image with the message embedded
@@ -138,27 +208,17 @@ public class TextSteganography {
         // Optional: Allow empty messages by commenting out the following line
         assert message.length > 0;
 
-        // Convert the message directly to a bit array
-        boolean[] messageToBitArray = Text.toBitArray(Text.toString(message));
-
-        // Calculate maximum capacity for embedding based on cover dimensions
-        int coverCapacity = cover.length * cover[0].length;
-
-        // If the message is too long, use only as much of it as will fit in the cover
-        boolean[] truncatedMessage = messageToBitArray;
-        if (messageToBitArray.length > coverCapacity) {
-            truncatedMessage = new boolean[coverCapacity];
-            System.arraycopy(messageToBitArray, 0, truncatedMessage, 0, coverCapacity);
-        }
-
-        // Embed the truncated bit array into the cover image
-        return embedBitArray(cover, truncatedMessage);
+        int[][] result = embedBitArray(cover, new boolean[0]);
+        embedTextInPlace(result, message);
+        return result;
     }
 
 
 
     /**
-     * Extract a String from an image.
+     * Extract a String from an image. If the image starts with a valid header, only the pixels of
+     * the header and of the message are read. Otherwise, or if the message does not match its
+     * checksum, every pixel is read, one bit per pixel.
      * @param image Image to extract from
      * @return extracted message as a byte array
      */
@@ -174,11 +234,604 @@ public class TextSteganography {
             assert image[i].length == numCols;
         }
 
-        // Extract bits from the image
-        boolean[] revealedBitArray = revealBitArray(image);
+        long pixels = (long) image.length * numCols;
+        if (pixels >= HEADER_PIXELS) {
+            BitVector header = new BitVector(Frame.BITS);
+            extract(image, 0, EmbeddingLayout.LSB, header, Frame.BITS);
+            Frame frame = Frame.decode(header);
+            if (frame != null && (long) frame.length() * Byte.SIZE <= frame.layout().capacity(pixels - HEADER_PIXELS)) {
+                BitVector bits = new BitVector((long) frame.length() * Byte.SIZE);
+                extract(image, HEADER_PIXELS, frame.layout(), bits, bits.length());
+                byte[] message = bits.toBytes();
+                if (frame.matches(message))
+                    return message;
+            }
+        }
+
+        // Without a header, extract the bytes from the image, 8 pixels at a time
+        byte[] bytes = new byte[(int) (pixels / Byte.SIZE)];
+        for (int k = 0; k < bytes.length * Byte.SIZE; k++) {
+            if (Bit.getLSB(image[k / numCols][k % numCols]))
+                bytes[k >>> 3] |= (byte) (0x80 >>> (k & 7));
+        }
 
-        // Convert the extracted bits to a String, then to a byte array
-        String message = Text.toString(revealedBitArray);
+        // Go through a String to keep only valid UTF-8 sequences
+        String message = Text.toString(bytes);
         return Text.toBytes(message);
     }
+
+    /**
+     * Embed a message in an ARGB raster, the bits are taken straight from the bytes
+     * (most significant bit first), one per pixel after a header of {@link #HEADER_PIXELS} pixels
+     * @param cover Cover raster, with at least {@link #HEADER_PIXELS} pixels
+     * @param message Embedded message, truncated if it does not fit in the cover
+     * @return a new ARGB raster with the message embedded
+     * @implNote Contrary to {@link #embedText(int[][], byte[])}, the bytes are embedded as is
+     */
+    public static Raster embedText(Raster cover, byte[] message) {
+        return embedText(cover, message, EmbeddingLayout.LSB);
+    }
+
+    /**
+     * Extract a message from an ARGB raster. If the raster starts with a valid header (see
+     * {@link #embedText(Raster, byte[], EmbeddingLayout)}), only the pixels of the header and of the
+     * message are read. Otherwise, or if the message does not match its checksum, every pixel is
+     * read, one bit per pixel.
+     * @param image Raster to extract from
+     * @return extracted message. Without a header, trailing bits that do not form a full byte are ignored
+     * @implNote Contrary to {@link #revealText(int[][])} on an image without a header, the bytes are returned as is
+     */
+    public static byte[] revealText(Raster image) {
+        assert image != null && image.width() > 0 && image.height() > 0;
+
+        Frame frame = readFrame(image);
+        long pixels = (long) image.width() * image.height() - HEADER_PIXELS;
+        if (frame != null && (long) frame.length() * Byte.SIZE <= frame.layout().capacity(pixels)) {
+            BitVector bits = new BitVector((long) frame.length() * Byte.SIZE);
+            extract(image, HEADER_PIXELS, frame.layout(), bits, 0, bits.length());
+            byte[] message = bits.toBytes();
+            if (frame.matches(message))
+                return message;
+        }
+        return revealBitVector(image).toBytes();
+    }
+
+    // ============================================================================================
+    // ================================ EMBEDDING WITH A LAYOUT ===================================
+    // ============================================================================================
+
+    /**
+     * Embed a message in an ARGB raster following a layout. A header holding the layout, the length
+     * and the checksum of the message is written first, in the least significant bit of the first
+     * {@link #HEADER_PIXELS} pixels, so {@link #revealText(Raster)} can find the message back
+     * without knowing the layout nor reading the whole raster.
+     * @param cover Cover raster, with at least {@link #HEADER_PIXELS} pixels
+     * @param message Embedded message, truncated to the bytes that fit in the cover
+     * @param layout where to store the bits of the message in each pixel
+     * @return a new ARGB raster with the message embedded
+     */
+    public static Raster embedText(Raster cover, byte[] message, EmbeddingLayout layout) {
+        assert cover != null && (long) cover.width() * cover.height() >= HEADER_PIXELS;
+        assert message != null && layout != null;
+
+        Raster result = cover.copy();
+        embedTextInPlace(result, message, layout);
+        return result;
+    }
+
+    /**
+     * Read the layout described by the header of an ARGB raster
+     * @param image Raster to read from
+     * @return the layout, or <code>null</code> if the raster does not start with a valid header
+     */
+    public static EmbeddingLayout readLayout(Raster image) {
+        assert image != null;
+        Frame frame = readFrame(image);
+        return frame == null ? null : frame.layout();
+    }
+
+    /**
+     * Read the header of an ARGB raster, only the first {@link #HEADER_PIXELS} pixels are read
+     * @param image Raster to read from
+     * @return the header, or <code>null</code> if the raster does not start with a valid header
+     */
+    private static Frame readFrame(Raster image) {
+        if ((long) image.width() * image.height() < HEADER_PIXELS)
+            return null;
+        BitVector header = new BitVector(Frame.BITS);
+        extract(image, 0, EmbeddingLayout.LSB, header, 0, Frame.BITS);
+        return Frame.decode(header);
+    }
+
+    // ============================================================================================
+    // =================================== IN-PLACE EMBEDDING =====================================
+    // ============================================================================================
+
+    /**
+     * Embed a bitmap message in an ARGB image, by modifying the image : only the pixels holding
+     * the message are written
+     * @param cover Cover image, modified in place
+     * @param message Embedded message, truncated if it does not fit in the cover
+     * @see #embedBitArray(int[][], boolean[])
+     */
+    public static void embedBitArrayInPlace(int[][] cover, boolean[] message) {
+        assert cover != null && cover.length > 0;
+        assert cover[0] != null && cover[0].length > 0;
+        assert message != null; // Can be empty
+
+        int numCols = cover[0].length;
+        int length = (int) Math.min(message.length, (long) cover.length * numCols);
+        for (int k = 0; k < length; k++) {
+            int[] row = cover[k / numCols];
+            row[k % numCols] = Bit.embedInLSB(row[k % numCols], message[k]);
+        }
+    }
+
+    /**
+     * Embed a bitmap message in an ARGB raster, by modifying the raster : only the pixels holding
+     * the message are written
+     * @param cover Cover raster, modified in place
+     * @param message Embedded message, truncated if it does not fit in the cover
+     * @see #embedBitArray(Raster, boolean[])
+     */
+    public static void embedBitArrayInPlace(Raster cover, boolean[] message) {
+        assert message != null; // Can be empty
+        embedBitVectorInPlace(cover, BitVector.fromBooleans(message));
+    }
+
+    /**
+     * Embed a packed message in an ARGB raster, one bit per pixel, by modifying the raster : only
+     * the pixels holding the message are written
+     * @param cover Cover raster, modified in place
+     * @param message Embedded message, truncated if it does not fit in the cover
+     * @see #embedBitVector(Raster, BitVector)
+     */
+    public static void embedBitVectorInPlace(Raster cover, BitVector message) {
+        assert cover != null && cover.width() > 0 && cover.height() > 0;
+        assert message != null;
+
+        long length = Math.min(message.length(), (long) cover.width() * cover.height());
+        embed(cover, 0, EmbeddingLayout.LSB, message, 0, length);
+    }
+
+    /**
+     * Embed a String message in an ARGB image, by modifying the image : only the pixels holding
+     * the message (and its header, when it fits) are written
+     * @param cover Cover image, modified in place
+     * @param message Embedded message, truncated if it does not fit in the cover
+     * @see #embedText(int[][], byte[])
+     */
+    public static void embedTextInPlace(int[][] cover, byte[] message) {
+        assert cover != null && cover.length > 0;
+        assert cover[0] != null && cover[0].length > 0;
+        assert message != null && message.length > 0;
+
+        // Normalise the message as UTF-8, then embed its bits straight from the bytes
+        byte[] bytes = Text.toBytes(Text.toString(message));
+        int numCols = cover[0].length;
+        long pixels = (long) cover.length * numCols;
+
+        if ((long) bytes.length * Byte.SIZE <= pixels - HEADER_PIXELS) {
+            Frame frame = Frame.of(EmbeddingLayout.LSB, bytes, bytes.length);
+            embed(cover, 0, frame.encode(), Frame.BITS);
+            embed(cover, HEADER_PIXELS, BitVector.fromBytes(bytes), (long) bytes.length * Byte.SIZE);
+            return;
+        }
+
+        // If the message is too long, use only as much of it as will fit in the cover
+        long length = Math.min((long) bytes.length * Byte.SIZE, pixels);
+        for (int k = 0; k < length; k++) {
+            int[] row = cover[k / numCols];
+            row[k % numCols] = Bit.embedInLSB(row[k % numCols], bitOf(bytes, k));
+        }
+    }
+
+    /**
+     * Embed a framed message in an ARGB raster, by modifying the raster : only the pixels holding
+     * the header and the message are written
+     * @param cover Cover raster, modified in place, with at least {@link #HEADER_PIXELS} pixels
+     * @param message Embedded message, truncated to the bytes that fit in the cover
+     * @see #embedText(Raster, byte[])
+     */
+    public static void embedTextInPlace(Raster cover, byte[] message) {
+        embedTextInPlace(cover, message, EmbeddingLayout.LSB);
+    }
+
+    /**
+     * Embed a framed message in an ARGB raster following a layout, by modifying the raster : only
+     * the pixels holding the header and the message are written
+     * @param cover Cover raster, modified in place, with at least {@link #HEADER_PIXELS} pixels
+     * @param message Embedded message, truncated to the bytes that fit in the cover
+     * @param layout where to store the bits of the message in each pixel
+     * @see #embedText(Raster, byte[], EmbeddingLayout)
+     */
+    public static void embedTextInPlace(Raster cover, byte[] message, EmbeddingLayout layout) {
+        assert cover != null && (long) cover.width() * cover.height() >= HEADER_PIXELS;
+        assert message != null && layout != null;
+
+        int length = fitting(message, layout, cover.width(), cover.height());
+        Frame frame = Frame.of(layout, message, length);
+        embedFramed(cover, 0, frame.encode(), layout, BitVector.fromBytes(message, 0, length));
+    }
+
+    // ============================================================================================
+    // ====================================== RASTER FILES ========================================
+    // ============================================================================================
+
+    /**
+     * Embed a packed message in a raster file, one bit per pixel, in place.
+     * Only the rows holding the message are mapped.
+     * @param cover Cover file, opened for writing
+     * @param message Embedded message, truncated if it does not fit in the cover
+     * @throws IOException if an I/O error occurs
+     */
+    public static void embedBitVector(RasterFile cover, BitVector message) throws IOException {
+        assert cover != null && cover.isWritable();
+        assert message != null;
+        long length = Math.min(message.length(), (long) cover.width() * cover.height());
+        embed(cover, 0, EmbeddingLayout.LSB, message, length);
+    }
+
+    /**
+     * Embed a bitmap message in a raster file, one bit per pixel, in place
+     * @param cover Cover file, opened for writing
+     * @param message Embedded message, truncated if it does not fit in the cover
+     * @throws IOException if an I/O error occurs
+     */
+    public static void embedBitArray(RasterFile cover, boolean[] message) throws IOException {
+        assert message != null;
+        embedBitVector(cover, BitVector.fromBooleans(message));
+    }
+
+    /**
+     * Embed a framed message in a raster file, one bit per pixel, in place
+     * @param cover Cover file, opened for writing, with at least {@link #HEADER_PIXELS} pixels
+     * @param message Embedded message, truncated to the bytes that fit in the cover
+     * @throws IOException if an I/O error occurs
+     * @see #embedText(Raster, byte[])
+     */
+    public static void embedText(RasterFile cover, byte[] message) throws IOException {
+        embedText(cover, message, EmbeddingLayout.LSB);
+    }
+
+    /**
+     * Embed a framed message in a raster file following a layout, in place.
+     * Only the rows holding the header and the message are mapped.
+     * @param cover Cover file, opened for writing, with at least {@link #HEADER_PIXELS} pixels
+     * @param message Embedded message, truncated to the bytes that fit in the cover
+     * @param layout where to store the bits of the message in each pixel
+     * @throws IOException if an I/O error occurs
+     * @see #embedText(Raster, byte[], EmbeddingLayout)
+     */
+    public static void embedText(RasterFile cover, byte[] message, EmbeddingLayout layout) throws IOException {
+        assert cover != null && cover.isWritable() && (long) cover.width() * cover.height() >= HEADER_PIXELS;
+        assert message != null && layout != null;
+
+        int length = fitting(message, layout, cover.width(), cover.height());
+        BitVector header = Frame.of(layout, message, length).encode();
+        BitVector payload = BitVector.fromBytes(message, 0, length);
+        // Stop at the band holding the last pixel of the message
+        long used = HEADER_PIXELS + (payload.length() + layout.bitsPerPixel() - 1) / layout.bitsPerPixel();
+        for (int row = 0; (long) row * cover.width() < used; row += cover.bandRows()) {
+            Raster band = cover.map(row, Math.min(cover.bandRows(), cover.height() - row));
+            embedFramed(band, (long) row * cover.width(), header, layout, payload);
+        }
+    }
+
+    /**
+     * Extract a message from a raster file. With a valid header, only the rows holding the header
+     * and the message are mapped.
+     * @param image File to extract from
+     * @return extracted message
+     * @throws IOException if an I/O error occurs
+     * @see #revealText(Raster)
+     */
+    public static byte[] revealText(RasterFile image) throws IOException {
+        assert image != null;
+
+        long pixels = (long) image.width() * image.height();
+        if (pixels >= HEADER_PIXELS) {
+            BitVector header = new BitVector(Frame.BITS);
+            extract(image, 0, EmbeddingLayout.LSB, header, Frame.BITS);
+            Frame frame = Frame.decode(header);
+            if (frame != null && (long) frame.length() * Byte.SIZE <= frame.layout().capacity(pixels - HEADER_PIXELS)) {
+                BitVector bits = new BitVector((long) frame.length() * Byte.SIZE);
+                extract(image, HEADER_PIXELS, frame.layout(), bits, bits.length());
+                byte[] message = bits.toBytes();
+                if (frame.matches(message))
+                    return message;
+            }
+        }
+        BitVector bits = new BitVector(pixels / Byte.SIZE * Byte.SIZE);
+        extract(image, 0, EmbeddingLayout.LSB, bits, bits.length());
+        return bits.toBytes();
+    }
+
+    // ============================================================================================
+    // ====================================== STREAMING PNG =======================================
+    // ============================================================================================
+
+    /**
+     * Embed a framed message in a PNG image, one bit per pixel, one strip of rows at a time
+     * @param cover path of the cover PNG image, with at least {@link #HEADER_PIXELS} pixels
+     * @param result path of the PNG image to write
+     * @param message Embedded message, truncated to the bytes that fit in the cover
+     * @throws IOException if an I/O error occurs or if the cover is not a supported PNG image
+     * @see #embedText(Raster, byte[])
+     */
+    public static void embedText(Path cover, Path result, byte[] message) throws IOException {
+        embedText(cover, result, message, EmbeddingLayout.LSB);
+    }
+
+    /**
+     * Embed a framed message in a PNG image following a layout. The image is decoded, embedded and
+     * encoded one strip of rows at a time, so the memory used does not depend on the size of the image.
+     * @param cover path of the cover PNG image, with at least {@link #HEADER_PIXELS} pixels
+     * @param result path of the PNG image to write
+     * @param message Embedded message, truncated to the bytes that fit in the cover
+     * @param layout where to store the bits of the message in each pixel
+     * @throws IOException if an I/O error occurs or if the cover is not a supported PNG image
+     * @see #embedText(Raster, byte[], EmbeddingLayout)
+     */
+    public static void embedText(Path cover, Path result, byte[] message, EmbeddingLayout layout) throws IOException {
+        assert message != null && layout != null;
+        Strips.run(cover, result, (width, height) -> {
+            assert (long) width * height >= HEADER_PIXELS;
+            int length = fitting(message, layout, width, height);
+            BitVector header = Frame.of(layout, message, length).encode();
+            BitVector payload = BitVector.fromBytes(message, 0, length);
+            return (strip, first) -> embedFramed(strip, first, header, layout, payload);
+        });
+    }
+
+    /**
+     * Extract a message from a PNG image. With a valid header, the image is only decoded up to the
+     * last row holding the message, one strip of rows at a time.
+     * @param image path of the PNG image
+     * @return extracted message
+     * @throws IOException if an I/O error occurs or if the image is not a supported PNG image
+     * @see #revealText(Raster)
+     */
+    public static byte[] revealText(Path image) throws IOException {
+        assert image != null;
+        try (PngReader reader = PngReader.open(image)) {
+            int width = reader.width();
+            int height = reader.height();
+            long pixels = (long) width * height;
+            int rows = Strips.rows(width, height);
+            Raster strip = new Raster(width, rows);
+            BitVector header = new BitVector(Frame.BITS);
+            Frame frame = null;
+            BitVector payload = null;
+            for (int from = 0; from < height && pixels >= HEADER_PIXELS; from += rows) {
+                int n = Math.min(rows, height - from);
+                reader.read(strip, n);
+                long first = (long) from * width;
+                long end = first + (long) n * width;
+                if (first < HEADER_PIXELS)
+                    extract(strip, 0, EmbeddingLayout.LSB, header, first, Math.min(HEADER_PIXELS, end) - first);
+                if (frame == null) {
+                    if (end < HEADER_PIXELS)
+                        continue;
+                    frame = Frame.decode(header);
+                    if (frame == null || (long) frame.length() * Byte.SIZE > frame.layout().capacity(pixels - HEADER_PIXELS))
+                        break;
+                    payload = new BitVector((long) frame.length() * Byte.SIZE);
+                }
+                long start = Math.max(first, HEADER_PIXELS);
+                long done = frame.layout().capacity(start - HEADER_PIXELS);
+                if (done >= payload.length()) {
+                    break;
+                }
+                long count = Math.min(payload.length() - done, frame.layout().capacity(end - start));
+                extract(strip, start - first, frame.layout(), payload, done, count);
+                if (done + count == payload.length())
+                    break;
+            }
+            if (payload != null) {
+                byte[] message = payload.toBytes();
+                if (frame.matches(message))
+                    return message;
+            }
+        }
+        return revealBits(image);
+    }
+
+    /**
+     * Extract the least significant bit of every pixel of a PNG image, one strip of rows at a time
+     */
+    private static byte[] revealBits(Path image) throws IOException {
+        try (PngReader reader = PngReader.open(image)) {
+            int width = reader.width();
+            int height = reader.height();
+            int rows = Strips.rows(width, height);
+            Raster strip = new Raster(width, rows);
+            BitVector bits = new BitVector((long) width * height / Byte.SIZE * Byte.SIZE);
+            for (int from = 0; from < height; from += rows) {
+                int n = Math.min(rows, height - from);
+                reader.read(strip, n);
+                long first = (long) from * width;
+                long count = Math.min(bits.length() - first, (long) n * width);
+                if (count > 0)
+                    extract(strip, 0, EmbeddingLayout.LSB, bits, first, count);
+            }
+            return bits.toBytes();
+        }
+    }
+
+    // ============================================================================================
+    // ========================================= HELPERS ==========================================
+    // ============================================================================================
+
+    /**
+     * @return number of bytes of a message that fit in an image after the header
+     */
+    private static int fitting(byte[] message, EmbeddingLayout layout, int width, int height) {
+        long pixels = (long) width * height - HEADER_PIXELS;
+        return (int) Math.min(message.length, layout.capacity(pixels) / Byte.SIZE);
+    }
+
+    /**
+     * Embed the part of a framed message that falls in a part of an image, in place
+     * @param part consecutive rows of the image
+     * @param first index of the first pixel of <code>part</code> in the image, counting row after row
+     * @param header encoded header of the message
+     * @param layout layout of the message
+     * @param payload bits of the message
+     */
+    private static void embedFramed(Raster part, long first, BitVector header, EmbeddingLayout layout, BitVector payload) {
+        long end = first + (long) part.width() * part.height();
+        if (first < HEADER_PIXELS)
+            embed(part, 0, EmbeddingLayout.LSB, header, first, Math.min(HEADER_PIXELS, end) - first);
+        long start = Math.max(first, HEADER_PIXELS);
+        long from = layout.capacity(start - HEADER_PIXELS);
+        if (start < end && from < payload.length()) {
+            long count = Math.min(payload.length() - from, layout.capacity(end - start));
+            embed(part, start - first, layout, payload, from, count);
+        }
+    }
+
+    /**
+     * Embed bits in consecutive pixels of a raster, row after row, in place
+     * @param image Raster to embed in
+     * @param first index of the first pixel, counting row after row
+     * @param layout where to store the bits in each pixel
+     * @param bits bits to embed
+     * @param from index of the first bit to embed
+     * @param count number of bits to embed
+     */
+    private static void embed(Raster image, long first, EmbeddingLayout layout, BitVector bits, long from, long count) {
+        int width = image.width();
+        int[] row = image.hasArray() ? null : new int[width];
+        long done = 0;
+        for (long p = first; done < count; p += width - p % width) {
+            int i = (int) (p / width);
+            int j = (int) (p % width);
+            long n = Math.min(count - done, layout.capacity(width - j));
+            if (image.hasArray()) {
+                layout.embed(image.array(), image.index(i, j), bits, from + done, n);
+                image.markDirty(i, i + 1);
+            } else {
+                // Only copy back and forth the pixels holding the bits
+                int used = (int) ((n + layout.bitsPerPixel() - 1) / layout.bitsPerPixel());
+                Raster segment = image.region(i, j, 1, used);
+                segment.copyRow(0, row, 0);
+                layout.embed(row, 0, bits, from + done, n);
+                segment.putRow(0, row, 0);
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * Extract bits from consecutive pixels of a raster, row after row
+     * @param image Raster to extract from
+     * @param first index of the first pixel, counting row after row
+     * @param layout where the bits are stored in each pixel
+     * @param bits vector receiving the bits
+     * @param from index of the first bit to write
+     * @param count number of bits to extract
+     */
+    private static void extract(Raster image, long first, EmbeddingLayout layout, BitVector bits, long from, long count) {
+        int width = image.width();
+        int[] row = image.hasArray() ? null : new int[width];
+        long done = 0;
+        for (long p = first; done < count; p += width - p % width) {
+            int i = (int) (p / width);
+            int j = (int) (p % width);
+            long n = Math.min(count - done, layout.capacity(width - j));
+            if (image.hasArray()) {
+                layout.extract(image.array(), image.index(i, j), bits, from + done, n);
+            } else {
+                // Only copy the pixels holding the bits
+                int used = (int) ((n + layout.bitsPerPixel() - 1) / layout.bitsPerPixel());
+                image.region(i, j, 1, used).copyRow(0, row, 0);
+                layout.extract(row, 0, bits, from + done, n);
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * Embed bits in the least significant bit of consecutive pixels of an image, row after row, in place
+     * @param image Image to embed in
+     * @param first index of the first pixel, counting row after row
+     * @param bits bits to embed, from the first one
+     * @param count number of bits to embed
+     */
+    private static void embed(int[][] image, long first, BitVector bits, long count) {
+        int width = image[0].length;
+        long done = 0;
+        for (long p = first; done < count; p += width - p % width) {
+            int j = (int) (p % width);
+            long n = Math.min(count - done, width - j);
+            EmbeddingLayout.LSB.embed(image[(int) (p / width)], j, bits, done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Extract bits from consecutive pixels of an image, row after row
+     * @param image Image to extract from
+     * @param first index of the first pixel, counting row after row
+     * @param layout where the bits are stored in each pixel
+     * @param bits vector receiving the bits, from the first one
+     * @param count number of bits to extract
+     */
+    private static void extract(int[][] image, long first, EmbeddingLayout layout, BitVector bits, long count) {
+        int width = image[0].length;
+        long done = 0;
+        for (long p = first; done < count; p += width - p % width) {
+            int j = (int) (p % width);
+            long n = Math.min(count - done, layout.capacity(width - j));
+            layout.extract(image[(int) (p / width)], j, bits, done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Embed bits in consecutive pixels of a raster file, in place, mapping one band of rows at a time
+     * @see #embed(Raster, long, EmbeddingLayout, BitVector, long, long)
+     */
+    private static void embed(RasterFile file, long first, EmbeddingLayout layout, BitVector bits, long count) throws IOException {
+        long width = file.width();
+        long done = 0;
+        for (long p = first; done < count; ) {
+            int row = (int) (p / width);
+            int rows = Math.min(file.bandRows(), file.height() - row);
+            long end = (row + rows) * width;
+            long n = Math.min(count - done, layout.capacity(end - p));
+            embed(file.map(row, rows), p - row * width, layout, bits, done, n);
+            done += n;
+            p = end;
+        }
+    }
+
+    /**
+     * Extract bits from consecutive pixels of a raster file, mapping one band of rows at a time
+     * @see #extract(Raster, long, EmbeddingLayout, BitVector, long, long)
+     */
+    private static void extract(RasterFile file, long first, EmbeddingLayout layout, BitVector bits, long count) throws IOException {
+        long width = file.width();
+        long done = 0;
+        for (long p = first; done < count; ) {
+            int row = (int) (p / width);
+            int rows = Math.min(file.bandRows(), file.height() - row);
+            long end = (row + rows) * width;
+            long n = Math.min(count - done, layout.capacity(end - p));
+            extract(file.map(row, rows), p - row * width, layout, bits, done, n);
+            done += n;
+            p = end;
+        }
+    }
+
+    /**
+     * Read a bit of a byte array, most significant bit first
+     * @param bytes bytes to read from
+     * @param index index of the bit
+     * @return <code>true</code> if the bit is '1' and <code>false</code> otherwise
+     */
+    private static boolean bitOf(byte[] bytes, long index) {
+        return ((bytes[(int) (index >>> 3)] << (index & 7)) & 0x80) != 0;
+    }
 }
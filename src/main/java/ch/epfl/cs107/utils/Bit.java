@@ -8,6 +8,17 @@ package ch.epfl.cs107.utils;
  * @since 1.0.0
  */
 public final class Bit {
+    /** Bit array representation of every byte, indexed by the unsigned value of the byte */
+    private static final boolean[][] BIT_ARRAYS = new boolean[1 << Byte.SIZE][Byte.SIZE];
+
+    static {
+        for (int value = 0; value < BIT_ARRAYS.length; value++) {
+            for (int i = 0; i < Byte.SIZE; i++) {
+                BIT_ARRAYS[value][i] = ((value >>> (Byte.SIZE - 1 - i)) & 1) == 1;
+            }
+        }
+    }
+
     // DO NOT CHANGE THIS, MORE ON THAT ON WEEK 7
     private Bit() {
     }
@@ -25,14 +36,8 @@ public final class Bit {
      */
     public static int embedInXthBit(int value, boolean m, int pos) {
         assert pos >= 0 && pos < 32;
-        if (getXthBit(value, pos) != m) { //si le bit est différent de m, on le modifie
-            if (m) {
-                value = (int) ((int) value + Math.pow(2, pos));
-            } else {
-                value = (int) ((int) value - Math.pow(2, pos));
-            } //on ajoute ou on retire 2^pos au nombre en fonction de si 0 ou 1 présent à cette position
-        }
-        return value;
+        // Clear the bit, then set it to m : no branch on the current value of the bit
+        return (value & ~(1 << pos)) | ((m ? 1 : 0) << pos);
     }
     /**
      * Embed a bit in the "least significant bit" (LSB)
@@ -55,7 +60,7 @@ public final class Bit {
      */
     public static boolean getXthBit(int value, int pos) {
         assert pos >= 0 && pos < 32;
-        return (value & (1 << pos)) != 0; //On fait AND entre value et 1 décalé vers la gauche de pos
+        return ((value >>> pos) & 1) != 0;
     }
     /**
      * Extract the 'least significant bit' from a given value
@@ -89,11 +94,8 @@ public final class Bit {
      */
     // 1 byte contient 8 bits, donc tu peux representer 2^8 valeurs, (-128 à 127)
     public static boolean[] toBitArray(byte value) {
-        boolean[] result = new boolean[Byte.SIZE];
-        for (int i = 0; i < result.length; i++) {
-            result[Byte.SIZE - 1 - i] = ((value >> i) & 1) == 1;
-        }
-        return result;
+        // The table is shared, hand out a copy
+        return BIT_ARRAYS[value & 0xFF].clone();
     }
     /**
      * Convert a boolean array to a byte
@@ -115,12 +117,94 @@ public final class Bit {
     public static byte toByte(boolean[] bitArray) {
         assert bitArray != null && bitArray.length == Byte.SIZE;
 
-        byte result = 0;
+        int result = 0;
         for (int i = 0; i < Byte.SIZE; i++) {
-            if (bitArray[i]) {
-                result |= (byte) (1 << (Byte.SIZE - 1 - i));
+            result = (result << 1) | (bitArray[i] ? 1 : 0);
+        }
+        return (byte) result;
+    }
+
+    // ============================================================================================
+    // ================================== MULTI-BIT MANIPULATION ==================================
+    // ============================================================================================
+
+    /**
+     * Embed several bits in a given integer
+     * @param value value to embed in
+     * @param bits  bits to embed, only the <code>count</code> lowest bits are used
+     * @param pos   position of the lowest bit to change
+     * @param count number of bits to change
+     * @return embedded value
+     */
+    public static int embedBits(int value, int bits, int pos, int count) {
+        assert count > 0 && pos >= 0 && pos + count <= Integer.SIZE;
+        int mask = (-1 >>> (Integer.SIZE - count)) << pos;
+        return (value & ~mask) | ((bits << pos) & mask);
+    }
+
+    /**
+     * Extract several bits from a given value
+     * @param value value to extract from
+     * @param pos   position of the lowest bit to extract
+     * @param count number of bits to extract
+     * @return the bits, in the <code>count</code> lowest bits of the result
+     */
+    public static int getBits(int value, int pos, int count) {
+        assert count > 0 && pos >= 0 && pos + count <= Integer.SIZE;
+        return (value >>> pos) & (-1 >>> (Integer.SIZE - count));
+    }
+
+    /**
+     * Embed consecutive bits of a vector in a span of integers, <code>count</code> bits per integer.
+     * The first bit of each group is embedded in the most significant of the changed bits.
+     * @param values values to embed in, modified in place
+     * @param offset index of the first value
+     * @param length number of values
+     * @param pos    position of the lowest bit to change in each value
+     * @param count  number of bits to change in each value
+     * @param bits   bits to embed
+     * @param from   index of the first bit to embed, <code>length * count</code> bits are used
+     */
+    public static void embedBits(int[] values, int offset, int length, int pos, int count, BitVector bits, long from) {
+        assert values != null && bits != null;
+        assert offset >= 0 && length >= 0 && offset + length <= values.length;
+        assert from >= 0 && from + (long) length * count <= bits.length();
+        int mask = -1 >>> (Integer.SIZE - count);
+        int perWord = Long.SIZE / count;
+        // Read as many groups as fit in a long at once, then spread them from the last one
+        for (int i = 0; i < length; i += perWord) {
+            int n = Math.min(perWord, length - i);
+            long chunk = bits.get(from + (long) i * count, n * count);
+            for (int k = offset + i + n - 1; k >= offset + i; k--) {
+                values[k] = embedBits(values[k], (int) chunk & mask, pos, count);
+                chunk >>>= count;
+            }
+        }
+    }
+
+    /**
+     * Extract bits from a span of integers into a vector, <code>count</code> bits per integer.
+     * Reverse operation of {@link #embedBits(int[], int, int, int, int, BitVector, long)}.
+     * @param values values to extract from
+     * @param offset index of the first value
+     * @param length number of values
+     * @param pos    position of the lowest bit to extract from each value
+     * @param count  number of bits to extract from each value
+     * @param bits   vector receiving the bits
+     * @param from   index of the first bit to write, <code>length * count</code> bits are written
+     */
+    public static void getBits(int[] values, int offset, int length, int pos, int count, BitVector bits, long from) {
+        assert values != null && bits != null;
+        assert offset >= 0 && length >= 0 && offset + length <= values.length;
+        assert from >= 0 && from + (long) length * count <= bits.length();
+        int perWord = Long.SIZE / count;
+        for (int i = 0; i < length; i += perWord) {
+            int n = Math.min(perWord, length - i);
+            long chunk = 0;
+            for (int k = offset + i; k < offset + i + n; k++) {
+                chunk = (chunk << count) | getBits(values[k], pos, count);
             }
+            bits.set(from + (long) i * count, n * count, chunk);
         }
-        return result;
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+package ch.epfl.cs107.utils;
+
+/**
+ * Packed sequence of bits, stored 64 per <code>long</code>.
+ * <p>
+ * Bits follow the same order as {@link Text#toBitArray(String)} : the first bit of the vector is the
+ * most significant bit of the first byte. Consequently, 8 consecutive bytes are stored as one
+ * big-endian <code>long</code>, which makes the byte import/export a simple copy.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class BitVector {
+
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = Long.SIZE - 1;
+
+    private final long[] words;
+    private final long length;
+
+    /**
+     * Create a vector of a given length, filled with 0
+     * @param length number of bits of the vector
+     */
+    public BitVector(long length) {
+        assert length >= 0;
+        this.words = new long[Math.toIntExact((length + WORD_MASK) >>> WORD_SHIFT)];
+        this.length = length;
+    }
+
+    // ============================================================================================
+    // ======================================= CONVERSIONS ========================================
+    // ============================================================================================
+
+    /**
+     * Build a vector holding all the bits of a byte array
+     * @param bytes bytes to import
+     * @return vector of <code>8 * bytes.length</code> bits
+     */
+    public static BitVector fromBytes(byte[] bytes) {
+        assert bytes != null;
+        return fromBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Build a vector holding all the bits of a range of a byte array
+     * @param bytes bytes to import
+     * @param offset index of the first byte to import
+     * @param length number of bytes to import
+     * @return vector of <code>8 * length</code> bits
+     */
+    public static BitVector fromBytes(byte[] bytes, int offset, int length) {
+        assert bytes != null && offset >= 0 && length >= 0 && offset + length <= bytes.length;
+        BitVector result = new BitVector((long) length * Byte.SIZE);
+        for (int i = 0; i < length; i++) {
+            result.words[i >>> 3] |= (bytes[offset + i] & 0xFFL) << (Long.SIZE - Byte.SIZE - ((i & 7) << 3));
+        }
+        return result;
+    }
+
+    /**
+     * Build a vector from its boolean representation
+     * @param bits bits to import
+     * @return vector holding the same bits
+     */
+    public static BitVector fromBooleans(boolean[] bits) {
+        assert bits != null;
+        BitVector result = new BitVector(bits.length);
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i])
+                result.words[i >>> WORD_SHIFT] |= 1L << (WORD_MASK - (i & WORD_MASK));
+        }
+        return result;
+    }
+
+    /**
+     * Export the bits of the vector as bytes. Trailing bits that do not form a full byte are ignored.
+     * @return <code>length() / 8</code> bytes
+     */
+    public byte[] toBytes() {
+        byte[] result = new byte[Math.toIntExact(length / Byte.SIZE)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) (words[i >>> 3] >>> (Long.SIZE - Byte.SIZE - ((i & 7) << 3)));
+        }
+        return result;
+    }
+
+    /**
+     * Export the vector as a boolean array
+     * @return boolean representation of the vector
+     */
+    public boolean[] toBooleans() {
+        boolean[] result = new boolean[Math.toIntExact(length)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = get(i);
+        }
+        return result;
+    }
+
+    // ============================================================================================
+    // ======================================== ACCESSORS =========================================
+    // ============================================================================================
+
+    /** @return number of bits in the vector */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Read a single bit
+     * @param index index of the bit
+     * @return <code>true</code> if the bit is '1' and <code>false</code> otherwise
+     */
+    public boolean get(long index) {
+        assert index >= 0 && index < length;
+        return (words[(int) (index >>> WORD_SHIFT)] << (index & WORD_MASK)) < 0;
+    }
+
+    /**
+     * Write a single bit
+     * @param index index of the bit
+     * @param bit <code>true</code> to write 1, <code>false</code> to write 0
+     */
+    public void set(long index, boolean bit) {
+        assert index >= 0 && index < length;
+        int word = (int) (index >>> WORD_SHIFT);
+        long mask = Long.MIN_VALUE >>> (index & WORD_MASK);
+        words[word] = bit ? words[word] | mask : words[word] & ~mask;
+    }
+
+    /**
+     * Read a range of at most 64 bits
+     * @param from index of the first bit
+     * @param count number of bits to read (between 0 and 64)
+     * @return the bits, the bit at <code>from</code> being the most significant of the
+     * <code>count</code> lowest bits of the result
+     */
+    public long get(long from, int count) {
+        assert count >= 0 && count <= Long.SIZE;
+        assert from >= 0 && from + count <= length;
+        if (count == 0)
+            return 0;
+        int word = (int) (from >>> WORD_SHIFT);
+        int shift = (int) (from & WORD_MASK);
+        long high = words[word] << shift;
+        if (shift + count > Long.SIZE)
+            high |= words[word + 1] >>> (Long.SIZE - shift);
+        return high >>> (Long.SIZE - count);
+    }
+
+    /**
+     * Write a range of at most 64 bits
+     * @param from index of the first bit
+     * @param count number of bits to write (between 0 and 64)
+     * @param bits the bits, using the same layout as {@link #get(long, int)}
+     */
+    public void set(long from, int count, long bits) {
+        assert count >= 0 && count <= Long.SIZE;
+        assert from >= 0 && from + count <= length;
+        if (count == 0)
+            return;
+        int word = (int) (from >>> WORD_SHIFT);
+        int shift = (int) (from & WORD_MASK);
+        // Align the bits on the most significant side of a long
+        long aligned = bits << (Long.SIZE - count);
+        long mask = -1L << (Long.SIZE - count);
+        words[word] = (words[word] & ~(mask >>> shift)) | (aligned >>> shift);
+        if (shift + count > Long.SIZE) {
+            int spill = Long.SIZE - shift;
+            words[word + 1] = (words[word + 1] & ~(mask << spill)) | (aligned << spill);
+        }
+    }
+}
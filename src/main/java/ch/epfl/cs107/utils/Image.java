@@ -2,6 +2,9 @@ package ch.epfl.cs107.utils;
 
 import ch.epfl.cs107.Helper;
 
+import java.io.IOException;
+import java.util.function.UnaryOperator;
+
 import static ch.epfl.cs107.utils.Bit.*;
 
 /**
@@ -198,6 +201,31 @@ public final class Image {
         }
         return result;
     }
+    /**
+     * Build the binary representation of an ARGB image, in a single pass : same result as
+     * <code>toBinary(toGray(image), threshold)</code> without the intermediate gray image
+     *
+     * @param image     an image in ARGB format
+     * @param threshold Threshold to consider
+     * @return binary representation of the image
+     */
+    public static boolean[][] argbToBinary(int[][] image, int threshold) {
+        assert image != null;
+        assert image.length == 0 || (image[0] != null && image[0].length >= 0);
+        if (image.length == 0 || image[0].length == 0) {
+            return new boolean[0][0];
+        }
+
+        boolean[][] result = new boolean[image.length][];
+        for (int i = 0; i < image.length; i++) {
+            int[] row = image[i] == null ? new int[0] : image[i];
+            result[i] = new boolean[row.length];
+            for (int j = 0; j < row.length; j++) {
+                result[i][j] = gray(row[j]) >= threshold;
+            }
+        }
+        return result;
+    }
     /**
      * Build an ARGB image from the gray-scaled image
      *
@@ -266,4 +294,241 @@ public final class Image {
         }
         return result;
     }
+
+    // ============================================================================================
+    // =================================== RASTER MANIPULATION ====================================
+    // ============================================================================================
+
+    /**
+     * Build the gray scale version of an ARGB raster
+     *
+     * @param image raster in ARGB format
+     * @return the gray scale version of the raster
+     */
+    public static Raster toGray(Raster image) {
+        assert image != null;
+        int width = image.width();
+        int height = image.height();
+        Raster result = new Raster(width, height);
+        int[] dst = result.array();
+        if (image.hasArray()) {
+            int[] src = image.array();
+            for (int i = 0; i < height; i++) {
+                int s = image.offset() + i * image.stride();
+                int d = i * width;
+                for (int j = 0; j < width; j++) {
+                    dst[d + j] = gray(src[s + j]);
+                }
+            }
+        } else {
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    dst[i * width + j] = gray(image.get(i, j));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Build the binary representation of a raster from the gray scale version.
+     * The result stores 1 for white (<code>true</code>) pixels and 0 for black ones.
+     *
+     * @param image     raster in gray scale representation
+     * @param threshold Threshold to consider
+     * @return binary representation of the raster
+     */
+    public static Raster toBinary(Raster image, int threshold) {
+        assert image != null;
+        int width = image.width();
+        int height = image.height();
+        Raster result = new Raster(width, height);
+        int[] dst = result.array();
+        if (image.hasArray()) {
+            int[] src = image.array();
+            for (int i = 0; i < height; i++) {
+                int s = image.offset() + i * image.stride();
+                int d = i * width;
+                for (int j = 0; j < width; j++) {
+                    dst[d + j] = binary(src[s + j], threshold) ? 1 : 0;
+                }
+            }
+        } else {
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    dst[i * width + j] = binary(image.get(i, j), threshold) ? 1 : 0;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Build the binary representation of an ARGB raster, in a single pass : same result as
+     * <code>toBinary(toGray(image), threshold)</code> without the intermediate gray raster
+     *
+     * @param image     raster in ARGB format
+     * @param threshold Threshold to consider
+     * @return binary representation of the raster (1 for white pixels, 0 for black ones)
+     */
+    public static Raster argbToBinary(Raster image, int threshold) {
+        assert image != null;
+        int width = image.width();
+        int height = image.height();
+        Raster result = new Raster(width, height);
+        int[] dst = result.array();
+        if (image.hasArray()) {
+            int[] src = image.array();
+            for (int i = 0; i < height; i++) {
+                int s = image.offset() + i * image.stride();
+                int d = i * width;
+                for (int j = 0; j < width; j++) {
+                    dst[d + j] = gray(src[s + j]) >= threshold ? 1 : 0;
+                }
+            }
+        } else {
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    dst[i * width + j] = gray(image.get(i, j)) >= threshold ? 1 : 0;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Build an ARGB raster from the gray-scaled raster
+     *
+     * @param image grayscale raster representation
+     * @return <b>gray ARGB</b> representation
+     */
+    public static Raster fromGray(Raster image) {
+        assert image != null;
+        int width = image.width();
+        int height = image.height();
+        Raster result = new Raster(width, height);
+        int[] dst = result.array();
+        if (image.hasArray()) {
+            int[] src = image.array();
+            for (int i = 0; i < height; i++) {
+                int s = image.offset() + i * image.stride();
+                int d = i * width;
+                for (int j = 0; j < width; j++) {
+                    dst[d + j] = grayToArgb(src[s + j]);
+                }
+            }
+        } else {
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    dst[i * width + j] = grayToArgb(image.get(i, j));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Build an ARGB raster from the binary raster (any non-zero value is white)
+     *
+     * @param image binary raster representation
+     * @return <b>black and white ARGB</b> representation
+     */
+    public static Raster fromBinary(Raster image) {
+        assert image != null;
+        int width = image.width();
+        int height = image.height();
+        Raster result = new Raster(width, height);
+        int[] dst = result.array();
+        if (image.hasArray()) {
+            int[] src = image.array();
+            for (int i = 0; i < height; i++) {
+                int s = image.offset() + i * image.stride();
+                int d = i * width;
+                for (int j = 0; j < width; j++) {
+                    dst[d + j] = src[s + j] != 0 ? 0xFFFFFFFF : 0xFF000000;
+                }
+            }
+        } else {
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    dst[i * width + j] = image.get(i, j) != 0 ? 0xFFFFFFFF : 0xFF000000;
+                }
+            }
+        }
+        return result;
+    }
+
+    // ============================================================================================
+    // ====================================== RASTER FILES ========================================
+    // ============================================================================================
+
+    /**
+     * Gray scale version of a raster file, see {@link #toGray(Raster)}
+     * @param image file in ARGB format
+     * @param result file receiving the gray scale version, of the same size and opened for writing
+     * @throws IOException if an I/O error occurs
+     */
+    public static void toGray(RasterFile image, RasterFile result) throws IOException {
+        convert(image, result, Image::toGray);
+    }
+
+    /**
+     * Binary version of a gray scale raster file, see {@link #toBinary(Raster, int)}
+     * @param image file in gray scale representation
+     * @param result file receiving the binary version, of the same size and opened for writing
+     * @param threshold Threshold to consider
+     * @throws IOException if an I/O error occurs
+     */
+    public static void toBinary(RasterFile image, RasterFile result, int threshold) throws IOException {
+        convert(image, result, band -> toBinary(band, threshold));
+    }
+
+    /**
+     * ARGB version of a gray scale raster file, see {@link #fromGray(Raster)}
+     * @param image file in gray scale representation
+     * @param result file receiving the ARGB version, of the same size and opened for writing
+     * @throws IOException if an I/O error occurs
+     */
+    public static void fromGray(RasterFile image, RasterFile result) throws IOException {
+        convert(image, result, Image::fromGray);
+    }
+
+    /**
+     * ARGB version of a binary raster file, see {@link #fromBinary(Raster)}
+     * @param image file in binary representation
+     * @param result file receiving the ARGB version, of the same size and opened for writing
+     * @throws IOException if an I/O error occurs
+     */
+    public static void fromBinary(RasterFile image, RasterFile result) throws IOException {
+        convert(image, result, Image::fromBinary);
+    }
+
+    /**
+     * Apply a raster conversion to a file, one band of rows at a time, so only one band of
+     * converted pixels is held in the heap
+     */
+    private static void convert(RasterFile image, RasterFile result, UnaryOperator<Raster> conversion) throws IOException {
+        assert image != null && result != null && result.isWritable();
+        assert image.width() == result.width() && image.height() == result.height();
+        int width = image.width();
+        for (int from = 0; from < image.height(); from += image.bandRows()) {
+            int rows = Math.min(image.bandRows(), image.height() - from);
+            int[] converted = conversion.apply(image.map(from, rows)).array();
+            Raster dst = result.map(from, rows);
+            for (int i = 0; i < rows; i++) {
+                dst.putRow(i, converted, i * width);
+            }
+        }
+    }
+
+    /**
+     * Build an opaque gray ARGB pixel from a gray scale value
+     *
+     * @param gray gray scale value
+     * @return packed value of the pixel
+     */
+    static int grayToArgb(int gray) {
+        int g = gray & 0xFF;
+        return 0xFF000000 | g << 16 | g << 8 | g;
+    }
 }
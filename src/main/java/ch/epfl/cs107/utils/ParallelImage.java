@@ -0,0 +1,307 @@
+package ch.epfl.cs107.utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntUnaryOperator;
+
+import static ch.epfl.cs107.utils.Image.*;
+
+/**
+ * Parallel versions of the conversions of {@link Image}.
+ * <p>
+ * Every row is converted independently, so the images are split in bands of consecutive rows that
+ * are converted by a {@link ForkJoinPool}. Images smaller than a band are converted by the calling
+ * thread. The results are always identical to the sequential versions.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class ParallelImage {
+
+    /** Name of the system property used to configure the minimal band size of {@link #DEFAULT} */
+    public static final String BAND_PROPERTY = "cs107.parallel.band";
+
+    /** Engine using the common pool, with bands of at least 64 Ki pixels unless configured otherwise */
+    public static final ParallelImage DEFAULT =
+            new ParallelImage(ForkJoinPool.commonPool(), Integer.getInteger(BAND_PROPERTY, 1 << 16));
+
+    private final ForkJoinPool pool;
+    private final int minBand;
+
+    /**
+     * Create an engine running on the common pool
+     * @param minBand minimal number of pixels converted by a single task
+     */
+    public ParallelImage(int minBand) {
+        this(ForkJoinPool.commonPool(), minBand);
+    }
+
+    /**
+     * Create an engine running on a given pool
+     * @param pool pool to run the tasks on
+     * @param minBand minimal number of pixels converted by a single task
+     */
+    public ParallelImage(ForkJoinPool pool, int minBand) {
+        assert pool != null && minBand > 0;
+        this.pool = pool;
+        this.minBand = minBand;
+    }
+
+    /** @return minimal number of pixels converted by a single task */
+    public int minBand() {
+        return minBand;
+    }
+
+    // ============================================================================================
+    // =================================== IMAGE MANIPULATION =====================================
+    // ============================================================================================
+
+    /**
+     * Parallel version of {@link Image#toGray(int[][])}
+     * @param image an image in ARGB format
+     * @return the gray scale version of the image
+     */
+    public int[][] toGray(int[][] image) {
+        assert image != null;
+        if (image.length == 0 || image[0] == null || image[0].length == 0)
+            return new int[0][0];
+        int[][] result = new int[image.length][];
+        run(image.length, image[0].length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int[] src = image[i] == null ? new int[0] : image[i];
+                int[] dst = result[i] = new int[src.length];
+                for (int j = 0; j < src.length; j++) {
+                    dst[j] = gray(src[j]);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Parallel version of {@link Image#toBinary(int[][], int)}
+     * @param image an image in gray scale
+     * @param threshold threshold to consider
+     * @return binary representation of the image
+     */
+    public boolean[][] toBinary(int[][] image, int threshold) {
+        assert image != null;
+        if (image.length == 0 || image[0] == null || image[0].length == 0)
+            return new boolean[0][0];
+        boolean[][] result = new boolean[image.length][];
+        run(image.length, image[0].length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int[] src = image[i] == null ? new int[0] : image[i];
+                boolean[] dst = result[i] = new boolean[src.length];
+                for (int j = 0; j < src.length; j++) {
+                    dst[j] = binary(src[j], threshold);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Parallel version of {@link Image#argbToBinary(int[][], int)} : gray scale conversion and
+     * threshold in a single pass
+     * @param image an image in ARGB format
+     * @param threshold threshold to consider
+     * @return binary representation of the image
+     */
+    public boolean[][] argbToBinary(int[][] image, int threshold) {
+        assert image != null;
+        if (image.length == 0 || image[0] == null || image[0].length == 0)
+            return new boolean[0][0];
+        boolean[][] result = new boolean[image.length][];
+        run(image.length, image[0].length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int[] src = image[i] == null ? new int[0] : image[i];
+                boolean[] dst = result[i] = new boolean[src.length];
+                for (int j = 0; j < src.length; j++) {
+                    dst[j] = gray(src[j]) >= threshold;
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Parallel version of {@link Image#fromGray(int[][])}
+     * @param image the gray scale image
+     * @return <b>gray ARGB</b> representation
+     */
+    public int[][] fromGray(int[][] image) {
+        assert image != null;
+        if (image.length == 0 || image[0] == null || image[0].length == 0)
+            return new int[0][0];
+        int[][] result = new int[image.length][];
+        run(image.length, image[0].length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int[] src = image[i] == null ? new int[0] : image[i];
+                int[] dst = result[i] = new int[src.length];
+                for (int j = 0; j < src.length; j++) {
+                    dst[j] = grayToArgb(src[j]);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Parallel version of {@link Image#fromBinary(boolean[][])}
+     * @param image the binary image
+     * @return <b>black and white ARGB</b> representation
+     */
+    public int[][] fromBinary(boolean[][] image) {
+        assert image != null;
+        if (image.length == 0 || image[0] == null || image[0].length == 0)
+            return new int[0][0];
+        int[][] result = new int[image.length][];
+        run(image.length, image[0].length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                boolean[] src = image[i] == null ? new boolean[0] : image[i];
+                int[] dst = result[i] = new int[src.length];
+                for (int j = 0; j < src.length; j++) {
+                    dst[j] = src[j] ? 0xFFFFFFFF : 0xFF000000;
+                }
+            }
+        });
+        return result;
+    }
+
+    // ============================================================================================
+    // =================================== RASTER MANIPULATION ====================================
+    // ============================================================================================
+
+    /**
+     * Parallel version of {@link Image#toGray(Raster)}
+     * @param image raster in ARGB format
+     * @return the gray scale version of the raster
+     */
+    public Raster toGray(Raster image) {
+        return convert(image, Image::gray);
+    }
+
+    /**
+     * Parallel version of {@link Image#toBinary(Raster, int)}
+     * @param image raster in gray scale representation
+     * @param threshold threshold to consider
+     * @return binary representation of the raster (1 for white pixels, 0 for black ones)
+     */
+    public Raster toBinary(Raster image, int threshold) {
+        return convert(image, gray -> binary(gray, threshold) ? 1 : 0);
+    }
+
+    /**
+     * Parallel version of {@link Image#argbToBinary(Raster, int)}
+     * @param image raster in ARGB format
+     * @param threshold threshold to consider
+     * @return binary representation of the raster (1 for white pixels, 0 for black ones)
+     */
+    public Raster argbToBinary(Raster image, int threshold) {
+        return convert(image, pixel -> gray(pixel) >= threshold ? 1 : 0);
+    }
+
+    /**
+     * Parallel version of {@link Image#fromGray(Raster)}
+     * @param image grayscale raster representation
+     * @return <b>gray ARGB</b> representation
+     */
+    public Raster fromGray(Raster image) {
+        return convert(image, Image::grayToArgb);
+    }
+
+    /**
+     * Parallel version of {@link Image#fromBinary(Raster)}
+     * @param image binary raster representation
+     * @return <b>black and white ARGB</b> representation
+     */
+    public Raster fromBinary(Raster image) {
+        return convert(image, value -> value != 0 ? 0xFFFFFFFF : 0xFF000000);
+    }
+
+    // ============================================================================================
+    // ========================================= HELPERS ==========================================
+    // ============================================================================================
+
+    /**
+     * Operation applied on a band of rows
+     */
+    @FunctionalInterface
+    interface BandOperation {
+        /**
+         * @param from index of the first row (inclusive)
+         * @param to index of the last row (exclusive)
+         */
+        void apply(int from, int to);
+    }
+
+    /**
+     * Split <code>[0, rows)</code> in bands and apply an operation on each of them, in parallel
+     * @param rows number of rows to process
+     * @param width number of pixels per row
+     * @param operation operation to apply
+     */
+    void run(int rows, int width, BandOperation operation) {
+        assert rows >= 0 && width >= 0;
+        int band = Math.max(1, minBand / Math.max(1, width));
+        if (rows <= band)
+            operation.apply(0, rows);
+        else
+            pool.invoke(new BandTask(0, rows, band, operation));
+    }
+
+    /**
+     * Convert every pixel of a raster into a new compact raster
+     */
+    private Raster convert(Raster image, IntUnaryOperator conversion) {
+        assert image != null;
+        int width = image.width();
+        Raster result = new Raster(width, image.height());
+        int[] dst = result.array();
+        run(image.height(), width, (from, to) -> {
+            int[] row = image.hasArray() ? null : new int[width];
+            for (int i = from; i < to; i++) {
+                int[] src = image.hasArray() ? image.array() : row;
+                int s = image.hasArray() ? image.offset() + i * image.stride() : 0;
+                if (!image.hasArray())
+                    image.copyRow(i, row, 0);
+                int d = i * width;
+                for (int j = 0; j < width; j++) {
+                    dst[d + j] = conversion.applyAsInt(src[s + j]);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Recursively split a range of rows in two halves, on band boundaries
+     */
+    @SuppressWarnings("serial")
+    private static final class BandTask extends RecursiveAction {
+
+        private final int from;
+        private final int to;
+        private final int band;
+        private final BandOperation operation;
+
+        BandTask(int from, int to, int band, BandOperation operation) {
+            this.from = from;
+            this.to = to;
+            this.band = band;
+            this.operation = operation;
+        }
+
+        @Override
+        protected void compute() {
+            int bands = (int) (((long) to - from + band - 1) / band);
+            if (bands <= 1) {
+                operation.apply(from, to);
+                return;
+            }
+            int middle = from + (bands / 2) * band;
+            invokeAll(new BandTask(from, middle, band, operation), new BandTask(middle, to, band, operation));
+        }
+    }
+}
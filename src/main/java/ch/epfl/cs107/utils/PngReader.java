@@ -0,0 +1,530 @@
+package ch.epfl.cs107.utils;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Decode a <b>PNG</b> image one row at a time, so only one row of the image is held in memory.
+ * <p>
+ * All the color types are supported, with all their bit depths. Interlaced images (Adam7) are
+ * supported too, but their pixels are spread over the whole image : they are decoded entirely on the
+ * first read, and held in memory until the reader is closed.
+ * <p>
+ * Rows are returned in the same ARGB format as {@link ch.epfl.cs107.Helper#fromBufferedImage} after
+ * {@link javax.imageio.ImageIO#read}, so both decoders can be used interchangeably : 8 and 16 bits
+ * gray samples go through the same gray to sRGB conversion as the JDK, 16 bits samples are rounded to
+ * the nearest 8 bits value and transparency (<code>tRNS</code> chunk) is applied to the alpha channel.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class PngReader implements Closeable {
+
+    /** First 8 bytes of every PNG file */
+    static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    static final int IHDR = 0x49484452;
+    static final int PLTE = 0x504C5445;
+    static final int TRNS = 0x74524E53;
+    static final int IDAT = 0x49444154;
+    static final int IEND = 0x49454E44;
+
+    static final int GRAY = 0;
+    static final int RGB = 2;
+    static final int PALETTE = 3;
+    static final int GRAY_ALPHA = 4;
+    static final int RGBA = 6;
+
+    private final DataInputStream in;
+    private final Inflater inflater = new Inflater();
+    private final InputStream pixels;
+    private final int width;
+    private final int height;
+    private final int bitDepth;
+    private final int colorType;
+    private final int bitsPerPixel;
+    /** Distance, in bytes, between a byte and the one it is filtered against */
+    private final int filterUnit;
+    private final boolean interlaced;
+    /** Pixels of an interlaced image, decoded on the first read */
+    private int[] image;
+    private int[] palette;
+    /** Transparent sample of gray and RGB images, -1 if there is none */
+    private long transparent = -1;
+
+    private byte[] previous;
+    private byte[] current;
+    private int row;
+
+    /**
+     * Start decoding a PNG image : the header is read, the pixels are read by {@link #readRow(int[], int)}
+     * @param input stream positioned at the start of the image
+     * @throws IOException if an I/O error occurs, or if the image is not a supported PNG image
+     */
+    public PngReader(InputStream input) throws IOException {
+        assert input != null;
+        this.in = new DataInputStream(input);
+        byte[] signature = in.readNBytes(SIGNATURE.length);
+        if (!Arrays.equals(signature, SIGNATURE))
+            throw new IOException("Not a PNG image");
+
+        byte[] header = readChunk(IHDR);
+        DataInputStream ihdr = new DataInputStream(new ByteArrayInputStream(header));
+        width = ihdr.readInt();
+        height = ihdr.readInt();
+        bitDepth = ihdr.readUnsignedByte();
+        colorType = ihdr.readUnsignedByte();
+        int compression = ihdr.readUnsignedByte();
+        int filter = ihdr.readUnsignedByte();
+        int interlace = ihdr.readUnsignedByte();
+        if (width <= 0 || height <= 0 || compression != 0 || filter != 0 || interlace > 1
+                || !validDepth(colorType, bitDepth))
+            throw new IOException("Invalid PNG header");
+
+        interlaced = interlace == 1;
+        bitsPerPixel = channels(colorType) * bitDepth;
+        filterUnit = Math.max(1, bitsPerPixel / Byte.SIZE);
+        int rowBytes = rowBytes(width);
+        previous = new byte[rowBytes];
+        current = new byte[rowBytes];
+
+        // Read the ancillary chunks up to the first IDAT chunk, where the pixels start
+        int type;
+        int length;
+        while (true) {
+            length = in.readInt();
+            type = in.readInt();
+            if (type == IDAT)
+                break;
+            if (type == IEND)
+                throw new IOException("PNG image without pixels");
+            byte[] data = readChunkData(type, length);
+            if (type == PLTE)
+                readPalette(data);
+            else if (type == TRNS)
+                readTransparency(data);
+        }
+        if (colorType == PALETTE && palette == null)
+            throw new IOException("PNG image without palette");
+        pixels = new InflaterInputStream(new IdatStream(length), inflater, rowBytes + 1);
+    }
+
+    /**
+     * Start decoding a PNG file
+     * @param path path of the file
+     * @return the reader, to be closed
+     * @throws IOException if an I/O error occurs, or if the file is not a supported PNG image
+     */
+    public static PngReader open(Path path) throws IOException {
+        InputStream input = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+        try {
+            return new PngReader(input);
+        } catch (IOException | RuntimeException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    // ============================================================================================
+    // ======================================== ACCESSORS =========================================
+    // ============================================================================================
+
+    /** @return number of columns */
+    public int width() {
+        return width;
+    }
+
+    /** @return number of rows */
+    public int height() {
+        return height;
+    }
+
+    /** @return number of rows already read */
+    public int rowsRead() {
+        return row;
+    }
+
+    // ============================================================================================
+    // ========================================= PIXELS ===========================================
+    // ============================================================================================
+
+    /**
+     * Decode the next row of the image
+     * @param dst array receiving the ARGB pixels
+     * @param dstOff index of the first pixel to write in <code>dst</code>
+     * @throws IOException if an I/O error occurs, or if the image is corrupted
+     */
+    public void readRow(int[] dst, int dstOff) throws IOException {
+        assert dst != null && dstOff >= 0 && dstOff + width <= dst.length;
+        assert row < height : "All the rows have been read";
+        if (interlaced) {
+            if (image == null)
+                image = readInterlaced();
+            System.arraycopy(image, row * width, dst, dstOff, width);
+        } else {
+            readFiltered(current, previous);
+            toArgb(current, width, dst, dstOff);
+            byte[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        row++;
+    }
+
+    /**
+     * Decode the next rows of the image into a raster of the same width. The decoded rows are marked
+     * as clean (see {@link Raster#isDirty(int, int)}).
+     * @param strip raster receiving the rows, from its first one
+     * @param rows number of rows to decode
+     * @throws IOException if an I/O error occurs, or if the image is corrupted
+     */
+    public void read(Raster strip, int rows) throws IOException {
+        assert strip != null && strip.width() == width && rows >= 0 && rows <= strip.height();
+        int[] buffer = strip.hasArray() ? null : new int[width];
+        for (int i = 0; i < rows; i++) {
+            if (strip.hasArray()) {
+                readRow(strip.array(), strip.offset() + i * strip.stride());
+            } else {
+                readRow(buffer, 0);
+                strip.putRow(i, buffer, 0);
+            }
+        }
+        strip.region(0, 0, rows, width).clearDirty();
+    }
+
+    @Override
+    public void close() throws IOException {
+        image = null;
+        inflater.end();
+        in.close();
+    }
+
+    // ============================================================================================
+    // ========================================= HELPERS ==========================================
+    // ============================================================================================
+
+    /** Column, row and spacing of the pixels of each pass of Adam7 */
+    private static final int[] PASS_COLUMN = {0, 4, 0, 2, 0, 1, 0};
+    private static final int[] PASS_ROW = {0, 0, 4, 0, 2, 0, 1};
+    private static final int[] PASS_COLUMN_STEP = {8, 8, 4, 4, 2, 2, 1};
+    private static final int[] PASS_ROW_STEP = {8, 8, 8, 4, 4, 2, 2};
+
+    /**
+     * Decode the 7 passes of an interlaced image, each one being a small image of its own
+     */
+    private int[] readInterlaced() throws IOException {
+        int[] decoded = new int[Math.multiplyExact(width, height)];
+        int[] line = new int[width];
+        for (int pass = 0; pass < PASS_COLUMN.length; pass++) {
+            int dx = PASS_COLUMN_STEP[pass];
+            int dy = PASS_ROW_STEP[pass];
+            int columns = (width - PASS_COLUMN[pass] + dx - 1) / dx;
+            int rows = (height - PASS_ROW[pass] + dy - 1) / dy;
+            if (columns == 0 || rows == 0)
+                continue;
+            byte[] prev = new byte[rowBytes(columns)];
+            byte[] cur = new byte[prev.length];
+            for (int r = 0; r < rows; r++) {
+                readFiltered(cur, prev);
+                toArgb(cur, columns, line, 0);
+                int at = (PASS_ROW[pass] + r * dy) * width + PASS_COLUMN[pass];
+                for (int c = 0; c < columns; c++)
+                    decoded[at + c * dx] = line[c];
+                byte[] swap = prev;
+                prev = cur;
+                cur = swap;
+            }
+        }
+        return decoded;
+    }
+
+    private int rowBytes(int columns) {
+        return Math.toIntExact(((long) columns * bitsPerPixel + 7) / Byte.SIZE);
+    }
+
+    /**
+     * Read and unfilter the next row of filtered bytes
+     */
+    private void readFiltered(byte[] cur, byte[] prev) throws IOException {
+        int filter = pixels.read();
+        if (filter < 0 || pixels.readNBytes(cur, 0, cur.length) != cur.length)
+            throw new EOFException("Truncated PNG image");
+        unfilter(filter, cur, prev);
+    }
+
+    private void unfilter(int filter, byte[] cur, byte[] prev) throws IOException {
+        int unit = filterUnit;
+        switch (filter) {
+            case 0 -> { }
+            case 1 -> {
+                for (int i = unit; i < cur.length; i++)
+                    cur[i] += cur[i - unit];
+            }
+            case 2 -> {
+                for (int i = 0; i < cur.length; i++)
+                    cur[i] += prev[i];
+            }
+            case 3 -> {
+                for (int i = 0; i < cur.length; i++) {
+                    int left = i >= unit ? cur[i - unit] & 0xFF : 0;
+                    cur[i] += (byte) ((left + (prev[i] & 0xFF)) >>> 1);
+                }
+            }
+            case 4 -> {
+                for (int i = 0; i < cur.length; i++) {
+                    int a = i >= unit ? cur[i - unit] & 0xFF : 0;
+                    int b = prev[i] & 0xFF;
+                    int c = i >= unit ? prev[i - unit] & 0xFF : 0;
+                    int p = a + b - c;
+                    int pa = Math.abs(p - a);
+                    int pb = Math.abs(p - b);
+                    int pc = Math.abs(p - c);
+                    cur[i] += (byte) (pa <= pb && pa <= pc ? a : pb <= pc ? b : c);
+                }
+            }
+            default -> throw new IOException("Invalid PNG filter : " + filter);
+        }
+    }
+
+    /**
+     * Convert the first <code>columns</code> pixels of an unfiltered row to ARGB
+     */
+    private void toArgb(byte[] cur, int columns, int[] dst, int off) {
+        if (bitDepth < Byte.SIZE) {
+            // Gray or palette samples packed in bytes, most significant bits first, scaled as is
+            int mask = (1 << bitDepth) - 1;
+            int scale = 0xFF / mask;
+            for (int j = 0; j < columns; j++) {
+                int bit = j * bitDepth;
+                int sample = (cur[bit >>> 3] >>> (Byte.SIZE - bitDepth - (bit & 7))) & mask;
+                dst[off + j] = colorType == PALETTE ? palette[sample] : gray(sample * scale, sample);
+            }
+            return;
+        }
+        int step = bitDepth / Byte.SIZE;
+        int[] levels = colorType == GRAY || colorType == GRAY_ALPHA ? grayLevels(bitDepth) : null;
+        int k = 0;
+        for (int j = 0; j < columns; j++) {
+            dst[off + j] = switch (colorType) {
+                case GRAY -> {
+                    int value = sample(cur, k, step);
+                    k += step;
+                    yield gray(levels[value], value);
+                }
+                case RGB -> {
+                    long value = (long) sample(cur, k, step) << 32 | (long) sample(cur, k + step, step) << 16
+                            | sample(cur, k + 2 * step, step);
+                    int argb = 0xFF000000 | channel(cur, k, step) << 16 | channel(cur, k + step, step) << 8
+                            | channel(cur, k + 2 * step, step);
+                    k += 3 * step;
+                    yield value == transparent ? argb & 0x00FFFFFF : argb;
+                }
+                case PALETTE -> palette[cur[k++] & 0xFF];
+                case GRAY_ALPHA -> {
+                    int g = levels[sample(cur, k, step)];
+                    int a = channel(cur, k + step, step);
+                    k += 2 * step;
+                    yield a << 24 | g << 16 | g << 8 | g;
+                }
+                default -> {
+                    int argb = channel(cur, k + 3 * step, step) << 24 | channel(cur, k, step) << 16
+                            | channel(cur, k + step, step) << 8 | channel(cur, k + 2 * step, step);
+                    k += 4 * step;
+                    yield argb;
+                }
+            };
+        }
+    }
+
+    private int gray(int g, int sample) {
+        int alpha = sample == transparent ? 0 : 0xFF000000;
+        return alpha | g << 16 | g << 8 | g;
+    }
+
+    private static int sample(byte[] bytes, int index, int step) {
+        return step == 1 ? bytes[index] & 0xFF : (bytes[index] & 0xFF) << 8 | bytes[index + 1] & 0xFF;
+    }
+
+    /**
+     * Sample reduced to 8 bits, rounded to the nearest value like ImageIO does
+     */
+    private static int channel(byte[] bytes, int index, int step) {
+        return step == 1 ? bytes[index] & 0xFF : (sample(bytes, index, 2) * 0xFF + 0x7FFF) / 0xFFFF;
+    }
+
+    /**
+     * The gray samples of a PNG image are linear : the JDK converts them to sRGB when it reads them.
+     * Its own conversion is used to build the tables, so the results are exactly the same.
+     * @return the 8 bits sRGB level of each gray sample of the given bit depth (8 or 16)
+     */
+    private static int[] grayLevels(int bitDepth) {
+        return bitDepth == Byte.SIZE ? GrayLevels.BYTE : GrayLevels.Wide.SHORT;
+    }
+
+    private static final class GrayLevels {
+
+        static final int[] BYTE = levels(BufferedImage.TYPE_BYTE_GRAY, 1);
+
+        /** Separate holder : the 16 bits table is only built for 16 bits images */
+        static final class Wide {
+            static final int[] SHORT = levels(BufferedImage.TYPE_USHORT_GRAY, 256);
+        }
+
+        private static int[] levels(int type, int rows) {
+            BufferedImage ramp = new BufferedImage(256, rows, type);
+            for (int i = 0; i < 256 * rows; i++)
+                ramp.getRaster().setSample(i & 0xFF, i >>> 8, 0, i);
+            int[] levels = ramp.getRGB(0, 0, 256, rows, null, 0, 256);
+            for (int i = 0; i < levels.length; i++)
+                levels[i] &= 0xFF;
+            return levels;
+        }
+    }
+
+    private void readPalette(byte[] data) throws IOException {
+        if (data.length % 3 != 0 || data.length / 3 > 256)
+            throw new IOException("Invalid PNG palette");
+        palette = new int[256];
+        for (int i = 0; i < data.length / 3; i++) {
+            palette[i] = 0xFF000000 | (data[3 * i] & 0xFF) << 16 | (data[3 * i + 1] & 0xFF) << 8 | data[3 * i + 2] & 0xFF;
+        }
+    }
+
+    private void readTransparency(byte[] data) throws IOException {
+        DataInputStream trns = new DataInputStream(new ByteArrayInputStream(data));
+        switch (colorType) {
+            case PALETTE -> {
+                if (palette == null || data.length > 256)
+                    throw new IOException("Invalid PNG transparency");
+                for (int i = 0; i < data.length; i++) {
+                    palette[i] = (data[i] & 0xFF) << 24 | palette[i] & 0x00FFFFFF;
+                }
+            }
+            case GRAY -> transparent = trns.readUnsignedShort();
+            case RGB -> transparent = (long) trns.readUnsignedShort() << 32 | (long) trns.readUnsignedShort() << 16
+                    | trns.readUnsignedShort();
+            default -> { }
+        }
+    }
+
+    /**
+     * Read a whole chunk, which must be of a given type
+     */
+    private byte[] readChunk(int expected) throws IOException {
+        int length = in.readInt();
+        int type = in.readInt();
+        if (type != expected)
+            throw new IOException("Unexpected PNG chunk");
+        return readChunkData(type, length);
+    }
+
+    /**
+     * Read the data and check the CRC of a chunk whose length and type have been read
+     */
+    private byte[] readChunkData(int type, int length) throws IOException {
+        if (length < 0)
+            throw new IOException("Invalid PNG chunk length");
+        byte[] data = in.readNBytes(length);
+        if (data.length != length)
+            throw new EOFException("Truncated PNG image");
+        CRC32 crc = new CRC32();
+        updateType(crc, type);
+        crc.update(data);
+        if (in.readInt() != (int) crc.getValue())
+            throw new IOException("Corrupted PNG chunk");
+        return data;
+    }
+
+    private static void updateType(CRC32 crc, int type) {
+        crc.update(type >>> 24);
+        crc.update(type >>> 16);
+        crc.update(type >>> 8);
+        crc.update(type);
+    }
+
+    private static int channels(int colorType) {
+        return switch (colorType) {
+            case RGB -> 3;
+            case GRAY_ALPHA -> 2;
+            case RGBA -> 4;
+            default -> 1;
+        };
+    }
+
+    private static boolean validDepth(int colorType, int bitDepth) {
+        return switch (colorType) {
+            case GRAY -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8 || bitDepth == 16;
+            case PALETTE -> bitDepth == 1 || bitDepth == 2 || bitDepth == 4 || bitDepth == 8;
+            case RGB, GRAY_ALPHA, RGBA -> bitDepth == 8 || bitDepth == 16;
+            default -> false;
+        };
+    }
+
+    /**
+     * Data of the consecutive IDAT chunks, as a single stream
+     */
+    private final class IdatStream extends InputStream {
+
+        private int remaining;
+        private final CRC32 crc = new CRC32();
+        private boolean done;
+
+        IdatStream(int length) throws IOException {
+            if (length < 0)
+                throw new IOException("Invalid PNG chunk length");
+            remaining = length;
+            updateType(crc, IDAT);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            while (remaining == 0) {
+                if (done || !nextChunk())
+                    return -1;
+            }
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n < 0)
+                throw new EOFException("Truncated PNG image");
+            crc.update(b, off, n);
+            remaining -= n;
+            return n;
+        }
+
+        /**
+         * Check the CRC of the current IDAT chunk and move to the next one
+         * @return <code>false</code> if the next chunk is not an IDAT chunk
+         */
+        private boolean nextChunk() throws IOException {
+            if (in.readInt() != (int) crc.getValue())
+                throw new IOException("Corrupted PNG chunk");
+            int length = in.readInt();
+            int type = in.readInt();
+            if (type != IDAT || length < 0) {
+                done = true;
+                return false;
+            }
+            crc.reset();
+            updateType(crc, IDAT);
+            remaining = length;
+            return true;
+        }
+    }
+}
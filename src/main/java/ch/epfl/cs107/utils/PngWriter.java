@@ -0,0 +1,637 @@
+package ch.epfl.cs107.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static ch.epfl.cs107.utils.PngReader.*;
+
+/**
+ * Encode a <b>PNG</b> image one row at a time, so only one row of the image is held in memory.
+ * <p>
+ * Images are written as 8 bits RGBA, non-interlaced. Each row is filtered with the filter (None,
+ * Sub or Up) giving the smallest sum of absolute differences, and the compressed data is written
+ * in IDAT chunks of at most {@link #CHUNK_SIZE} bytes as soon as it is produced.
+ * <p>
+ * The rows are compressed in strips of about {@link #STRIP_BYTES} bytes : the compressor is fully
+ * flushed at the end of each strip and the first row of a strip never refers to the previous row,
+ * so the compressed data of a strip does not depend on the other strips. The compressed length and
+ * the checksum of each strip are stored in a private ancillary chunk (<code>stRP</code>, ignored
+ * by other decoders), which lets {@link #update(Path, Raster)} copy the unchanged strips of an
+ * image as they are.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class PngWriter implements Closeable {
+
+    /** Largest size of the data of an IDAT chunk */
+    static final int CHUNK_SIZE = 1 << 16;
+    /** Approximate number of uncompressed bytes of a strip */
+    static final int STRIP_BYTES = 1 << 18;
+    /** Private chunk holding the index of the strips */
+    static final int STRP = 0x73745250;
+
+    /** Header of the zlib stream (deflate, 32 KiB window, default compression) */
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9C};
+    /** Final empty block (fixed Huffman codes) ending the deflate stream */
+    private static final byte[] FINAL_BLOCK = {0x03, 0x00};
+
+    private final DataOutputStream out;
+    private final Deflater deflater;
+    private final IdatStream idat;
+    private final byte[] deflated = new byte[CHUNK_SIZE];
+    private final int width;
+    private final int height;
+
+    /** Index of the strips : compressed length and Adler-32 checksum of each strip */
+    private final int stripRows;
+    private final int[] stripLengths;
+    private final int[] stripChecksums;
+    private int strip;
+    private long stripLength;
+    private final Adler32 stripChecksum = new Adler32();
+    /** Adler-32 checksum of all the strips already written */
+    private long checksum = 1;
+
+    private byte[] previous;
+    private byte[] current;
+    /** Filtered rows, the first byte being the filter type */
+    private final byte[] sub;
+    private final byte[] up;
+    private int row;
+    private boolean closed;
+
+    /**
+     * Start encoding a PNG image with the default compression level
+     * @param output stream receiving the image
+     * @param width number of columns
+     * @param height number of rows
+     * @throws IOException if an I/O error occurs
+     */
+    public PngWriter(OutputStream output, int width, int height) throws IOException {
+        this(output, width, height, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Start encoding a PNG image : the header is written, the pixels are written by
+     * {@link #writeRow(int[], int)}
+     * @param output stream receiving the image
+     * @param width number of columns
+     * @param height number of rows
+     * @param level compression level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     * @throws IOException if an I/O error occurs
+     */
+    public PngWriter(OutputStream output, int width, int height, int level) throws IOException {
+        assert output != null && width > 0 && height > 0;
+        this.out = new DataOutputStream(output);
+        this.width = width;
+        this.height = height;
+        int rowBytes = Math.multiplyExact(width, Integer.BYTES);
+        previous = new byte[rowBytes];
+        current = new byte[rowBytes];
+        sub = new byte[rowBytes + 1];
+        up = new byte[rowBytes + 1];
+
+        out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = Byte.SIZE;
+        header[9] = RGBA;
+        writeChunk(IHDR, header, header.length);
+
+        stripRows = stripRows(width);
+        int strips = (height + stripRows - 1) / stripRows;
+        stripLengths = new int[strips];
+        stripChecksums = new int[strips];
+
+        // The zlib wrapper is written by hand, so compressed strips can be copied from another image
+        deflater = new Deflater(level, true);
+        idat = new IdatStream();
+        idat.write(ZLIB_HEADER, 0, ZLIB_HEADER.length);
+    }
+
+    /**
+     * Start encoding a PNG file. An existing file is overwritten.
+     * @param path path of the file
+     * @param width number of columns
+     * @param height number of rows
+     * @return the writer, to be closed once all the rows are written
+     * @throws IOException if an I/O error occurs
+     */
+    public static PngWriter create(Path path, int width, int height) throws IOException {
+        OutputStream output = new BufferedOutputStream(Files.newOutputStream(path), CHUNK_SIZE);
+        try {
+            return new PngWriter(output, width, height);
+        } catch (IOException | RuntimeException e) {
+            output.close();
+            throw e;
+        }
+    }
+
+    // ============================================================================================
+    // ========================================= PIXELS ===========================================
+    // ============================================================================================
+
+    /** @return number of rows already written */
+    public int rowsWritten() {
+        return row;
+    }
+
+    /**
+     * Encode the next row of the image
+     * @param src array holding the ARGB pixels
+     * @param srcOff index of the first pixel in <code>src</code>
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeRow(int[] src, int srcOff) throws IOException {
+        assert src != null && srcOff >= 0 && srcOff + width <= src.length;
+        assert row < height : "All the rows have been written";
+        byte[] filtered = filter(src, srcOff, row % stripRows != 0);
+        stripChecksum.update(filtered);
+        deflater.setInput(filtered);
+        while (!deflater.needsInput()) {
+            emit(deflater.deflate(deflated, 0, deflated.length, Deflater.NO_FLUSH));
+        }
+        row++;
+        if (row % stripRows == 0 || row == height)
+            endStrip();
+    }
+
+    /**
+     * Encode the next rows of the image from a raster of the same width
+     * @param strip raster holding the rows, from its first one
+     * @param rows number of rows to encode
+     * @throws IOException if an I/O error occurs
+     */
+    public void write(Raster strip, int rows) throws IOException {
+        assert strip != null && strip.width() == width && rows >= 0 && rows <= strip.height();
+        int[] buffer = strip.hasArray() ? null : new int[width];
+        for (int i = 0; i < rows; i++) {
+            if (strip.hasArray()) {
+                writeRow(strip.array(), strip.offset() + i * strip.stride());
+            } else {
+                strip.copyRow(i, buffer, 0);
+                writeRow(buffer, 0);
+            }
+        }
+    }
+
+    /**
+     * Finish the image and close the stream. All the rows must have been written.
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            if (row != height)
+                throw new IOException("Only " + row + " rows out of " + height + " have been written");
+            byte[] trailer = new byte[4];
+            putInt(trailer, 0, (int) checksum);
+            idat.write(FINAL_BLOCK, 0, FINAL_BLOCK.length);
+            idat.write(trailer, 0, trailer.length);
+            idat.flush();
+
+            byte[] index = new byte[4 + 8 * stripLengths.length];
+            putInt(index, 0, stripRows);
+            for (int s = 0; s < stripLengths.length; s++) {
+                putInt(index, 4 + 8 * s, stripLengths[s]);
+                putInt(index, 8 + 8 * s, stripChecksums[s]);
+            }
+            writeChunk(STRP, index, index.length);
+            writeChunk(IEND, new byte[0], 0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    // ============================================================================================
+    // ========================================= UPDATE ===========================================
+    // ============================================================================================
+
+    /**
+     * Rewrite a PNG file with the content of a raster read from it : only the strips holding dirty
+     * rows of the raster (see {@link Raster#isDirty(int, int)}) are encoded again, the compressed
+     * data of the other strips is copied from the file. If the file was not written by this class
+     * (or does not exist), the whole raster is encoded. The rows of the raster are then marked as clean.
+     * <p>
+     * The rows of a strip being clean is not a proof that they hold the pixels of the file (the raster
+     * may have been read from another file, or written without being marked as dirty) : a clean strip
+     * is filtered, without being compressed, and copied only if its checksum matches the one of the
+     * strip of the file.
+     * @param path path of the file
+     * @param image raster holding the pixels of the image
+     * @throws IOException if an I/O error occurs
+     */
+    public static void update(Path path, Raster image) throws IOException {
+        assert path != null && image != null && image.width() > 0 && image.height() > 0;
+        int width = image.width();
+        int height = image.height();
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), ".", ".png");
+        try (FileChannel source = Files.exists(path) ? FileChannel.open(path) : null) {
+            StripIndex index = source == null ? null : StripIndex.read(source, width, height);
+            try (PngWriter writer = create(temp, width, height)) {
+                for (int from = 0, s = 0; from < height; from += writer.stripRows, s++) {
+                    int rows = Math.min(writer.stripRows, height - from);
+                    Raster strip = image.region(from, 0, rows, width);
+                    if (index != null && !strip.isDirty() && writer.checksum(strip) == index.checksum(s))
+                        writer.copyStrip(source, index, s, rows);
+                    else
+                        writer.write(strip, rows);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        image.clearDirty();
+    }
+
+    /**
+     * Compute the checksum a strip would have once encoded, without encoding it
+     * @param strip raster holding the rows of the strip
+     * @return Adler-32 checksum of the filtered rows
+     */
+    private long checksum(Raster strip) {
+        Adler32 adler = new Adler32();
+        int[] buffer = new int[width];
+        for (int i = 0; i < strip.height(); i++) {
+            strip.copyRow(i, buffer, 0);
+            adler.update(filter(buffer, 0, i != 0));
+        }
+        return adler.getValue();
+    }
+
+    /**
+     * Copy the compressed data of a strip of another image, instead of encoding its rows
+     * @param source file holding the other image
+     * @param index index of the strips of the other image
+     * @param s index of the strip, which must be the next one
+     * @param rows number of rows of the strip
+     */
+    private void copyStrip(FileChannel source, StripIndex index, int s, int rows) throws IOException {
+        assert s == strip && rows == Math.min(stripRows, height - row);
+        long position = index.start(s);
+        long remaining = index.length(s);
+        ByteBuffer buffer = ByteBuffer.wrap(deflated);
+        while (remaining > 0) {
+            buffer.clear().limit((int) Math.min(remaining, buffer.capacity()));
+            index.read(source, position, buffer);
+            idat.write(deflated, 0, buffer.position());
+            position += buffer.position();
+            remaining -= buffer.position();
+        }
+        row += rows;
+        endStrip(index.length(s), index.checksum(s), rows);
+    }
+
+    // ============================================================================================
+    // ========================================= HELPERS ==========================================
+    // ============================================================================================
+
+    /**
+     * @param width number of columns of an image
+     * @return number of rows of a strip
+     */
+    static int stripRows(int width) {
+        return Math.max(1, STRIP_BYTES / (width * Integer.BYTES + 1));
+    }
+
+    /**
+     * Fully flush the compressor at the end of the current strip, and record the strip in the index
+     */
+    private void endStrip() throws IOException {
+        int n;
+        do {
+            n = deflater.deflate(deflated, 0, deflated.length, Deflater.FULL_FLUSH);
+            emit(n);
+        } while (n == deflated.length);
+        int rows = (row - 1) % stripRows + 1;
+        endStrip(stripLength, stripChecksum.getValue(), rows);
+    }
+
+    private void endStrip(long length, long adler, int rows) throws IOException {
+        if (length > Integer.MAX_VALUE)
+            throw new IOException("Strip too large");
+        stripLengths[strip] = (int) length;
+        stripChecksums[strip] = (int) adler;
+        checksum = combine(checksum, adler, (long) rows * (width * Integer.BYTES + 1));
+        strip++;
+        stripLength = 0;
+        stripChecksum.reset();
+    }
+
+    /**
+     * Write compressed bytes of the current strip
+     */
+    private void emit(int n) throws IOException {
+        idat.write(deflated, 0, n);
+        stripLength += n;
+    }
+
+    /**
+     * Compute the Adler-32 checksum of the concatenation of two sequences of bytes
+     * @param adler1 checksum of the first sequence
+     * @param adler2 checksum of the second sequence
+     * @param length2 length of the second sequence
+     * @return checksum of the concatenation
+     */
+    static long combine(long adler1, long adler2, long length2) {
+        final long base = 65521;
+        long remainder = length2 % base;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = (remainder * sum1) % base;
+        sum1 += (adler2 & 0xFFFF) + base - 1;
+        sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + base - remainder;
+        if (sum1 >= base)
+            sum1 -= base;
+        if (sum1 >= base)
+            sum1 -= base;
+        if (sum2 >= base << 1)
+            sum2 -= base << 1;
+        if (sum2 >= base)
+            sum2 -= base;
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * Convert a row to RGBA bytes and filter it, the row then becomes the previous row
+     * @param src array holding the ARGB pixels
+     * @param srcOff index of the first pixel in <code>src</code>
+     * @param allowUp <code>false</code> if the row must not refer to the previous row
+     * @return the filtered row, starting with the filter type
+     */
+    private byte[] filter(int[] src, int srcOff, boolean allowUp) {
+        byte[] cur = current;
+        for (int j = 0, k = 0; j < width; j++, k += 4) {
+            int argb = src[srcOff + j];
+            cur[k] = (byte) (argb >>> 16);
+            cur[k + 1] = (byte) (argb >>> 8);
+            cur[k + 2] = (byte) argb;
+            cur[k + 3] = (byte) (argb >>> 24);
+        }
+        byte[] filtered = filter(allowUp);
+        current = previous;
+        previous = cur;
+        return filtered;
+    }
+
+    /**
+     * Choose the cheapest filter for the current row, using the sum of the absolute values of the
+     * filtered bytes as an estimate of the compressed size
+     * @param allowUp <code>false</code> if the row must not refer to the previous row
+     * @return the filtered row, starting with the filter type
+     */
+    private byte[] filter(boolean allowUp) {
+        byte[] cur = current;
+        byte[] prev = previous;
+        long none = 0;
+        long left = 0;
+        long above = 0;
+        for (int i = 0; i < cur.length; i++) {
+            byte s = (byte) (cur[i] - (i >= 4 ? cur[i - 4] : 0));
+            byte u = (byte) (cur[i] - prev[i]);
+            sub[i + 1] = s;
+            up[i + 1] = u;
+            none += Math.abs(cur[i]);
+            left += Math.abs(s);
+            above += Math.abs(u);
+        }
+        if (!allowUp)
+            above = Long.MAX_VALUE;
+        if (none <= left && none <= above) {
+            // Reuse the Sub buffer for the unfiltered row
+            sub[0] = 0;
+            System.arraycopy(cur, 0, sub, 1, cur.length);
+            return sub;
+        }
+        sub[0] = 1;
+        up[0] = 2;
+        return left <= above ? sub : up;
+    }
+
+    private void writeChunk(int type, byte[] data, int length) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] name = new byte[4];
+        putInt(name, 0, type);
+        crc.update(name);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(name);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void putInt(byte[] bytes, int index, int value) {
+        bytes[index] = (byte) (value >>> 24);
+        bytes[index + 1] = (byte) (value >>> 16);
+        bytes[index + 2] = (byte) (value >>> 8);
+        bytes[index + 3] = (byte) value;
+    }
+
+    /**
+     * Index of the strips of a PNG file written by this class, read from its <code>stRP</code> chunk
+     */
+    private static final class StripIndex {
+
+        /** Position in the file and length of the data of each IDAT chunk */
+        private final long[] positions;
+        private final int[] lengths;
+        /** Position of each strip in the compressed data, and position of its end for the last one */
+        private final long[] starts;
+        private final int[] checksums;
+
+        private StripIndex(long[] positions, int[] lengths, long[] starts, int[] checksums) {
+            this.positions = positions;
+            this.lengths = lengths;
+            this.starts = starts;
+            this.checksums = checksums;
+        }
+
+        long start(int s) {
+            return starts[s];
+        }
+
+        long length(int s) {
+            return starts[s + 1] - starts[s];
+        }
+
+        long checksum(int s) {
+            return checksums[s] & 0xFFFFFFFFL;
+        }
+
+        /**
+         * Read compressed data, up to the end of the IDAT chunk holding its first byte
+         * @param source file to read from
+         * @param position position of the first byte in the compressed data
+         * @param buffer buffer receiving the bytes
+         */
+        void read(FileChannel source, long position, ByteBuffer buffer) throws IOException {
+            long start = 0;
+            int c = 0;
+            while (start + lengths[c] <= position) {
+                start += lengths[c++];
+            }
+            int limit = buffer.limit();
+            buffer.limit(buffer.position() + (int) Math.min(buffer.remaining(), start + lengths[c] - position));
+            readFully(source, positions[c] + position - start, buffer);
+            buffer.limit(limit);
+        }
+
+        /**
+         * Read the index of a PNG file
+         * @param source file to read
+         * @param width expected number of columns
+         * @param height expected number of rows
+         * @return the index, or <code>null</code> if the file was not written by this class or has
+         *         another size
+         */
+        static StripIndex read(FileChannel source, int width, int height) throws IOException {
+            ByteBuffer head = ByteBuffer.allocate(SIGNATURE.length);
+            if (!readFully(source, 0, head) || !head.flip().equals(ByteBuffer.wrap(SIGNATURE)))
+                return null;
+
+            long[] positions = new long[16];
+            int[] lengths = new int[16];
+            int chunks = 0;
+            long total = 0;
+            ByteBuffer index = null;
+            boolean header = false;
+            long position = SIGNATURE.length;
+            ByteBuffer chunk = ByteBuffer.allocate(8);
+            while (true) {
+                if (!readFully(source, position, chunk.clear()))
+                    return null;
+                int length = chunk.getInt(0);
+                int type = chunk.getInt(4);
+                if (length < 0 || position + 12 + length > source.size())
+                    return null;
+                if (type == IHDR) {
+                    ByteBuffer data = readChunk(source, position, length, type);
+                    if (data == null || length != 13 || data.getInt(0) != width || data.getInt(4) != height
+                            || data.get(8) != Byte.SIZE || data.get(9) != RGBA
+                            || data.get(10) != 0 || data.get(11) != 0 || data.get(12) != 0)
+                        return null;
+                    header = true;
+                } else if (type == IDAT) {
+                    if (chunks == positions.length) {
+                        positions = Arrays.copyOf(positions, 2 * chunks);
+                        lengths = Arrays.copyOf(lengths, 2 * chunks);
+                    }
+                    positions[chunks] = position + 8;
+                    lengths[chunks++] = length;
+                    total += length;
+                } else if (type == STRP) {
+                    index = readChunk(source, position, length, type);
+                } else if (type == IEND) {
+                    break;
+                }
+                position += 12 + length;
+            }
+
+            int rows = stripRows(width);
+            int strips = (height + rows - 1) / rows;
+            if (!header || index == null || index.capacity() != 4 + 8 * strips || index.getInt(0) != rows)
+                return null;
+            long[] starts = new long[strips + 1];
+            int[] checksums = new int[strips];
+            starts[0] = ZLIB_HEADER.length;
+            for (int s = 0; s < strips; s++) {
+                starts[s + 1] = starts[s] + (index.getInt(4 + 8 * s) & 0xFFFFFFFFL);
+                checksums[s] = index.getInt(8 + 8 * s);
+            }
+            if (starts[strips] + FINAL_BLOCK.length + 4 != total)
+                return null;
+            return new StripIndex(positions, lengths, starts, checksums);
+        }
+
+        /**
+         * Read the data of a chunk and check its CRC
+         * @return the data, or <code>null</code> if the CRC does not match
+         */
+        private static ByteBuffer readChunk(FileChannel source, long position, int length, int type) throws IOException {
+            ByteBuffer data = ByteBuffer.allocate(length + 4);
+            if (!readFully(source, position + 8, data))
+                return null;
+            CRC32 crc = new CRC32();
+            byte[] name = new byte[4];
+            putInt(name, 0, type);
+            crc.update(name);
+            crc.update(data.array(), 0, length);
+            if (data.getInt(length) != (int) crc.getValue())
+                return null;
+            return ByteBuffer.wrap(data.array(), 0, length).slice();
+        }
+
+        /**
+         * Fill a buffer from a position of a file
+         * @return <code>false</code> if the end of the file is reached first
+         */
+        private static boolean readFully(FileChannel source, long position, ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                int n = source.read(buffer, position);
+                if (n < 0)
+                    return false;
+                position += n;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Cut the compressed data in IDAT chunks
+     */
+    private final class IdatStream extends OutputStream {
+
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int size;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, buffer.length - size);
+                System.arraycopy(b, off, buffer, size, n);
+                size += n;
+                off += n;
+                len -= n;
+                if (size == buffer.length)
+                    flush();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (size > 0) {
+                writeChunk(IDAT, buffer, size);
+                size = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
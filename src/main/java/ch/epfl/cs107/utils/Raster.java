@@ -0,0 +1,382 @@
+package ch.epfl.cs107.utils;
+
+import java.nio.IntBuffer;
+import java.util.BitSet;
+
+/**
+ * Flat representation of an image : all the pixels are stored row after row in a single
+ * contiguous <code>int</code> storage (either an <code>int[]</code> or an {@link IntBuffer}).
+ * <p>
+ * A pixel at (<code>row</code>, <code>col</code>) lives at index <code>offset + row * stride + col</code>
+ * of the storage. Rows and regions are views sharing the storage of their parent raster, writing to
+ * a view writes to the parent.
+ * <p>
+ * Rows written through {@link #set(int, int, int)} and {@link #putRow(int, int[], int)} are marked
+ * as dirty, so writers can re-encode only the rows that changed since the raster was read (see
+ * {@link RasterFile#patch(Raster)} and {@link PngWriter#update(java.nio.file.Path, Raster)}). A new
+ * raster, a wrapped storage and a copy have all their rows dirty : only the code loading a raster
+ * from a file marks it as clean, and code writing straight into the backing storage of a clean
+ * raster must call {@link #markDirty(int, int)} itself. A raster and its views share the same dirty rows.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class Raster {
+
+    /** Backing array, <code>null</code> when the raster is backed by a non array {@link IntBuffer} */
+    private final int[] array;
+    /** Backing buffer, <code>null</code> when the raster is backed by an array */
+    private final IntBuffer buffer;
+
+    private final int offset;
+    private final int stride;
+    private final int width;
+    private final int height;
+
+    /** Dirty rows of the root raster, shared with all the views */
+    private final BitSet dirty;
+    /** Index of the first row of this raster in the root raster */
+    private final int firstRow;
+
+    private Raster(int[] array, IntBuffer buffer, int offset, int stride, int width, int height) {
+        this(array, buffer, offset, stride, width, height, new BitSet(height), 0);
+        dirty.set(0, height);
+    }
+
+    private Raster(int[] array, IntBuffer buffer, int offset, int stride, int width, int height, BitSet dirty, int firstRow) {
+        assert width >= 0 && height >= 0;
+        assert stride >= width;
+        assert offset >= 0;
+        this.array = array;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.stride = stride;
+        this.width = width;
+        this.height = height;
+        this.dirty = dirty;
+        this.firstRow = firstRow;
+    }
+
+    /**
+     * Create a new raster, filled with 0, all its rows being dirty
+     * @param width number of columns
+     * @param height number of rows
+     */
+    public Raster(int width, int height) {
+        this(new int[Math.multiplyExact(width, height)], null, 0, width, width, height);
+    }
+
+    // ============================================================================================
+    // ======================================= FACTORIES ==========================================
+    // ============================================================================================
+
+    /**
+     * Wrap an existing array, without copying it
+     * @param data pixels stored row after row
+     * @param width number of columns
+     * @param height number of rows
+     * @return raster backed by <code>data</code>
+     */
+    public static Raster wrap(int[] data, int width, int height) {
+        return wrap(data, 0, width, width, height);
+    }
+
+    /**
+     * Wrap an existing array, without copying it
+     * @param data backing array
+     * @param offset index of the first pixel
+     * @param stride distance between two consecutive rows
+     * @param width number of columns
+     * @param height number of rows
+     * @return raster backed by <code>data</code>
+     */
+    public static Raster wrap(int[] data, int offset, int stride, int width, int height) {
+        assert data != null;
+        assert height == 0 || offset + (long) (height - 1) * stride + width <= data.length;
+        return new Raster(data, null, offset, stride, width, height);
+    }
+
+    /**
+     * Wrap an existing buffer, without copying it. Heap buffers are accessed through their array.
+     * @param data backing buffer, pixels are read from index 0 (absolute indexing)
+     * @param stride distance between two consecutive rows
+     * @param width number of columns
+     * @param height number of rows
+     * @return raster backed by <code>data</code>
+     */
+    public static Raster wrap(IntBuffer data, int stride, int width, int height) {
+        assert data != null;
+        assert height == 0 || (long) (height - 1) * stride + width <= data.capacity();
+        if (data.hasArray())
+            return new Raster(data.array(), null, data.arrayOffset(), stride, width, height);
+        return new Raster(null, data, 0, stride, width, height);
+    }
+
+    /**
+     * Copy a (rectangular) 2D image into a new raster
+     * @param image image to copy
+     * @return raster with the same content as <code>image</code>
+     */
+    public static Raster of(int[][] image) {
+        assert image != null;
+        int height = image.length;
+        int width = height == 0 ? 0 : image[0].length;
+        Raster result = new Raster(width, height);
+        for (int i = 0; i < height; i++) {
+            assert image[i] != null && image[i].length == width : "Image must be rectangular";
+            System.arraycopy(image[i], 0, result.array, i * width, width);
+        }
+        return result;
+    }
+
+    /**
+     * Copy a (rectangular) binary image into a new raster, <code>true</code> is stored as 1
+     * and <code>false</code> as 0
+     * @param image binary image to copy
+     * @return raster with the same content as <code>image</code>
+     */
+    public static Raster of(boolean[][] image) {
+        assert image != null;
+        int height = image.length;
+        int width = height == 0 ? 0 : image[0].length;
+        Raster result = new Raster(width, height);
+        for (int i = 0; i < height; i++) {
+            assert image[i] != null && image[i].length == width : "Image must be rectangular";
+            int base = i * width;
+            for (int j = 0; j < width; j++) {
+                result.array[base + j] = image[i][j] ? 1 : 0;
+            }
+        }
+        return result;
+    }
+
+    // ============================================================================================
+    // ======================================== ACCESSORS =========================================
+    // ============================================================================================
+
+    /** @return number of columns */
+    public int width() {
+        return width;
+    }
+
+    /** @return number of rows */
+    public int height() {
+        return height;
+    }
+
+    /** @return distance, in the storage, between two consecutive rows */
+    public int stride() {
+        return stride;
+    }
+
+    /** @return index of the first pixel in the storage */
+    public int offset() {
+        return offset;
+    }
+
+    /** @return <code>true</code> if the raster is backed by an accessible array */
+    public boolean hasArray() {
+        return array != null;
+    }
+
+    /**
+     * Access the backing array, to be used with {@link #index(int, int)}
+     * @return backing array
+     * @throws UnsupportedOperationException if the raster is not backed by an array
+     */
+    public int[] array() {
+        if (array == null)
+            throw new UnsupportedOperationException("Raster is not backed by an array");
+        return array;
+    }
+
+    /**
+     * Access the backing buffer, to be used with {@link #index(int, int)}
+     * @return backing buffer, wrapping the array if the raster is backed by an array
+     */
+    public IntBuffer buffer() {
+        return array != null ? IntBuffer.wrap(array) : buffer;
+    }
+
+    /**
+     * Compute the storage index of a pixel
+     * @param row row of the pixel
+     * @param col column of the pixel
+     * @return index of the pixel in the backing storage
+     */
+    public int index(int row, int col) {
+        assert row >= 0 && row < height && col >= 0 && col < width;
+        return offset + row * stride + col;
+    }
+
+    /**
+     * Read a pixel
+     * @param row row of the pixel
+     * @param col column of the pixel
+     * @return value of the pixel
+     */
+    public int get(int row, int col) {
+        int index = index(row, col);
+        return array != null ? array[index] : buffer.get(index);
+    }
+
+    /**
+     * Write a pixel
+     * @param row row of the pixel
+     * @param col column of the pixel
+     * @param value new value of the pixel
+     */
+    public void set(int row, int col, int value) {
+        int index = index(row, col);
+        if (array != null)
+            array[index] = value;
+        else
+            buffer.put(index, value);
+        if (!dirty.get(firstRow + row))
+            markDirty(row, row + 1);
+    }
+
+    // ============================================================================================
+    // ======================================= DIRTY ROWS =========================================
+    // ============================================================================================
+
+    /**
+     * Mark rows as modified
+     * @param from first row (inclusive)
+     * @param to last row (exclusive)
+     */
+    public void markDirty(int from, int to) {
+        assert from >= 0 && from <= to && to <= height;
+        synchronized (dirty) {
+            dirty.set(firstRow + from, firstRow + to);
+        }
+    }
+
+    /**
+     * @param from first row (inclusive)
+     * @param to last row (exclusive)
+     * @return <code>true</code> if one of the rows has been modified
+     */
+    public boolean isDirty(int from, int to) {
+        assert from >= 0 && from <= to && to <= height;
+        synchronized (dirty) {
+            int next = dirty.nextSetBit(firstRow + from);
+            return next >= 0 && next < firstRow + to;
+        }
+    }
+
+    /** @return <code>true</code> if one of the rows of the raster has been modified */
+    public boolean isDirty() {
+        return isDirty(0, height);
+    }
+
+    /**
+     * Mark all the rows of the raster as unmodified, once they have been read from or written to a file
+     */
+    public void clearDirty() {
+        synchronized (dirty) {
+            dirty.clear(firstRow, firstRow + height);
+        }
+    }
+
+    // ============================================================================================
+    // ========================================== VIEWS ===========================================
+    // ============================================================================================
+
+    /**
+     * View of a single row, sharing the storage of this raster
+     * @param row row to view
+     * @return raster of height 1
+     */
+    public Raster row(int row) {
+        return region(row, 0, 1, width);
+    }
+
+    /**
+     * View of a rectangular region, sharing the storage of this raster
+     * @param row first row of the region
+     * @param col first column of the region
+     * @param height number of rows of the region
+     * @param width number of columns of the region
+     * @return view of the region
+     */
+    public Raster region(int row, int col, int height, int width) {
+        assert row >= 0 && col >= 0 && height >= 0 && width >= 0;
+        assert row + height <= this.height && col + width <= this.width;
+        return new Raster(array, buffer, offset + row * stride + col, stride, width, height, dirty, firstRow + row);
+    }
+
+    // ============================================================================================
+    // ======================================== CONVERSIONS =======================================
+    // ============================================================================================
+
+    /**
+     * Copy the content of the raster into a new raster with a compact storage (stride == width)
+     * @return copy of the raster, all its rows being dirty
+     */
+    public Raster copy() {
+        Raster result = new Raster(width, height);
+        for (int i = 0; i < height; i++) {
+            copyRow(i, result.array, i * width);
+        }
+        return result;
+    }
+
+    /**
+     * Copy a row of the raster into an array
+     * @param row row to copy
+     * @param dst destination array
+     * @param dstOff index of the first element to write in <code>dst</code>
+     */
+    public void copyRow(int row, int[] dst, int dstOff) {
+        assert row >= 0 && row < height;
+        int start = offset + row * stride;
+        if (array != null)
+            System.arraycopy(array, start, dst, dstOff, width);
+        else
+            buffer.get(start, dst, dstOff, width);
+    }
+
+    /**
+     * Overwrite a row of the raster with the content of an array
+     * @param row row to write
+     * @param src source array
+     * @param srcOff index of the first element to read in <code>src</code>
+     */
+    public void putRow(int row, int[] src, int srcOff) {
+        assert row >= 0 && row < height;
+        int start = offset + row * stride;
+        if (array != null)
+            System.arraycopy(src, srcOff, array, start, width);
+        else
+            buffer.put(start, src, srcOff, width);
+        markDirty(row, row + 1);
+    }
+
+    /**
+     * Copy the content of the raster into a new 2D image
+     * @return 2D image with the same content
+     */
+    public int[][] toArray() {
+        int[][] result = new int[height][width];
+        for (int i = 0; i < height; i++) {
+            copyRow(i, result[i], 0);
+        }
+        return result;
+    }
+
+    /**
+     * Copy the content of the raster into a new binary image, any non-zero value is considered
+     * as <code>true</code>
+     * @return binary image with the same content
+     */
+    public boolean[][] toBinaryArray() {
+        boolean[][] result = new boolean[height][width];
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                result[i][j] = get(i, j) != 0;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,244 @@
+package ch.epfl.cs107.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Raw raster stored in a file, for images too large to be held in the heap.
+ * <p>
+ * The file starts with a header of {@link #HEADER_BYTES} bytes (magic number, version, width and
+ * height, as big-endian <code>int</code>s) followed by the ARGB pixels, row after row, as
+ * big-endian <code>int</code>s. Rows are accessed through {@link #map(int, int)}, which maps them in
+ * memory : only the pages actually read or written are loaded, and writes go straight to the file.
+ *
+ * @version 1.0.0
+ * @since 1.0.0
+ */
+public final class RasterFile implements Closeable {
+
+    /** Size of the header, in bytes */
+    public static final int HEADER_BYTES = 16;
+
+    /** Largest number of bytes mapped by {@link #bandRows()} rows */
+    private static final int BAND_BYTES = 1 << 24;
+
+    private static final int MAGIC = 0x43535246; // "CSRF"
+    private static final int VERSION = 1;
+
+    private final FileChannel channel;
+    private final boolean writable;
+    private final int width;
+    private final int height;
+
+    private RasterFile(FileChannel channel, boolean writable, int width, int height) {
+        this.channel = channel;
+        this.writable = writable;
+        this.width = width;
+        this.height = height;
+    }
+
+    // ============================================================================================
+    // ======================================= FACTORIES ==========================================
+    // ============================================================================================
+
+    /**
+     * Create a new raster file, filled with 0. An existing file is overwritten.
+     * @param path path of the file
+     * @param width number of columns
+     * @param height number of rows
+     * @return the raster file, opened for reading and writing
+     * @throws IOException if an I/O error occurs
+     */
+    public static RasterFile create(Path path, int width, int height) throws IOException {
+        assert path != null && width > 0 && height > 0;
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            // Extend the file to its final size, the pixels are 0 until written
+            long size = HEADER_BYTES + (long) width * height * Integer.BYTES;
+            channel.write(ByteBuffer.allocate(1), size - 1);
+            return new RasterFile(channel, true, width, height);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a new raster file holding a copy of a raster. An existing file is overwritten.
+     * @param path path of the file
+     * @param image raster to copy
+     * @return the raster file, opened for reading and writing
+     * @throws IOException if an I/O error occurs
+     */
+    public static RasterFile create(Path path, Raster image) throws IOException {
+        assert image != null;
+        RasterFile file = create(path, image.width(), image.height());
+        try {
+            int[] row = new int[image.width()];
+            for (int from = 0; from < file.height; from += file.bandRows()) {
+                Raster band = file.map(from, Math.min(file.bandRows(), file.height - from));
+                for (int i = 0; i < band.height(); i++) {
+                    image.copyRow(from + i, row, 0);
+                    band.putRow(i, row, 0);
+                }
+            }
+            return file;
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open an existing raster file
+     * @param path path of the file
+     * @param writable <code>true</code> to allow modifications of the pixels
+     * @return the raster file
+     * @throws IOException if an I/O error occurs or if the file is not a raster file
+     */
+    public static RasterFile open(Path path, boolean writable) throws IOException {
+        assert path != null;
+        FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) { }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException("Not a raster file : '" + path + "'");
+            int width = header.getInt();
+            int height = header.getInt();
+            if (width <= 0 || height <= 0 || channel.size() < HEADER_BYTES + (long) width * height * Integer.BYTES)
+                throw new IOException("Truncated raster file : '" + path + "'");
+            return new RasterFile(channel, writable, width, height);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // ============================================================================================
+    // ======================================== ACCESSORS =========================================
+    // ============================================================================================
+
+    /** @return number of columns */
+    public int width() {
+        return width;
+    }
+
+    /** @return number of rows */
+    public int height() {
+        return height;
+    }
+
+    /** @return <code>true</code> if the pixels can be modified */
+    public boolean isWritable() {
+        return writable;
+    }
+
+    /** @return number of rows to map at once to keep each mapping around 16 MiB */
+    public int bandRows() {
+        return (int) Math.max(1, Math.min(height, BAND_BYTES / ((long) width * Integer.BYTES)));
+    }
+
+    /**
+     * Map consecutive rows of the file in memory. Writing to the raster (if the file is writable)
+     * writes to the file. The rows of the raster are clean.
+     * @param row first row to map
+     * @param rows number of rows to map
+     * @return raster backed by the mapped rows
+     * @throws IOException if an I/O error occurs
+     */
+    public Raster map(int row, int rows) throws IOException {
+        assert row >= 0 && rows > 0 && row + rows <= height;
+        long bytes = (long) rows * width * Integer.BYTES;
+        assert bytes <= Integer.MAX_VALUE : "Too many rows to map at once";
+        long position = HEADER_BYTES + (long) row * width * Integer.BYTES;
+        ByteBuffer mapped = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                position, bytes);
+        Raster band = Raster.wrap(mapped.asIntBuffer(), width, width, rows);
+        band.clearDirty();
+        return band;
+    }
+
+    /**
+     * Copy the whole file into a new raster, whose rows are clean
+     * @return raster with the same content
+     * @throws IOException if an I/O error occurs
+     */
+    public Raster read() throws IOException {
+        Raster result = new Raster(width, height);
+        int[] dst = result.array();
+        for (int from = 0; from < height; from += bandRows()) {
+            Raster band = map(from, Math.min(bandRows(), height - from));
+            for (int i = 0; i < band.height(); i++) {
+                band.copyRow(i, dst, (from + i) * width);
+            }
+        }
+        result.clearDirty();
+        return result;
+    }
+
+    /**
+     * Write the dirty rows of a raster read from this file (see {@link Raster#isDirty(int, int)}),
+     * the other rows are left untouched on disk. Any other raster has all its rows dirty, unless they
+     * have been marked as clean explicitly, and is written entirely. The rows of the raster are then
+     * marked as clean.
+     * @param image raster of the same size as the file, the file being opened for writing
+     * @throws IOException if an I/O error occurs
+     */
+    public void patch(Raster image) throws IOException {
+        assert image != null && writable;
+        assert image.width() == width && image.height() == height;
+
+        int[] row = new int[width];
+        ByteBuffer bytes = ByteBuffer.allocate(Math.multiplyExact(bandRows(), width * Integer.BYTES));
+        IntBuffer pixels = bytes.asIntBuffer();
+        int from = 0;
+        while (from < height) {
+            if (!image.isDirty(from, from + 1)) {
+                from++;
+                continue;
+            }
+            // Write the run of dirty rows starting at 'from', one band at most at a time
+            int to = from;
+            pixels.clear();
+            while (to < height && to - from < bandRows() && image.isDirty(to, to + 1)) {
+                image.copyRow(to++, row, 0);
+                pixels.put(row);
+            }
+            bytes.clear().limit((to - from) * width * Integer.BYTES);
+            long position = HEADER_BYTES + (long) from * width * Integer.BYTES;
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+            from = to;
+        }
+        image.clearDirty();
+    }
+
+    /**
+     * Write the modifications of the pixels to the storage device
+     * @throws IOException if an I/O error occurs
+     */
+    public void force() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
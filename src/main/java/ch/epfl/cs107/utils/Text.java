@@ -64,13 +64,33 @@ public final class Text {
     public static String toString(boolean[] bitArray) {
         assert bitArray != null;
         byte[] bytes = new byte[bitArray.length / Byte.SIZE];
-        boolean[] oneByteInBool = new boolean[Byte.SIZE];
         for (int i = 0; i < bytes.length; i++) {
-            for (int j = 0; j < oneByteInBool.length; j++) {
-                oneByteInBool[j] = bitArray[Byte.SIZE * i + j]; //on extrait le byte i de bitArray sous sa forme bool
+            int value = 0;
+            for (int j = 0; j < Byte.SIZE; j++) {
+                value = (value << 1) | (bitArray[Byte.SIZE * i + j] ? 1 : 0); //on empile les bits du byte i
             }
-            bytes[i] = toByte(oneByteInBool); //on transforme ce byteInBool en Byte et on le met dans le byte[]
+            bytes[i] = (byte) value;
         }
         return toString(bytes);
     }
+    /**
+     * Convert a given String into a packed bit representation
+     *
+     * @param str String to convert
+     * @return <b>UTF-8</b> representation of the string in the {@link BitVector} format
+     */
+    public static BitVector toBitVector(String str) {
+        assert str != null;
+        return BitVector.fromBytes(toBytes(str));
+    }
+    /**
+     * Convert a given packed bit representation to a String
+     *
+     * @param bits <b>UTF-8</b> compatible bits
+     * @return <b>UTF-8 String</b> representation of the bits
+     */
+    public static String toString(BitVector bits) {
+        assert bits != null;
+        return toString(bits.toBytes());
+    }
 }